@@ -113,11 +113,56 @@ void checkGlError(const char *expr, const char *file, int line) {
 OSystem_Android::OSystem_Android(int audio_sample_rate, int audio_buffer_size) :
 	_audio_sample_rate(audio_sample_rate),
 	_audio_buffer_size(audio_buffer_size),
+	_audio_latency_min(0),
+	_audio_latency_max(0),
+	_audio_latency(0),
+	_audio_underruns(0),
+	_audio_underrun_count(-1),
+	_audio_stable_since(0),
+	_audio_thread_started(false),
+	_audio_backend(kAudioTrack),
+	_audio_period_frames(0),
+	_audio_clock_lock(createMutex()),
+	_audio_clock_playing(false),
+	_audio_clock_written(0),
+	_audio_clock_played(0),
+	_audio_clock_time(0),
+	_audio_clock_sampled(0),
+	_audio_fast_resume(false),
+	_audio_resume_time(0),
+	_audio_resume_frame(0),
+	_audio_resume_started(false),
+	_audio_resume_last(0),
+#ifdef USE_OPENSLES
+	_opensles(0),
+#endif
+	_audio_render(0),
+	_audio_render_seconds(0),
 	_screen_changeid(0),
 	_egl_surface_width(0),
 	_egl_surface_height(0),
 	_htc_fail(true),
+	_egl_preserve_context(false),
+	_gl_objects_kept(false),
+	_egl_context_generation(0),
+	_frame_lock(createMutex()),
+	_vsync_time(0),
+	_vsync_period(0),
+	_present_vsync(0),
+	_egl_context_lost(false),
+	_present_pending(false),
+	_frames_skipped(0),
+	_frame_count(0),
+	_frame_last_start(0),
 	_force_redraw(false),
+	_clear_screen(false),
+	_mouse_layer_texture(0),
+	_render_threaded(false),
+	_render_thread_started(false),
+	_render_thread_exit(false),
+	_frames_submitted(0),
+	_frames_drawn(0),
+	_render_job(0),
 	_game_texture(0),
 	_overlay_texture(0),
 	_mouse_texture(0),
@@ -134,8 +179,17 @@ OSystem_Android::OSystem_Android(int audio_sample_rate, int audio_buffer_size) :
 	_enable_zoning(false),
 	_mixer(0),
 	_shake_offset(0),
+	_event_ring_head(0),
+	_event_ring_tail(0),
+	_event_ring(0),
+	_event_ring_mask(0),
+	_sample_run(false),
+	_sample_run_time(0),
+	_sample_run_start(0),
 	_queuedEventTime(0),
-	_event_queue_lock(createMutex()),
+	_queuedEventSourceType(-1),
+	_queuedEventSourceTime(0),
+	_input_latency_reset(false),
 	_touch_pt_down(),
 	_touch_pt_scroll(),
 	_touch_pt_dt(),
@@ -147,7 +201,11 @@ OSystem_Android::OSystem_Android(int audio_sample_rate, int audio_buffer_size) :
 	_dpad_scale(4),
 	_fingersDown(0),
 	_trackball_scale(2),
-	_joystick_scale(10) {
+	_joystick_scale(10),
+	_joystick_remainder() {
+
+	pthread_mutex_init(&_render_mutex, 0);
+	pthread_cond_init(&_render_cond, 0);
 
 	_fsFactory = new POSIXFilesystemFactory();
 
@@ -179,7 +237,11 @@ OSystem_Android::~OSystem_Android() {
 	delete _timerManager;
 	_timerManager = 0;
 
-	deleteMutex(_event_queue_lock);
+	deleteMutex(_audio_clock_lock);
+	deleteMutex(_frame_lock);
+
+	pthread_cond_destroy(&_render_cond);
+	pthread_mutex_destroy(&_render_mutex);
 }
 
 void *OSystem_Android::timerThreadFunc(void *arg) {
@@ -212,6 +274,337 @@ void *OSystem_Android::timerThreadFunc(void *arg) {
 	return 0;
 }
 
+void OSystem_Android::setAudioBackend(int backend, uint period_frames) {
+	_audio_backend = backend;
+	_audio_period_frames = period_frames;
+}
+
+void OSystem_Android::setAudioRender(const Common::String &wav,
+										const Common::String &report,
+										uint seconds) {
+	_audio_backend = kAudioRender;
+	_audio_render_wav = wav;
+	_audio_render_report = report;
+	_audio_render_seconds = seconds;
+}
+
+void OSystem_Android::initAudio() {
+	if (_audio_backend == kAudioRender) {
+		_audio_render = new AndroidAudioRender(this, _audio_sample_rate,
+												_audio_buffer_size / (2 * 2));
+
+		if (_audio_render->start(_audio_render_wav, _audio_render_report,
+									_audio_render_seconds))
+			LOGI("Audio: offline render, %dHz", _audio_sample_rate);
+
+		return;
+	}
+
+#ifdef USE_OPENSLES
+	// fallback when the device doesn't tell its period size
+	static const uint kDefaultPeriodFrames = 512;
+
+	if (_audio_backend == kAudioOpenSLES) {
+		const uint period = _audio_period_frames ? _audio_period_frames :
+													kDefaultPeriodFrames;
+
+		_opensles = new AndroidOpenSLES();
+
+		if (_opensles->open(_mixer, _audio_sample_rate, period)) {
+			LOGI("Audio: OpenSL ES, %dHz, %u frames per period, %ums queued",
+					_audio_sample_rate, period, getAudioLatency());
+			return;
+		}
+
+		LOGW("OpenSL ES failed, falling back to AudioTrack");
+
+		delete _opensles;
+		_opensles = 0;
+	}
+#else
+	if (_audio_backend == kAudioOpenSLES)
+		LOGW("OpenSL ES not built in, using AudioTrack");
+#endif
+
+	_audio_thread_exit = false;
+	pthread_create(&_audio_thread, 0, audioThreadFunc, this);
+	_audio_thread_started = true;
+
+	LOGI("Audio: AudioTrack, %dHz, %ums buffer%s", _audio_sample_rate,
+			getAudioLatency(), _audio_latency_max ? " (adaptive)" : "");
+}
+
+void OSystem_Android::deinitAudio() {
+	if (_audio_render) {
+		_audio_render->stop();
+		delete _audio_render;
+		_audio_render = 0;
+	}
+
+#ifdef USE_OPENSLES
+	if (_opensles) {
+		_opensles->close();
+		delete _opensles;
+		_opensles = 0;
+	}
+#endif
+
+	if (_audio_thread_started) {
+		_audio_thread_exit = true;
+		pthread_join(_audio_thread, 0);
+		_audio_thread_started = false;
+	}
+}
+
+void OSystem_Android::pauseAudio(bool pause) {
+	// the AudioTrack thread pauses itself
+#ifdef USE_OPENSLES
+	if (_opensles)
+		_opensles->setPaused(pause);
+#endif
+}
+
+uint OSystem_Android::getPausedThreads() const {
+	// main and timer thread, plus the AudioTrack thread
+	return _audio_thread_started ? 3 : 2;
+}
+
+void OSystem_Android::setAudioLatencyBounds(uint min, uint max) {
+	// whole frames, and only before the audio thread starts
+	_audio_latency_min = min & ~3;
+	_audio_latency_max = MAX(max, min) & ~3;
+	_audio_latency = _audio_latency_min;
+}
+
+uint OSystem_Android::getAudioLatency() const {
+#ifdef USE_OPENSLES
+	if (_opensles)
+		return _opensles->getLatency();
+#endif
+
+	const uint bytes = _audio_latency_max ? _audio_latency :
+											_audio_buffer_size;
+
+	return bytes * 1000 / (_audio_sample_rate * 2 * 2);
+}
+
+// Called by the audio thread before writing the next chunk. Grows the
+// amount of queued audio when the track ran dry since the last chunk,
+// shrinks it again after a while without underruns, and waits until the
+// chunk fits below the current target.
+void OSystem_Android::adaptAudioLatency(uint32 written, uint chunk,
+										bool starting) {
+	// shrink by 1/8th after this long without underruns
+	static const uint32 kStableDelay = 10000;
+
+	JNIEnv *env = JNI::getEnv();
+
+	const uint32 now = getMillis();
+	int32 queued = written - JNI::getAudioHead(env);
+
+	// the platform counts underruns itself since android N, before that
+	// an empty track while playing is the best guess
+	bool underrun;
+	const int count = JNI::getAudioUnderrunCount(env);
+
+	if (count >= 0) {
+		underrun = _audio_underrun_count >= 0 &&
+					count != _audio_underrun_count;
+		_audio_underrun_count = count;
+	} else {
+		underrun = !starting && queued <= 0;
+	}
+
+	if (underrun) {
+		_audio_underruns++;
+
+		if (_audio_latency < _audio_latency_max) {
+			_audio_latency = MIN(_audio_latency + _audio_latency / 2,
+									_audio_latency_max) & ~3;
+
+			LOGI("audio underrun, latency now %ums", getAudioLatency());
+		}
+
+		_audio_stable_since = now;
+	} else if (now - _audio_stable_since > kStableDelay) {
+		if (_audio_latency > _audio_latency_min) {
+			_audio_latency = MAX(_audio_latency - _audio_latency / 8,
+									_audio_latency_min) & ~3;
+
+			LOGI("audio stable, latency now %ums", getAudioLatency());
+		}
+
+		_audio_stable_since = now;
+	}
+
+	const uint target = _audio_latency / (2 * 2);
+
+	while (queued > 0 && (uint)queued + chunk > target &&
+			!_audio_thread_exit && !JNI::pause) {
+		const uint msecs = ((uint)queued + chunk - target) * 1000 /
+							_audio_sample_rate + 1;
+
+		struct timespec tv;
+		tv.tv_sec = msecs / 1000;
+		tv.tv_nsec = (msecs % 1000) * 1000 * 1000;
+
+		nanosleep(&tv, 0);
+
+		queued = written - JNI::getAudioHead(env);
+	}
+}
+
+// Called by the audio thread after each chunk. Asks the track which frame
+// it's presenting every now and then, the clock is extrapolated from that
+// in between.
+void OSystem_Android::updateAudioClock(uint32 written) {
+	// AudioTrack.getTimestamp() isn't meant to be polled any faster
+	static const uint32 kSampleInterval = 100;
+
+	const uint32 now = AndroidHistogram::uptimeMillis();
+	const bool sample = !_audio_clock_playing || _audio_resume_started ||
+						now - _audio_clock_sampled >= kSampleInterval;
+
+	uint32 frames = 0;
+	int64 nanos = 0;
+
+	if (sample && !JNI::getAudioTimestamp(JNI::getEnv(), frames, nanos))
+		nanos = AndroidHistogram::uptimeNanos();
+
+	lockMutex(_audio_clock_lock);
+
+	_audio_clock_written = written;
+
+	if (sample) {
+		_audio_clock_played = frames;
+		_audio_clock_time = nanos;
+		_audio_clock_sampled = now;
+		_audio_clock_playing = true;
+	}
+
+	unlockMutex(_audio_clock_lock);
+
+	if (!sample)
+		return;
+
+	_audio_output_latency.add(getAudioOutputLatency());
+
+	// once the track is past the first frame after a resume, back off to
+	// when that was played
+	if (_audio_resume_started && (int32)(frames - _audio_resume_frame) > 0) {
+		const int64 first = nanos - (int64)(frames - _audio_resume_frame) *
+									1000000000LL / _audio_sample_rate;
+		const uint ms = (uint)(MAX<int64>(first - _audio_resume_time, 0) /
+								1000000);
+
+		_audio_resume_latency.add(ms);
+		_audio_resume_last = ms;
+		_audio_resume_time = 0;
+		_audio_resume_started = false;
+
+		LOGD("audio resumed, first sample after %ums", ms);
+	}
+}
+
+// Called by the audio thread when the engine resumes. The measurement
+// starts at the given frame once the track plays, see markAudioStart().
+void OSystem_Android::markAudioResume(bool started, uint32 frame) {
+	_audio_resume_time = AndroidHistogram::uptimeNanos();
+	_audio_resume_started = false;
+
+	if (started)
+		markAudioStart(frame);
+}
+
+void OSystem_Android::markAudioStart(uint32 frame) {
+	if (!_audio_resume_time)
+		return;
+
+	_audio_resume_frame = frame;
+	_audio_resume_started = true;
+}
+
+void OSystem_Android::setAudioFastResume(bool enable) {
+	_audio_fast_resume = enable;
+}
+
+void OSystem_Android::setPreserveEglContext(bool enable) {
+	_egl_preserve_context = enable;
+}
+
+void OSystem_Android::setRenderThread(bool enable) {
+	_render_threaded = enable;
+}
+
+void OSystem_Android::setDirtyRegions(uint max_rects, uint slack) {
+	GLESBaseTexture::setDirtyRegions(max_rects, slack);
+}
+
+uint OSystem_Android::getAudioResumeLatency() const {
+	return _audio_resume_last;
+}
+
+void OSystem_Android::getAudioResumeLatencyStats(int32 *stats) {
+	_audio_resume_latency.snapshot(stats);
+}
+
+void OSystem_Android::stopAudioClock() {
+	lockMutex(_audio_clock_lock);
+	_audio_clock_playing = false;
+	unlockMutex(_audio_clock_lock);
+}
+
+bool OSystem_Android::getAudioClock(uint32 &written, uint32 &played) {
+#ifdef USE_OPENSLES
+	if (_opensles)
+		return _opensles->getClock(written, played);
+#endif
+
+	lockMutex(_audio_clock_lock);
+
+	const bool playing = _audio_clock_playing;
+
+	if (playing) {
+		const int64 elapsed = AndroidHistogram::uptimeNanos() -
+								_audio_clock_time;
+
+		written = _audio_clock_written;
+		played = _audio_clock_played +
+					(int32)(elapsed * _audio_sample_rate / 1000000000LL);
+
+		// the track can't play what it wasn't given
+		if ((int32)(played - written) > 0)
+			played = written;
+	}
+
+	unlockMutex(_audio_clock_lock);
+
+	return playing;
+}
+
+uint OSystem_Android::getAudioOutputLatency() {
+	uint32 written, played;
+
+	if (!getAudioClock(written, played))
+		return 0;
+
+	// a stale timestamp can lag behind the frames written since
+	const int32 frames = MAX<int32>(written - played, 0);
+
+	return (uint)frames * 1000 / _audio_sample_rate;
+}
+
+void OSystem_Android::getAudioOutputLatencyStats(int32 *stats) {
+#ifdef USE_OPENSLES
+	if (_opensles) {
+		_opensles->getLatencyStats(stats);
+		return;
+	}
+#endif
+
+	_audio_output_latency.snapshot(stats);
+}
+
 void *OSystem_Android::audioThreadFunc(void *arg) {
 	JNI::attachThread();
 
@@ -222,7 +615,12 @@ void *OSystem_Android::audioThreadFunc(void *arg) {
 
 	JNIEnv *env = JNI::getEnv();
 
-	jbyteArray bufa = env->NewByteArray(buf_size);
+	// mix right into the java side's direct buffer if the track takes it,
+	// else into a byte array
+	byte *direct = JNI::getAudioBuffer();
+	jbyteArray bufa = direct ? 0 : env->NewByteArray(buf_size);
+
+	LOGI("audio thread writing %s", direct ? "a direct buffer" : "byte[]");
 
 	bool paused = true;
 
@@ -243,9 +641,29 @@ void *OSystem_Android::audioThreadFunc(void *arg) {
 	bool silence;
 	uint silence_count = 33;
 
+	// frames handed to the track since it was last started, compared with
+	// its playback head for adaptive buffering and the audio clock
+	const bool adaptive = system->_audio_latency_max > 0;
+	const uint chunk_frames = buf_size / (2 * 2);
+	uint32 frames_written = 0;
+	bool starting = true;
+
+	// the track was paused with audio still queued, see below
+	const bool fast_resume = system->_audio_fast_resume;
+	bool held = false;
+
 	while (!system->_audio_thread_exit) {
 		if (JNI::pause) {
-			JNI::setAudioStop();
+			// a playing track keeps its last chunks queued over the pause
+			// for a fast resume, stopping it would play them out now
+			if (fast_resume && !paused) {
+				JNI::setAudioHold();
+				held = true;
+			} else {
+				JNI::setAudioStop();
+			}
+
+			system->stopAudioClock();
 
 			paused = true;
 			silence_count = 33;
@@ -253,10 +671,28 @@ void *OSystem_Android::audioThreadFunc(void *arg) {
 			LOGD("audio thread going to sleep");
 			sem_wait(&JNI::pause_sem);
 			LOGD("audio thread woke up");
+
+			if (held) {
+				LOGD("AudioTrack resume");
+
+				// the held chunks cover the time until the next one
+				JNI::setAudioPlay();
+				held = false;
+				paused = false;
+				silence_count = 0;
+
+				system->markAudioResume(true, JNI::getAudioHead(env));
+			} else {
+				system->markAudioResume(false, 0);
+			}
 		}
 
-		buf = (byte *)env->GetPrimitiveArrayCritical(bufa, 0);
-		assert(buf);
+		if (direct) {
+			buf = direct;
+		} else {
+			buf = (byte *)env->GetPrimitiveArrayCritical(bufa, 0);
+			assert(buf);
+		}
 
 		samples = mixer->mixCallback(buf, buf_size);
 
@@ -275,7 +711,8 @@ void *OSystem_Android::audioThreadFunc(void *arg) {
 				}
 		}
 
-		env->ReleasePrimitiveArrayCritical(bufa, buf, 0);
+		if (!direct)
+			env->ReleasePrimitiveArrayCritical(bufa, buf, 0);
 
 		if (silence) {
 			if (!paused)
@@ -283,10 +720,15 @@ void *OSystem_Android::audioThreadFunc(void *arg) {
 
 			// only pause after a while to prevent toggle mania
 			if (silence_count > 32) {
+				// nothing to resume to
+				system->_audio_resume_time = 0;
+				system->_audio_resume_started = false;
+
 				if (!paused) {
 					LOGD("AudioTrack pause");
 
 					JNI::setAudioPause();
+					system->stopAudioClock();
 					paused = true;
 				}
 
@@ -296,21 +738,48 @@ void *OSystem_Android::audioThreadFunc(void *arg) {
 			}
 		}
 
+		// with fast resume, the empty track gets this chunk before it's
+		// started, so it doesn't start on an underrun
+		bool prefill = false;
+
 		if (paused) {
 			LOGD("AudioTrack play");
 
-			JNI::setAudioPlay();
+			if (fast_resume)
+				prefill = true;
+			else
+				JNI::setAudioPlay();
+
 			paused = false;
 
 			silence_count = 0;
+
+			frames_written = JNI::getAudioHead(env);
+			starting = true;
+
+			system->markAudioStart(frames_written);
+		}
+
+		// a track which isn't playing yet would never drain
+		if (adaptive && !prefill) {
+			system->adaptAudioLatency(frames_written, chunk_frames, starting);
+			starting = false;
 		}
 
+		frames_written += chunk_frames;
+
 		offset = 0;
 		left = buf_size;
 		written = 0;
 
+		if (direct)
+			JNI::rewindAudioBuffer(env);
+
 		while (left > 0) {
-			written = JNI::writeAudio(env, bufa, offset, left);
+			if (direct)
+				written = JNI::writeAudioBuffer(env, left);
+			else
+				written = JNI::writeAudio(env, bufa, offset, left);
 
 			if (written < 0) {
 				LOGE("AudioTrack error: %d", written);
@@ -328,18 +797,140 @@ void *OSystem_Android::audioThreadFunc(void *arg) {
 		if (written < 0)
 			break;
 
+		if (prefill)
+			JNI::setAudioPlay();
+
+		system->updateAudioClock(frames_written);
+
 		// prepare the next buffer, and run into the blocking AudioTrack.write
 	}
 
 	JNI::setAudioStop();
+	system->stopAudioClock();
+
+	int32 stats[AndroidHistogram::kStatSize];
+	system->_audio_output_latency.snapshot(stats);
+
+	if (stats[AndroidHistogram::kStatCount])
+		LOGI("audio output latency p50 %dms, p99 %dms",
+				stats[AndroidHistogram::kStatP50],
+				stats[AndroidHistogram::kStatP99]);
+
+	if (adaptive)
+		LOGI("audio latency %ums at exit, %u underruns",
+				system->getAudioLatency(), system->_audio_underruns);
 
-	env->DeleteLocalRef(bufa);
+	if (bufa)
+		env->DeleteLocalRef(bufa);
 
 	JNI::detachThread();
 
 	return 0;
 }
 
+void *OSystem_Android::renderThreadFunc(void *arg) {
+	OSystem_Android *system = (OSystem_Android *)arg;
+
+	JNI::attachThread();
+
+	pthread_mutex_lock(&system->_render_mutex);
+
+	while (true) {
+		if (system->_render_job) {
+			RenderJob job = system->_render_job;
+
+			pthread_mutex_unlock(&system->_render_mutex);
+			(system->*job)();
+			pthread_mutex_lock(&system->_render_mutex);
+
+			system->_render_job = 0;
+			pthread_cond_broadcast(&system->_render_cond);
+
+			continue;
+		}
+
+		if (system->_frames_drawn != system->_frames_submitted) {
+			AndroidFrame &f = system->_frames[system->_frames_drawn % 2];
+
+			pthread_mutex_unlock(&system->_render_mutex);
+			system->drawFrame(f);
+			pthread_mutex_lock(&system->_render_mutex);
+
+			++system->_frames_drawn;
+			pthread_cond_broadcast(&system->_render_cond);
+
+			continue;
+		}
+
+		if (system->_render_thread_exit)
+			break;
+
+		pthread_cond_wait(&system->_render_cond, &system->_render_mutex);
+	}
+
+	pthread_mutex_unlock(&system->_render_mutex);
+
+	JNI::detachThread();
+
+	return 0;
+}
+
+void OSystem_Android::startRenderThread() {
+	LOGD("starting render thread");
+
+	_render_thread_exit = false;
+	_render_thread_started =
+		pthread_create(&_render_thread, 0, renderThreadFunc, this) == 0;
+
+	if (!_render_thread_started)
+		LOGE("couldn't start the render thread, drawing on this one");
+}
+
+void OSystem_Android::stopRenderThread() {
+	if (!_render_thread_started)
+		return;
+
+	pthread_mutex_lock(&_render_mutex);
+	_render_thread_exit = true;
+	pthread_cond_broadcast(&_render_cond);
+	pthread_mutex_unlock(&_render_mutex);
+
+	pthread_join(_render_thread, 0);
+
+	_render_thread_started = false;
+}
+
+void OSystem_Android::runOnRenderThread(RenderJob job) {
+	if (!_render_thread_started) {
+		(this->*job)();
+		return;
+	}
+
+	pthread_mutex_lock(&_render_mutex);
+
+	// the frames in flight belong to the surface the job may change
+	while (_frames_drawn != _frames_submitted)
+		pthread_cond_wait(&_render_cond, &_render_mutex);
+
+	_render_job = job;
+	pthread_cond_broadcast(&_render_cond);
+
+	while (_render_job)
+		pthread_cond_wait(&_render_cond, &_render_mutex);
+
+	pthread_mutex_unlock(&_render_mutex);
+}
+
+void OSystem_Android::runSurfaceJob(RenderJob job) {
+	// taken first, a change while the job runs is picked up by the next
+	// pollEvent()
+	const int changeid = JNI::surface_changeid;
+
+	runOnRenderThread(job);
+
+	_screen_changeid = changeid;
+}
+
 void OSystem_Android::initBackend() {
 	ENTER();
 
@@ -374,11 +965,12 @@ void OSystem_Android::initBackend() {
 	_timer_thread_exit = false;
 	pthread_create(&_timer_thread, 0, timerThreadFunc, this);
 
-	_audio_thread_exit = false;
-	pthread_create(&_audio_thread, 0, audioThreadFunc, this);
+	initAudio();
+
+	if (_render_threaded)
+		startRenderThread();
 
-	initSurface();
-	initViewport();
+	runSurfaceJob(&OSystem_Android::attachSurface);
 
 	_game_texture = new GLESFakePalette565Texture();
 	_overlay_texture = new GLES4444Texture();
@@ -391,6 +983,8 @@ void OSystem_Android::initBackend() {
 	if (setpriority(PRIO_PROCESS, 0, 19) < 0)
 		warning("couldn't renice the main thread");
 
+	// drop whatever was typed while we were starting up
+	discardEventRing();
 	JNI::setReadyForEvents(true);
 
 	EventsBaseBackend::initBackend();
@@ -507,8 +1101,7 @@ void OSystem_Android::quit() {
 
 	JNI::setReadyForEvents(false);
 
-	_audio_thread_exit = true;
-	pthread_join(_audio_thread, 0);
+	deinitAudio();
 
 	_timer_thread_exit = true;
 	pthread_join(_timer_thread, 0);
@@ -518,7 +1111,9 @@ void OSystem_Android::quit() {
 	delete _mouse_texture_palette;
 	delete _mouse_texture_rgb;
 
-	deinitSurface();
+	runSurfaceJob(&OSystem_Android::deinitSurface);
+
+	stopRenderThread();
 }
 
 void OSystem_Android::setWindowCaption(const char *caption) {
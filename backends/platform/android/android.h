@@ -35,6 +35,9 @@
 #include "backends/fs/posix/posix-fs-factory.h"
 
 #include "backends/platform/android/texture.h"
+#include "backends/platform/android/histogram.h"
+#include "backends/platform/android/opensles.h"
+#include "backends/platform/android/audiorender.h"
 
 #include <pthread.h>
 
@@ -103,6 +106,113 @@ protected:
 };
 #endif
 
+// Fixed size FIFO for translated events. Records are only pulled from the
+// event ring when this is empty, and a single record never turns into more
+// than a few events, so there's no need to allocate list nodes per event.
+// Every event remembers the java event type and time it came from, -1 for
+// events the backend made up itself.
+class AndroidEventQueue {
+public:
+	AndroidEventQueue() : _head(0), _tail(0), _source_type(-1),
+		_source_time(0) {
+	}
+
+	bool empty() const {
+		return _head == _tail;
+	}
+
+	// source of the events pushed from now on
+	void setSource(int type, uint32 time) {
+		_source_type = type;
+		_source_time = time;
+	}
+
+	int sourceType() const {
+		return _source_type;
+	}
+
+	uint32 sourceTime() const {
+		return _source_time;
+	}
+
+	void push(const Common::Event &e) {
+		push(e, _source_type, _source_time);
+	}
+
+	void push(const Common::Event &e, int type, uint32 time) {
+		if (_tail - _head == kSize) {
+			LOGW("event queue full, dropping event");
+			return;
+		}
+
+		const uint i = _tail++ & (kSize - 1);
+
+		_events[i] = e;
+		_types[i] = type;
+		_times[i] = time;
+	}
+
+	Common::Event pop(int &type, uint32 &time) {
+		assert(!empty());
+
+		const uint i = _head++ & (kSize - 1);
+
+		type = _types[i];
+		time = _times[i];
+
+		return _events[i];
+	}
+
+private:
+	static const uint kSize = 32;
+
+	Common::Event _events[kSize];
+	int _types[kSize];
+	uint32 _times[kSize];
+	uint _head, _tail;
+
+	int _source_type;
+	uint32 _source_time;
+};
+
+// A presented frame, laid out like ScummVM.FRAME_LOG_*
+struct AndroidFrameRecord {
+	int64 number;
+	int64 start;
+	int64 swapped;
+	int64 vsync;
+	int64 skipped;
+};
+
+// Everything a frame is drawn with, taken from the engine's state by
+// updateScreen(), so the render thread can draw it while the engine goes
+// on. See OSystem_Android::prepareFrame().
+struct AndroidFrame {
+	int64 start;
+	// spent converting the dirty texture areas
+	int64 prepare_nanos;
+
+	int surface_width;
+	int surface_height;
+	// clear the whole surface first
+	bool clear;
+
+	Common::Rect game_rect;
+	Common::Rect overlay_rect;
+	int shake_offset;
+	Common::Rect focus_rect;
+
+	bool show_overlay;
+	bool show_mouse;
+	Common::Point mouse;
+	Common::Point mouse_hotspot;
+	int mouse_scale;
+
+	GLESTextureFrame game;
+	GLESTextureFrame overlay;
+	GLESTextureFrame cursor;
+};
+
 class OSystem_Android : public EventsBaseBackend, public PaletteManager {
 private:
 	// passed from the dark side
@@ -114,7 +224,104 @@ private:
 	int _egl_surface_height;
 	bool _htc_fail;
 
+	// see setPreserveEglContext()
+	bool _egl_preserve_context;
+	// the textures weren't released with the last surface
+	bool _gl_objects_kept;
+	// of the context the textures belong to
+	int _egl_context_generation;
+
+	// vsync as published by the Java FramePacer, see setVsync()
+	MutexRef _frame_lock;
+	int64 _vsync_time;
+	int64 _vsync_period;
+	// the vsync the last frame is shown with
+	int64 _present_vsync;
+	// a swap lost the EGL context, pollEvent() rebuilds everything.
+	// Posted by whichever thread draws, _screen_changeid stays the
+	// engine thread's
+	bool _egl_context_lost;
+	// an update was held back, and is presented with the next vsync
+	bool _present_pending;
+	uint32 _frames_skipped;
+
+	// the latest presented frames, a ring. Keep in sync with
+	// ScummVM.FRAME_LOG_CAPACITY
+	static const uint kFrameLogSize = 1024;
+	AndroidFrameRecord _frame_log[kFrameLogSize];
+	uint32 _frame_count;
+
+	// 0 without a published vsync
+	int64 nextVsync(int64 now);
+	void logFrame(int64 start, int64 swapped, int64 vsync);
+
+	// Stages of the presented frames, like ScummVM.FRAME_STAT_*. Times
+	// are in us, the upload covers converting the dirty texture areas on
+	// the engine side and submitting them on the GL side, the draw
+	// everything else up to the swap. The bounding bytes are what
+	// uploading one bounding box of the dirty regions per texture would
+	// have taken.
+	enum {
+		kFrameStatUploadBytes = 0,
+		kFrameStatUpload,
+		kFrameStatDraw,
+		kFrameStatSwap,
+		kFrameStatInterval,
+		kFrameStatUploadBoundingBytes,
+		kFrameStatTypes
+	};
+
+	// guarded by _frame_lock
+	AndroidHistogram _frame_stats[kFrameStatTypes];
+	int64 _frame_last_start;
+
+	void addFrameStats(int64 start, int64 drawn, int64 swapped,
+						int64 prepare_nanos);
+
 	bool _force_redraw;
+	// the next frame clears the whole surface, see clearScreen()
+	bool _clear_screen;
+
+	// the GL side of the layers, only touched by the thread owning the
+	// context
+	GLESTextureLayer _game_layer;
+	GLESTextureLayer _overlay_layer;
+	GLESTextureLayer _mouse_layer;
+	// the mouse texture the layer was last fed from
+	GLESBaseTexture *_mouse_layer_texture;
+
+	// Render thread, see setRenderThread(). It owns the EGL context,
+	// draws the frames updateScreen() submits, and runs the surface
+	// changes as jobs, while the engine thread waits for them.
+	bool _render_threaded;
+	bool _render_thread_started;
+	bool _render_thread_exit;
+	pthread_t _render_thread;
+	pthread_mutex_t _render_mutex;
+	pthread_cond_t _render_cond;
+	static void *renderThreadFunc(void *arg);
+
+	// double buffered, frames are drawn in order of submission
+	AndroidFrame _frames[2];
+	uint32 _frames_submitted;
+	uint32 _frames_drawn;
+
+	typedef void (OSystem_Android::*RenderJob)();
+	RenderJob _render_job;
+
+	void startRenderThread();
+	void stopRenderThread();
+	// runs job with the GL context, and returns once it's done
+	void runOnRenderThread(RenderJob job);
+	// runs a surface job, and takes the surface change it was run for
+	void runSurfaceJob(RenderJob job);
+
+	// engine side
+	void prepareFrame(AndroidFrame &f, int64 start, bool copy);
+	// GL side
+	void drawFrame(AndroidFrame &f);
+	// the last frame still waits for the vsync at now
+	bool holdFrame(int64 now);
 
 	// Game layer
 	GLESBaseTexture *_game_texture;
@@ -146,9 +353,65 @@ private:
 	static void *timerThreadFunc(void *arg);
 
 	bool _audio_thread_exit;
+	bool _audio_thread_started;
 	pthread_t _audio_thread;
 	static void *audioThreadFunc(void *arg);
 
+	// see setAudioBackend()
+	int _audio_backend;
+	uint _audio_period_frames;
+#ifdef USE_OPENSLES
+	AndroidOpenSLES *_opensles;
+#endif
+
+	// see setAudioRender()
+	AndroidAudioRender *_audio_render;
+	Common::String _audio_render_wav;
+	Common::String _audio_render_report;
+	uint _audio_render_seconds;
+
+	void initAudio();
+	void deinitAudio();
+
+	// audio presentation clock of the AudioTrack thread, written frames
+	// against the last timestamp the track gave
+	MutexRef _audio_clock_lock;
+	bool _audio_clock_playing;
+	uint32 _audio_clock_written;
+	uint32 _audio_clock_played;
+	int64 _audio_clock_time;
+	uint32 _audio_clock_sampled;
+	AndroidHistogram _audio_output_latency;
+
+	void updateAudioClock(uint32 written);
+	void stopAudioClock();
+
+	// keep the track's queued audio over a pause, see setAudioFastResume()
+	bool _audio_fast_resume;
+
+	// resume to first sample played, owned by the audio thread. The time
+	// is 0 unless a resume waits for its first sample, the frame is the
+	// first one played after it.
+	int64 _audio_resume_time;
+	uint32 _audio_resume_frame;
+	bool _audio_resume_started;
+	volatile uint _audio_resume_last;
+	AndroidHistogram _audio_resume_latency;
+
+	void markAudioResume(bool started, uint32 frame);
+	void markAudioStart(uint32 frame);
+
+	// Adaptive audio buffering, in bytes queued in the AudioTrack. Off
+	// while _audio_latency_max is 0, see setAudioLatencyBounds()
+	uint _audio_latency_min;
+	uint _audio_latency_max;
+	volatile uint _audio_latency;
+	uint _audio_underruns;
+	int _audio_underrun_count;
+	uint32 _audio_stable_since;
+
+	void adaptAudioLatency(uint32 written, uint chunk, bool starting);
+
 	bool _enable_zoning;
 	bool _virtkeybd_on;
 
@@ -161,6 +424,10 @@ private:
 	void deinitSurface();
 	void initViewport();
 
+	// render jobs
+	void attachSurface();
+	void reattachSurface();
+
 	void initOverlay();
 
 #ifdef USE_RGB_COLOR
@@ -180,6 +447,57 @@ public:
 	void addPluginDirectories(Common::FSList &dirs) const;
 	void enableZoning(bool enable) { _enable_zoning = enable; }
 
+	void setAudioLatencyBounds(uint min, uint max);
+	uint getAudioLatency() const;
+
+	enum {
+		kAudioTrack = 0,
+		kAudioOpenSLES = 1,
+		kAudioRender = 2
+	};
+
+	// Only before initBackend(). OpenSL ES falls back to the AudioTrack
+	// thread if it's not built in or fails to open, period_frames 0
+	// picks a default.
+	void setAudioBackend(int backend, uint period_frames);
+	// Only before initBackend(). Renders seconds of a fixed load of
+	// resampled channels without any output, into the wav file or
+	// nowhere if that's empty, and writes the benchmark results to
+	// report. See AndroidAudioRender.
+	void setAudioRender(const Common::String &wav,
+						const Common::String &report, uint seconds);
+	void pauseAudio(bool pause);
+
+	// threads which wait on JNI::pause_sem while paused
+	uint getPausedThreads() const;
+
+	// Frames handed to the audio output and frames played by now, for
+	// scheduling against what's actually heard. False while no audio is
+	// playing.
+	bool getAudioClock(uint32 &written, uint32 &played);
+	// ms from mixing a frame to it being played, 0 while not playing
+	uint getAudioOutputLatency();
+	void getAudioOutputLatencyStats(int32 *stats);
+
+	// Only before initBackend(). Pausing the engine holds the AudioTrack
+	// instead of stopping it, and it's restarted with what was queued
+	// or a first chunk written ahead, instead of empty.
+	void setAudioFastResume(bool enable);
+	// ms from the last resume to its first sample being played
+	uint getAudioResumeLatency() const;
+	void getAudioResumeLatencyStats(int32 *stats);
+
+	// Only before initBackend(). Losing the surface keeps the textures,
+	// as the Java side keeps their EGL context, and they're only created
+	// and uploaded again if that got lost.
+	void setPreserveEglContext(bool enable);
+	// Only before initBackend(). Draws on a thread of its own, while the
+	// engine prepares the next frame.
+	void setRenderThread(bool enable);
+	// Dirty region tracking of the textures, see
+	// GLESBaseTexture::setDirtyRegions()
+	void setDirtyRegions(uint max_rects, uint slack);
+
 	virtual bool hasFeature(Feature f);
 	virtual void setFeatureState(Feature f, bool enable);
 	virtual bool getFeatureState(Feature f);
@@ -198,8 +516,7 @@ public:
 							const Graphics::PixelFormat *format);
 
 	enum FixupType {
-		kClear = 0,		// glClear
-		kClearSwap,		// glClear + swapBuffers
+		kClear = 0,		// glClear with the next frame
 		kClearUpdate	// glClear + updateScreen
 	};
 
@@ -216,13 +533,67 @@ public:
 	}
 
 public:
-	void pushEvent(int type, int arg1, int arg2, int arg3, int arg4, int arg5);
+	// event ring layout, keep in sync with ScummVM.java. head and tail
+	// live on their own cache lines in the header, each record is
+	// kEventRecordSize int32s: type, five arguments, event time and flags
+	static const int kEventRingHeaderSize = 128;
+	static const int kEventRingTail = 16;
+	static const int kEventRecordSize = 8;
+	// ScummVM.EVENT_FLAG_SAMPLE, a historical sample of a motion event
+	static const int kEventFlagSample = 1;
+
+	void setEventRing(void *ring, uint32 size);
+	static uint32 publishEvents(void *ring, uint32 head);
+
+	bool getInputLatency(int type, int32 *stats);
+	void resetInputLatency();
+
+	// From the Java FramePacer: the latest vsync and the refresh period,
+	// in ns on CLOCK_MONOTONIC. Presents are paced to it from then on,
+	// one per vsync, holding back the updates in between.
+	void setVsync(int64 time, int64 period);
+	// Fills up to max of the latest frames, oldest first, returns how
+	// many were filled in
+	uint getFrameLog(AndroidFrameRecord *log, uint max);
+
+	// the histogram of a kFrameStat* stage
+	bool getFrameStats(int stage, int32 *stats);
+	void resetFrameStats();
 
 private:
-	Common::Queue<Common::Event> _event_queue;
+	void pushEvent(int type, int arg1, int arg2, int arg3, int arg4, int arg5);
+	void drainEventRing();
+	void discardEventRing();
+	bool sampleDue(uint32 time);
+
+	// written by the UI thread, read by the engine thread
+	volatile uint32 *_event_ring_head;
+	// owned by the engine thread
+	volatile uint32 *_event_ring_tail;
+	const int32 *_event_ring;
+	uint32 _event_ring_mask;
+
+	// The run of samples being handed out, see sampleDue(): the time of
+	// its first one, and when that was handed out
+	bool _sample_run;
+	uint32 _sample_run_time;
+	uint32 _sample_run_start;
+
+	// only used on the engine thread, so none of it needs a lock
+	AndroidEventQueue _event_queue;
 	Common::Event _queuedEvent;
 	uint32 _queuedEventTime;
-	MutexRef _event_queue_lock;
+	int _queuedEventSourceType;
+	uint32 _queuedEventSourceTime;
+
+	// input latency per java event type, from the android event time to
+	// pollEvent() handing the event to the engine
+	static const int kInputLatencyTypes = 18;
+	AndroidHistogram _input_latency[kInputLatencyTypes];
+	// set by resetInputLatency(), the engine thread does the reset
+	volatile bool _input_latency_reset;
+
+	void recordInputLatency(int type, uint32 time);
 
 	Common::Point _touch_pt_down, _touch_pt_scroll, _touch_pt_dt;
 	int _eventScaleX;
@@ -232,6 +603,7 @@ private:
 	int _trackball_scale;
 	int _dpad_scale;
 	int _joystick_scale;
+	Common::Point _joystick_remainder;
 	int _fingersDown;
 
 	void clipMouse(Common::Point &p);
@@ -8,10 +8,20 @@ JAVA_FILES = \
 	ScummVM.java \
 	ScummVMEvents.java \
 	ScummVMEventsHoneycomb.java \
+	InputDeviceState.java \
+	KeyRouter.java \
+	Tracer.java \
 	ScummVMApplication.java \
 	ScummVMActivity.java \
 	EditableSurfaceView.java \
 	MouseHelper.java \
+	AnalogCursor.java \
+	AnalogCursorJellyBean.java \
+	EventRecorder.java \
+	EventReplayer.java \
+	InputBenchmark.java \
+	EglConfigPolicy.java \
+	FramePacer.java \
 	Unpacker.java
 
 JAVA_FILES_PLUGIN = \
@@ -52,7 +62,7 @@ APKBUILDER = java -Xmx128M -classpath $(ANDROID_SDK)/tools/lib/sdklib.jar com.an
 JAVAC ?= javac
 JAVACFLAGS = -source 1.5 -target 1.5
 
-ANDROID_JAR = $(ANDROID_SDK)/platforms/android-14/android.jar
+ANDROID_JAR = $(ANDROID_SDK)/platforms/android-16/android.jar
 
 PATH_BUILD = ./build.tmp
 PATH_BUILD_ASSETS = $(PATH_BUILD)/assets
@@ -190,6 +200,66 @@ androidtest: $(APK_MAIN) $(APK_PLUGINS)
 	done
 	$(ADB) shell am start -a android.intent.action.MAIN -c android.intent.category.LAUNCHER -n org.scummvm.scummvm/.Unpacker
 
+# The input layer on a plain JVM, against the stubs in jvm/stubs instead
+# of android.jar. androidjvmtest runs the tests, each a main() which
+# exits non-zero on failure. androidjvmbench runs the JMH benchmarks,
+# which need the
+# JMH jars (core, the annotation processor and their dependencies) in
+# JMH_CLASSPATH, and writes the results to JMH_RESULTS
+JAVA_FILES_JVM_MAIN = \
+	ScummVM.java \
+	ScummVMEvents.java \
+	ScummVMEventsHoneycomb.java \
+	InputDeviceState.java \
+	KeyRouter.java \
+	Tracer.java \
+	ScummVMApplication.java \
+	MouseHelper.java \
+	AnalogCursor.java \
+	AnalogCursorJellyBean.java \
+	EventRecorder.java \
+	InputBenchmark.java \
+	EglConfigPolicy.java
+
+JAVA_FILES_JVM = \
+	RecordingScummVM.java \
+	InjectKeyAllocationTest.java
+
+JVM_TESTS = \
+	InjectKeyAllocationTest
+
+JAVA_FILES_JVM_BENCH = \
+	InputEventsBenchmark.java
+
+JAVA ?= java
+JVM_JAVACFLAGS = -source 1.8 -target 1.8 -nowarn
+JMH_CLASSPATH ?=
+JMH_RESULTS ?= input-benchmark.csv
+JMH_FLAGS ?= -prof gc -rf csv -rff $(JMH_RESULTS)
+
+PATH_JVM = $(PATH_SRC_TOP)/jvm
+PATH_BUILD_JVM = $(PATH_BUILD)/jvm
+
+SRC_JVM = \
+	$(shell find $(PATH_JVM)/stubs -name '*.java') \
+	$(addprefix $(PATH_SRC)/, $(JAVA_FILES_JVM_MAIN)) \
+	$(addprefix $(PATH_JVM)/$(PATH_REL)/, $(JAVA_FILES_JVM))
+
+androidjvmtest:
+	@$(RM) -rf $(PATH_BUILD_JVM)
+	@$(MKDIR) -p $(PATH_BUILD_JVM)
+	$(JAVAC) $(JVM_JAVACFLAGS) -d $(PATH_BUILD_JVM) $(SRC_JVM)
+	@set -e; for test in $(JVM_TESTS); do \
+		$(JAVA) -cp $(PATH_BUILD_JVM) org.scummvm.scummvm.$$test; \
+	done
+
+androidjvmbench:
+	@test -n "$(JMH_CLASSPATH)" || { echo "JMH_CLASSPATH isn't set"; exit 1; }
+	@$(RM) -rf $(PATH_BUILD_JVM)
+	@$(MKDIR) -p $(PATH_BUILD_JVM)
+	$(JAVAC) $(JVM_JAVACFLAGS) -cp $(JMH_CLASSPATH) -d $(PATH_BUILD_JVM) $(SRC_JVM) $(addprefix $(PATH_JVM)/$(PATH_REL)/, $(JAVA_FILES_JVM_BENCH))
+	$(JAVA) -cp $(PATH_BUILD_JVM):$(JMH_CLASSPATH) org.openjdk.jmh.Main $(JMH_FLAGS) InputEventsBenchmark
+
 # used by buildbot!
 androiddistdebug: all
 	$(MKDIR) debug
@@ -198,4 +268,4 @@ androiddistdebug: all
 		sed 's/$$/\r/' < $$i > debug/`basename $$i`.txt; \
 	done
 
-.PHONY: androidrelease androidtest
+.PHONY: androidrelease androidtest androidjvmtest androidjvmbench
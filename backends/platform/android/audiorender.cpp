@@ -0,0 +1,281 @@
+/* ScummVM - Graphic Adventure Engine
+ *
+ * ScummVM is the legal property of its developers, whose names
+ * are too numerous to list here. Please refer to the COPYRIGHT
+ * file distributed with this source distribution.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ */
+
+#if defined(__ANDROID__)
+
+// Allow use of stuff in <time.h>
+#define FORBIDDEN_SYMBOL_EXCEPTION_time_h
+
+// Disable printf override in common/forbidden.h to avoid
+// clashes with log.h from the Android SDK.
+// That header file uses
+//   __attribute__ ((format(printf, 3, 4)))
+// which gets messed up by our override mechanism; this could
+// be avoided by either changing the Android SDK to use the equally
+// legal and valid
+//   __attribute__ ((format(printf, 3, 4)))
+// or by refining our printf override to use a varadic macro
+// (which then wouldn't be portable, though).
+// Anyway, for now we just disable the printf override globally
+// for the Android port
+#define FORBIDDEN_SYMBOL_EXCEPTION_printf
+
+#include <math.h>
+
+#include "common/file.h"
+#include "audio/audiostream.h"
+#include "audio/mixer_intern.h"
+#include "audio/decoders/raw.h"
+
+#include "backends/platform/android/android.h"
+#include "backends/platform/android/audiorender.h"
+
+static int64 threadCpuNanos() {
+	struct timespec ts;
+
+	clock_gettime(CLOCK_THREAD_CPUTIME_ID, &ts);
+
+	return (int64)ts.tv_sec * 1000000000LL + ts.tv_nsec;
+}
+
+// rate and tone of the load's channels, see AndroidAudioRender
+static const struct {
+	uint rate;
+	bool stereo;
+	uint hz;
+} s_load[] = {
+	{ 11025, false, 440 },
+	{ 22050, false, 660 },
+	{ 22050, true, 330 },
+	{ 32000, true, 880 }
+};
+
+// a second of the tone, looped forever. Whole periods, so the loop
+// doesn't click
+static Audio::AudioStream *makeTone(uint rate, bool stereo, uint hz) {
+	const uint channels = stereo ? 2 : 1;
+	const uint32 size = rate * channels * sizeof(int16);
+	int16 *buf = (int16 *)malloc(size);
+
+	for (uint i = 0; i < rate; ++i) {
+		const int16 v = (int16)(sin(2 * M_PI * hz * i / rate) * 8192);
+
+		for (uint c = 0; c < channels; ++c)
+			buf[i * channels + c] = v;
+	}
+
+	byte flags = Audio::FLAG_16BITS;
+
+#ifdef SCUMM_LITTLE_ENDIAN
+	flags |= Audio::FLAG_LITTLE_ENDIAN;
+#endif
+
+	if (stereo)
+		flags |= Audio::FLAG_STEREO;
+
+	return Audio::makeLoopingAudioStream(
+		Audio::makeRawStream((const byte *)buf, size, rate, flags), 0);
+}
+
+AndroidAudioRender::AndroidAudioRender(OSystem *system, uint sample_rate,
+										uint period_frames) :
+	_mixer(new Audio::MixerImpl(system, sample_rate)),
+	_sample_rate(sample_rate),
+	_period_frames(period_frames),
+	_frames(0),
+	_started(false),
+	_exit(false) {
+	_mixer->setReady(true);
+}
+
+AndroidAudioRender::~AndroidAudioRender() {
+	stop();
+
+	delete _mixer;
+}
+
+bool AndroidAudioRender::start(const Common::String &wav,
+								const Common::String &report, uint seconds) {
+	assert(!_started);
+
+	_wav = wav;
+	_report = report;
+	_frames = seconds * _sample_rate;
+	_exit = false;
+
+	if (pthread_create(&_thread, 0, threadFunc, this) != 0) {
+		LOGE("Unable to start the audio render thread");
+		return false;
+	}
+
+	_started = true;
+
+	return true;
+}
+
+void AndroidAudioRender::stop() {
+	if (!_started)
+		return;
+
+	_exit = true;
+	pthread_join(_thread, 0);
+	_started = false;
+}
+
+void *AndroidAudioRender::threadFunc(void *arg) {
+	((AndroidAudioRender *)arg)->render();
+
+	return 0;
+}
+
+void AndroidAudioRender::startLoad() {
+	assert(ARRAYSIZE(s_load) == kLoadChannels);
+
+	for (uint i = 0; i < kLoadChannels; ++i)
+		_mixer->playStream(Audio::Mixer::kPlainSoundType, &_load[i],
+							makeTone(s_load[i].rate, s_load[i].stereo,
+										s_load[i].hz),
+							-1, Audio::Mixer::kMaxChannelVolume / 2, 0,
+							DisposeAfterUse::YES, true, false);
+}
+
+void AndroidAudioRender::stopLoad() {
+	for (uint i = 0; i < kLoadChannels; ++i)
+		_mixer->stopHandle(_load[i]);
+}
+
+void AndroidAudioRender::render() {
+	const uint period_bytes = _period_frames * 2 * 2;
+
+	Common::DumpFile wav;
+
+	if (!_wav.empty()) {
+		if (!wav.open(_wav)) {
+			LOGE("Unable to open %s", _wav.c_str());
+			return;
+		}
+
+		// 16 bit stereo PCM, the length is known up front
+		const uint32 data_size = _frames * 2 * 2;
+
+		wav.writeUint32BE(MKTAG('R', 'I', 'F', 'F'));
+		wav.writeUint32LE(36 + data_size);
+		wav.writeUint32BE(MKTAG('W', 'A', 'V', 'E'));
+		wav.writeUint32BE(MKTAG('f', 'm', 't', ' '));
+		wav.writeUint32LE(16);
+		wav.writeUint16LE(1);
+		wav.writeUint16LE(2);
+		wav.writeUint32LE(_sample_rate);
+		wav.writeUint32LE(_sample_rate * 2 * 2);
+		wav.writeUint16LE(2 * 2);
+		wav.writeUint16LE(16);
+		wav.writeUint32BE(MKTAG('d', 'a', 't', 'a'));
+		wav.writeUint32LE(data_size);
+	}
+
+	LOGI("Rendering %u frames of audio into %s, %u frames per period, "
+			"%u channels of load", _frames,
+			_wav.empty() ? "the null sink" : _wav.c_str(), _period_frames,
+			kLoadChannels);
+
+	startLoad();
+
+	byte *buf = new byte[period_bytes];
+
+	// per period, in us
+	AndroidHistogram periods;
+	int64 mix_nanos = 0;
+	uint32 frames = 0;
+
+	const int64 wall_start = AndroidHistogram::uptimeNanos();
+	const int64 cpu_start = threadCpuNanos();
+
+	while (frames < _frames && !_exit) {
+		const uint n = MIN<uint32>(_period_frames, _frames - frames);
+
+		const int64 start = AndroidHistogram::uptimeNanos();
+		_mixer->mixCallback(buf, n * 2 * 2);
+		const int64 nanos = AndroidHistogram::uptimeNanos() - start;
+
+		periods.add((uint32)(nanos / 1000));
+		mix_nanos += nanos;
+
+		if (wav.isOpen())
+			wav.write(buf, n * 2 * 2);
+
+		frames += n;
+	}
+
+	const int64 wall_nanos = AndroidHistogram::uptimeNanos() - wall_start;
+	const int64 cpu_nanos = threadCpuNanos() - cpu_start;
+
+	stopLoad();
+
+	delete[] buf;
+
+	if (wav.isOpen()) {
+		wav.finalize();
+		wav.close();
+	}
+
+	int32 stats[AndroidHistogram::kStatSize];
+	periods.snapshot(stats);
+
+	// frames per second of mixing, and how much faster than real time
+	const double rate = mix_nanos ? frames * 1e9 / mix_nanos : 0;
+	const double realtime = rate / _sample_rate;
+	const double cpu = wall_nanos ? cpu_nanos * 100.0 / wall_nanos : 0;
+
+	LOGI("Rendered %u frames in %lldms: %.0f frames/s (%.1fx real time), "
+			"%.0f%% cpu, period p50 %dus p99 %dus", frames,
+			(long long)(wall_nanos / 1000000), rate, realtime, cpu,
+			stats[AndroidHistogram::kStatP50],
+			stats[AndroidHistogram::kStatP99]);
+
+	if (_report.empty())
+		return;
+
+	Common::DumpFile report;
+
+	if (!report.open(_report)) {
+		LOGE("Unable to open %s", _report.c_str());
+		return;
+	}
+
+	report.writeString("frames,load_channels,wall_ms,mix_ms,cpu_ms,"
+						"frames_per_sec,realtime,cpu_pct,period_us_mean,"
+						"period_us_p50,period_us_p90,period_us_p99,"
+						"period_us_max\n");
+	report.writeString(Common::String::format(
+		"%u,%u,%lld,%lld,%lld,%.0f,%.2f,%.1f,%d,%d,%d,%d,%d\n", frames,
+		kLoadChannels,
+		(long long)(wall_nanos / 1000000), (long long)(mix_nanos / 1000000),
+		(long long)(cpu_nanos / 1000000), rate, realtime, cpu,
+		stats[AndroidHistogram::kStatMean], stats[AndroidHistogram::kStatP50],
+		stats[AndroidHistogram::kStatP90], stats[AndroidHistogram::kStatP99],
+		stats[AndroidHistogram::kStatMax]));
+
+	report.finalize();
+	report.close();
+}
+
+#endif
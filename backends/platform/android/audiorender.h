@@ -0,0 +1,88 @@
+/* ScummVM - Graphic Adventure Engine
+ *
+ * ScummVM is the legal property of its developers, whose names
+ * are too numerous to list here. Please refer to the COPYRIGHT
+ * file distributed with this source distribution.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ */
+
+#ifndef _ANDROID_AUDIORENDER_H_
+#define _ANDROID_AUDIORENDER_H_
+
+#if defined(__ANDROID__)
+
+#include <pthread.h>
+
+#include "common/scummsys.h"
+#include "common/str.h"
+#include "audio/mixer.h"
+
+class OSystem;
+
+namespace Audio {
+class MixerImpl;
+}
+
+// Renders the mixer offline instead of to an output, as fast as it goes,
+// into a WAV file or nowhere. Writes samples per second, the time per
+// period and the CPU time taken to a CSV report, to compare mixer and
+// resampler changes without the device's audio in the way.
+//
+// The load is always the same: looped tones on kLoadChannels channels,
+// mono and stereo, at rates the output doesn't run at, so each of them
+// goes through the resampler. It plays on a mixer of its own, so the
+// engine's sounds stay out of the mix and the numbers. Those don't
+// advance meanwhile, without an output nothing calls the engine's mixer.
+class AndroidAudioRender {
+public:
+	AndroidAudioRender(OSystem *system, uint sample_rate,
+						uint period_frames);
+	~AndroidAudioRender();
+
+	// An empty wav renders into the null sink. Renders seconds of audio
+	// on its own thread, then writes the report and stops.
+	bool start(const Common::String &wav, const Common::String &report,
+				uint seconds);
+	void stop();
+
+private:
+	static void *threadFunc(void *arg);
+	void render();
+
+	static const uint kLoadChannels = 4;
+
+	void startLoad();
+	void stopLoad();
+
+	Audio::SoundHandle _load[kLoadChannels];
+
+	// only the load plays here
+	Audio::MixerImpl *_mixer;
+	uint _sample_rate;
+	uint _period_frames;
+
+	Common::String _wav;
+	Common::String _report;
+	uint32 _frames;
+
+	pthread_t _thread;
+	bool _started;
+	volatile bool _exit;
+};
+
+#endif
+#endif
@@ -245,6 +245,8 @@ static inline T scalef(T in, float numerator, float denominator) {
 }
 
 static const int kQueuedInputEventDelay = 50;
+// how far a run of samples is spread out at most, in ms
+static const int kMaxSampleSpread = 50;
 
 void OSystem_Android::setupKeymapper() {
 #ifdef ENABLE_KEYMAPPER
@@ -282,9 +284,7 @@ void OSystem_Android::warpMouse(int x, int y) {
 
 	clipMouse(e.mouse);
 
-	lockMutex(_event_queue_lock);
 	_event_queue.push(e);
-	unlockMutex(_event_queue_lock);
 }
 
 void OSystem_Android::clipMouse(Common::Point &p) {
@@ -361,12 +361,10 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 			e.kbd.keycode = Common::KEYCODE_ESCAPE;
 			e.kbd.ascii = Common::ASCII_ESCAPE;
 
-			lockMutex(_event_queue_lock);
 			e.type = Common::EVENT_KEYDOWN;
 			_event_queue.push(e);
 			e.type = Common::EVENT_KEYUP;
 			_event_queue.push(e);
-			unlockMutex(_event_queue_lock);
 
 			return;
 
@@ -374,9 +372,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 		case JKEYCODE_MENU:
 			e.type = Common::EVENT_MAINMENU;
 
-			lockMutex(_event_queue_lock);
 			_event_queue.push(e);
-			unlockMutex(_event_queue_lock);
 
 			return;
 
@@ -389,9 +385,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 
 			e.mouse = getEventManager()->getMousePos();
 
-			lockMutex(_event_queue_lock);
 			_event_queue.push(e);
-			unlockMutex(_event_queue_lock);
 
 			return;
 
@@ -499,9 +493,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 		if (arg4 & (JMETA_SYM | JMETA_CTRL))
 			e.kbd.flags |= Common::KBD_CTRL;
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		return;
 
@@ -542,9 +534,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 
 			clipMouse(e.mouse);
 
-			lockMutex(_event_queue_lock);
 			_event_queue.push(e);
-			unlockMutex(_event_queue_lock);
 
 			return;
 
@@ -563,9 +553,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 
 			e.mouse = getEventManager()->getMousePos();
 
-			lockMutex(_event_queue_lock);
 			_event_queue.push(e);
-			unlockMutex(_event_queue_lock);
 
 			return;
 		}
@@ -595,9 +583,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 			clipMouse(e.mouse);
 		}
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		return;
 
@@ -631,8 +617,6 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 				up = Common::EVENT_LBUTTONUP;
 			}
 
-			lockMutex(_event_queue_lock);
-
 			if (_queuedEventTime)
 				_event_queue.push(_queuedEvent);
 
@@ -645,8 +629,8 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 			e.type = up;
 			_queuedEvent = e;
 			_queuedEventTime = getMillis() + kQueuedInputEventDelay;
-
-			unlockMutex(_event_queue_lock);
+			_queuedEventSourceType = _event_queue.sourceType();
+			_queuedEventSourceTime = _event_queue.sourceTime();
 		}
 
 		return;
@@ -697,11 +681,9 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 				return;
 			}
 
-			lockMutex(_event_queue_lock);
 			_event_queue.push(e);
 			e.type = dptype;
 			_event_queue.push(e);
-			unlockMutex(_event_queue_lock);
 		}
 
 		return;
@@ -737,18 +719,18 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 
 				e.mouse = getEventManager()->getMousePos();
 
-				lockMutex(_event_queue_lock);
-
 				if (_queuedEventTime)
-					_event_queue.push(_queuedEvent);
+					_event_queue.push(_queuedEvent, _queuedEventSourceType,
+										_queuedEventSourceTime);
 
 				_event_queue.push(e);
 
 				e.type = up;
 				_queuedEvent = e;
 				_queuedEventTime = getMillis() + kQueuedInputEventDelay;
+				_queuedEventSourceType = _event_queue.sourceType();
+				_queuedEventSourceTime = _event_queue.sourceTime();
 
-				unlockMutex(_event_queue_lock);
 				return;
 
 			default:
@@ -784,9 +766,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 			return;
 		}
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		return;
 
@@ -796,9 +776,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 		scaleMouse(e.mouse, arg1, arg2);
 		clipMouse(e.mouse);
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		return;
 
@@ -808,9 +786,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 		scaleMouse(e.mouse, arg1, arg2);
 		clipMouse(e.mouse);
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		return;
 
@@ -820,9 +796,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 		scaleMouse(e.mouse, arg1, arg2);
 		clipMouse(e.mouse);
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		return;
 
@@ -832,9 +806,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 		scaleMouse(e.mouse, arg1, arg2);
 		clipMouse(e.mouse);
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		return;
 
@@ -844,9 +816,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 		scaleMouse(e.mouse, arg1, arg2);
 		clipMouse(e.mouse);
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		return;
 
@@ -893,9 +863,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 			return;
 		}
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		break;
 
@@ -906,9 +874,16 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 		case JACTION_MULTIPLE:
 			e.type = Common::EVENT_MOUSEMOVE;
 
-			// already multiplied by 100
-			e.mouse.x += arg2 * _joystick_scale / _eventScaleX;
-			e.mouse.y += arg3 * _joystick_scale / _eventScaleY;
+			// already multiplied by 100. keep what's lost to the
+			// division, or slow stick movements wouldn't move at all
+			_joystick_remainder.x += arg2 * _joystick_scale;
+			_joystick_remainder.y += arg3 * _joystick_scale;
+
+			e.mouse.x += _joystick_remainder.x / _eventScaleX;
+			e.mouse.y += _joystick_remainder.y / _eventScaleY;
+
+			_joystick_remainder.x %= _eventScaleX;
+			_joystick_remainder.y %= _eventScaleY;
 
 			clipMouse(e.mouse);
 
@@ -918,18 +893,14 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 			return;
 		}
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		return;
 
 	case JE_MMB_DOWN:
 		e.type = Common::EVENT_MAINMENU;
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		return;
 
@@ -941,9 +912,7 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 	case JE_QUIT:
 		e.type = Common::EVENT_QUIT;
 
-		lockMutex(_event_queue_lock);
 		_event_queue.push(e);
-		unlockMutex(_event_queue_lock);
 
 		return;
 
@@ -954,16 +923,162 @@ void OSystem_Android::pushEvent(int type, int arg1, int arg2, int arg3,
 	}
 }
 
+// The event ring is filled by the UI thread and drained by the engine
+// thread. A full barrier before publishing an index and after reading the
+// other side's index is all the ordering needed, and works with every
+// toolchain the NDK ships.
+static inline uint32 loadAcquire(volatile uint32 *p) {
+	const uint32 v = *p;
+	__sync_synchronize();
+	return v;
+}
+
+static inline void storeRelease(volatile uint32 *p, uint32 v) {
+	__sync_synchronize();
+	*p = v;
+}
+
+void OSystem_Android::setEventRing(void *ring, uint32 size) {
+	// size has to be a power of two
+	assert(size && !(size & (size - 1)));
+
+	_event_ring_head = (volatile uint32 *)ring;
+	_event_ring_tail = _event_ring_head + kEventRingTail;
+	_event_ring = (const int32 *)((byte *)ring + kEventRingHeaderSize);
+	_event_ring_mask = size - 1;
+
+	storeRelease(_event_ring_tail, loadAcquire(_event_ring_head));
+}
+
+// UI thread: the records up to head were written, make them visible to
+// the engine thread. Returns the engine's tail, so the java side knows
+// how much room is left. Only touches the ring, which the java peer owns,
+// so a publish racing destroy() is harmless
+uint32 OSystem_Android::publishEvents(void *ring, uint32 head) {
+	volatile uint32 *ring_head = (volatile uint32 *)ring;
+
+	storeRelease(ring_head, head);
+
+	return loadAcquire(ring_head + kEventRingTail);
+}
+
+// engine thread: translate records until there's something to return
+// from pollEvent(), or the ring is empty
+void OSystem_Android::drainEventRing() {
+	if (!_event_ring)
+		return;
+
+	const uint32 head = loadAcquire(_event_ring_head);
+	uint32 tail = *_event_ring_tail;
+
+	if (tail == head)
+		return;
+
+	while (tail != head && _event_queue.empty()) {
+		const int32 *r = _event_ring + (tail & _event_ring_mask) *
+							kEventRecordSize;
+
+		if (r[7] & kEventFlagSample) {
+			// stays in the ring until it's due
+			if (!sampleDue(r[6]))
+				break;
+		} else {
+			_sample_run = false;
+		}
+
+		++tail;
+
+		_event_queue.setSource(r[0], r[6]);
+		pushEvent(r[0], r[1], r[2], r[3], r[4], r[5]);
+	}
+
+	// whatever the backend queues on its own isn't input
+	_event_queue.setSource(-1, 0);
+
+	// hand the slots back to the producer
+	storeRelease(_event_ring_tail, tail);
+}
+
+// engine thread: the historical samples of a motion event arrive all at
+// once, but are handed to the engine spaced like they were taken. The
+// first of a run goes right away, every other one once as much time
+// passed as between it and the first, up to kMaxSampleSpread
+bool OSystem_Android::sampleDue(uint32 time) {
+	const uint32 now = getMillis();
+
+	if (!_sample_run) {
+		_sample_run = true;
+		_sample_run_time = time;
+		_sample_run_start = now;
+
+		return true;
+	}
+
+	const int32 offset = CLIP<int32>((int32)(time - _sample_run_time), 0,
+										kMaxSampleSpread);
+
+	return (int32)(now - _sample_run_start) >= offset;
+}
+
+void OSystem_Android::discardEventRing() {
+	if (!_event_ring)
+		return;
+
+	storeRelease(_event_ring_tail, loadAcquire(_event_ring_head));
+	_sample_run = false;
+}
+
+// engine thread, the only one adding to the histograms
+void OSystem_Android::recordInputLatency(int type, uint32 time) {
+	if (_input_latency_reset) {
+		_input_latency_reset = false;
+
+		for (int i = 0; i < kInputLatencyTypes; ++i)
+			_input_latency[i].reset();
+	}
+
+	if (type < 0 || type >= kInputLatencyTypes)
+		return;
+
+	// the java side stamps with SystemClock.uptimeMillis() or the
+	// event's getEventTime(), both on this clock
+	const int32 latency = (int32)(AndroidHistogram::uptimeMillis() - time);
+
+	_input_latency[type].add(MAX(latency, 0));
+}
+
+// any thread, the snapshot may be torn by an event being recorded
+bool OSystem_Android::getInputLatency(int type, int32 *stats) {
+	if (type < 0 || type >= kInputLatencyTypes)
+		return false;
+
+	_input_latency[type].snapshot(stats);
+
+	return true;
+}
+
+// any thread, the engine thread resets with the next event it records
+void OSystem_Android::resetInputLatency() {
+	_input_latency_reset = true;
+}
+
 bool OSystem_Android::pollEvent(Common::Event &event) {
 	//ENTER();
 
 	if (pthread_self() == _main_thread) {
+		lockMutex(_frame_lock);
+		const bool context_lost = _egl_context_lost;
+		_egl_context_lost = false;
+		unlockMutex(_frame_lock);
+
+		if (context_lost)
+			_screen_changeid = -1;
+
 		if (_screen_changeid != JNI::surface_changeid) {
 			if (JNI::egl_surface_width > 0 && JNI::egl_surface_height > 0) {
 				// surface changed
-				JNI::deinitSurface();
-				initSurface();
-				initViewport();
+				runSurfaceJob(&OSystem_Android::reattachSurface);
+
 				updateScreenRect();
 				updateEventScale();
 
@@ -975,12 +1090,17 @@ bool OSystem_Android::pollEvent(Common::Event &event) {
 				return true;
 			} else {
 				// surface lost
-				deinitSurface();
+				runSurfaceJob(&OSystem_Android::deinitSurface);
 			}
 		}
 
+		// an update held back for the vsync, see updateScreen()
+		if (_present_pending && JNI::haveSurface() &&
+				!holdFrame(AndroidHistogram::uptimeNanos()))
+			updateScreen();
+
 		if (JNI::pause) {
-			deinitSurface();
+			runSurfaceJob(&OSystem_Android::deinitSurface);
 
 			LOGD("main thread going to sleep");
 			sem_wait(&JNI::pause_sem);
@@ -988,23 +1108,24 @@ bool OSystem_Android::pollEvent(Common::Event &event) {
 		}
 	}
 
-	lockMutex(_event_queue_lock);
+	if (_event_queue.empty())
+		drainEventRing();
 
 	if (_queuedEventTime && (getMillis() > _queuedEventTime)) {
 		event = _queuedEvent;
 		_queuedEventTime = 0;
-		unlockMutex(_event_queue_lock);
+		recordInputLatency(_queuedEventSourceType, _queuedEventSourceTime);
 		return true;
 	}
 
-	if (_event_queue.empty()) {
-		unlockMutex(_event_queue_lock);
+	if (_event_queue.empty())
 		return false;
-	}
 
-	event = _event_queue.pop();
+	int type;
+	uint32 time;
 
-	unlockMutex(_event_queue_lock);
+	event = _event_queue.pop(type, time);
+	recordInputLatency(type, time);
 
 	if (event.type == Common::EVENT_MOUSEMOVE) {
 		const Common::Point &m = getEventManager()->getMousePos();
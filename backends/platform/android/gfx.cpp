@@ -174,7 +174,6 @@ void OSystem_Android::initSurface() {
 
 	assert(!JNI::haveSurface());
 
-	_screen_changeid = JNI::surface_changeid;
 	_egl_surface_width = JNI::egl_surface_width;
 	_egl_surface_height = JNI::egl_surface_height;
 
@@ -182,19 +181,42 @@ void OSystem_Android::initSurface() {
 
 	JNI::initSurface();
 
+	const int generation = JNI::getEglContextGeneration();
+	const bool kept = _gl_objects_kept &&
+						generation == _egl_context_generation;
+
+	_gl_objects_kept = false;
+	_egl_context_generation = generation;
+
+	if (kept) {
+		LOGD("reusing the textures of the preserved context");
+
+		// only the overlay depends on the surface size
+		if (_overlay_texture && _overlay_texture->getDrawRect() !=
+				Common::Rect(_egl_surface_width, _egl_surface_height))
+			initOverlay();
+
+		return;
+	}
+
 	// Initialize OpenGLES context.
 	GLESTexture::initGLExtensions();
 
+	// the GL textures went with the old context, upload everything anew
+	_game_layer.forget();
+	_overlay_layer.forget();
+	_mouse_layer.forget();
+
 	if (_game_texture)
-		_game_texture->reinit();
+		_game_texture->setDirty();
 
 	if (_overlay_texture) {
-		_overlay_texture->reinit();
+		_overlay_texture->setDirty();
 		initOverlay();
 	}
 
 	if (_mouse_texture)
-		_mouse_texture->reinit();
+		_mouse_texture->setDirty();
 }
 
 void OSystem_Android::deinitSurface() {
@@ -203,23 +225,41 @@ void OSystem_Android::deinitSurface() {
 
 	LOGD("deinitializing surface");
 
-	_screen_changeid = JNI::surface_changeid;
 	_egl_surface_width = 0;
 	_egl_surface_height = 0;
 
-	// release texture resources
-	if (_game_texture)
-		_game_texture->release();
+	// the context stays current on a pbuffer, see initSurface()
+	if (_egl_preserve_context) {
+		_gl_objects_kept = true;
 
-	if (_overlay_texture)
-		_overlay_texture->release();
+		JNI::deinitSurface();
 
-	if (_mouse_texture)
-		_mouse_texture->release();
+		return;
+	}
+
+	// release texture resources
+	_game_layer.release();
+	_overlay_layer.release();
+	_mouse_layer.release();
 
 	JNI::deinitSurface();
 }
 
+void OSystem_Android::attachSurface() {
+	initSurface();
+	initViewport();
+}
+
+void OSystem_Android::reattachSurface() {
+	if (_egl_preserve_context)
+		deinitSurface();
+	else
+		JNI::deinitSurface();
+
+	initSurface();
+	initViewport();
+}
+
 void OSystem_Android::initViewport() {
 	LOGD("initializing viewport");
 
@@ -308,21 +348,14 @@ void OSystem_Android::clearScreen(FixupType type, byte count) {
 	bool sm = _show_mouse;
 	_show_mouse = false;
 
-	GLCALL(glDisable(GL_SCISSOR_TEST));
-
 	for (byte i = 0; i < count; ++i) {
-		// clear screen
-		GLCALL(glClearColorx(0, 0, 0, 1 << 16));
-		GLCALL(glClear(GL_COLOR_BUFFER_BIT));
+		// cleared with the next frame
+		_clear_screen = true;
 
 		switch (type) {
 		case kClear:
 			break;
 
-		case kClearSwap:
-			JNI::swapBuffers();
-			break;
-
 		case kClearUpdate:
 			_force_redraw = true;
 			updateScreen();
@@ -330,9 +363,6 @@ void OSystem_Android::clearScreen(FixupType type, byte count) {
 		}
 	}
 
-	if (!_show_overlay)
-		GLCALL(glEnable(GL_SCISSOR_TEST));
-
 	_show_mouse = sm;
 	_force_redraw = true;
 }
@@ -372,8 +402,6 @@ void OSystem_Android::updateScreenRect() {
 		}
 	}
 
-	glScissor(rect.left, rect.top, rect.width(), rect.height());
-
 	_game_texture->setDrawRect(rect);
 }
 
@@ -447,106 +475,340 @@ void OSystem_Android::updateScreen() {
 			!_mouse_texture->dirty())
 		return;
 
+	const int64 start = AndroidHistogram::uptimeNanos();
+
+	// The last frame still waits for this vsync, another one would just
+	// replace it or block in eglSwapBuffers(). It's shown with the next
+	// one instead, see pollEvent()
+	if (holdFrame(start)) {
+		_present_pending = true;
+
+		lockMutex(_frame_lock);
+		++_frames_skipped;
+		unlockMutex(_frame_lock);
+
+		return;
+	}
+
+	_present_pending = false;
 	_force_redraw = false;
 
+	if (!_render_thread_started) {
+		prepareFrame(_frames[0], start, false);
+		drawFrame(_frames[0]);
+
+		return;
+	}
+
+	pthread_mutex_lock(&_render_mutex);
+
+	// one frame drawn, one prepared
+	while (_frames_submitted - _frames_drawn > 1)
+		pthread_cond_wait(&_render_cond, &_render_mutex);
+
+	pthread_mutex_unlock(&_render_mutex);
+
+	// the render thread doesn't touch the slot after the one it draws
+	prepareFrame(_frames[_frames_submitted % 2], start, true);
+
+	pthread_mutex_lock(&_render_mutex);
+	++_frames_submitted;
+	pthread_cond_broadcast(&_render_cond);
+	pthread_mutex_unlock(&_render_mutex);
+}
+
+bool OSystem_Android::holdFrame(int64 now) {
+	const int64 vsync = nextVsync(now);
+
+	lockMutex(_frame_lock);
+
+	const bool hold = vsync && vsync == _present_vsync;
+
+	unlockMutex(_frame_lock);
+
+	return hold;
+}
+
+void OSystem_Android::prepareFrame(AndroidFrame &f, int64 start, bool copy) {
+	f.start = start;
+	f.surface_width = _egl_surface_width;
+	f.surface_height = _egl_surface_height;
+
 	// clear pointer leftovers in dead areas
 	// also, HTC's GLES drivers are made of fail and don't preserve the buffer
 	// ( http://www.khronos.org/registry/egl/specs/EGLTechNote0001.html )
-	if ((_show_overlay || _htc_fail) && !_fullscreen)
-		clearScreen(kClear);
+	// A shake or a focus rectangle beyond the game are the only cases
+	// where _game_texture doesn't cover the entire screen.
+	f.clear = _clear_screen ||
+				((_show_overlay || _htc_fail) && !_fullscreen) ||
+				_shake_offset != 0 ||
+				(!_focus_rect.isEmpty() &&
+				!Common::Rect(_game_texture->width(),
+								_game_texture->height()).contains(_focus_rect));
 
-	GLCALL(glPushMatrix());
+	_clear_screen = false;
+
+	f.game_rect = _game_texture->getDrawRect();
+	f.overlay_rect = _overlay_texture->getDrawRect();
+	f.shake_offset = _shake_offset;
+	f.focus_rect = _focus_rect;
+
+	f.show_overlay = _show_overlay;
+	f.show_mouse = _show_mouse && !_mouse_texture->isEmpty();
+
+	const int64 prepare_start = AndroidHistogram::uptimeNanos();
+
+	_game_texture->prepareFrame(f.game, copy);
+
+	if (f.show_overlay)
+		_overlay_texture->prepareFrame(f.overlay, copy);
 
-	if (_shake_offset != 0 ||
-			(!_focus_rect.isEmpty() &&
-			!Common::Rect(_game_texture->width(),
-							_game_texture->height()).contains(_focus_rect))) {
-		// These are the only cases where _game_texture doesn't
-		// cover the entire screen.
-		clearScreen(kClear);
+	if (f.show_mouse) {
+		// the layer holds what another texture looked like
+		if (_mouse_layer_texture != _mouse_texture) {
+			_mouse_layer_texture = _mouse_texture;
+			_mouse_layer_texture->setDirty();
+		}
+
+		_mouse_texture->prepareFrame(f.cursor, copy);
 
-		// Move everything up by _shake_offset (game) pixels
-		GLCALL(glTranslatex(0, -_shake_offset << 16, 0));
+		f.mouse = getEventManager()->getMousePos();
+		f.mouse_hotspot = _mouse_hotspot;
+
+		// ugly, but the modern theme sets a wacko factor, only god knows why
+		f.mouse_scale = f.show_overlay ? 1 : _mouse_targetscale;
 	}
 
+	f.prepare_nanos = AndroidHistogram::uptimeNanos() - prepare_start;
+}
+
+void OSystem_Android::drawFrame(AndroidFrame &f) {
+	if (!JNI::haveSurface())
+		return;
+
+	const int64 start = AndroidHistogram::uptimeNanos();
+
+	if (f.clear) {
+		GLCALL(glDisable(GL_SCISSOR_TEST));
+		GLCALL(glClearColorx(0, 0, 0, 1 << 16));
+		GLCALL(glClear(GL_COLOR_BUFFER_BIT));
+	}
+
+	if (f.show_overlay) {
+		GLCALL(glDisable(GL_SCISSOR_TEST));
+	} else {
+		GLCALL(glScissor(f.game_rect.left, f.game_rect.top,
+							f.game_rect.width(), f.game_rect.height()));
+		GLCALL(glEnable(GL_SCISSOR_TEST));
+	}
+
+	GLCALL(glPushMatrix());
+
+	// Move everything up by _shake_offset (game) pixels
+	if (f.shake_offset != 0)
+		GLCALL(glTranslatex(0, -f.shake_offset << 16, 0));
+
 // TODO this doesnt work on those sucky drivers, do it differently
-//	if (_show_overlay)
+//	if (f.show_overlay)
 //		GLCALL(glColor4ub(0x9f, 0x9f, 0x9f, 0x9f));
 
-	if (_focus_rect.isEmpty()) {
-		_game_texture->drawTextureRect();
+	if (f.focus_rect.isEmpty()) {
+		_game_layer.draw(f.game, f.game_rect.left, f.game_rect.top,
+							f.game_rect.width(), f.game_rect.height());
 	} else {
 		GLCALL(glPushMatrix());
 
-		GLCALL(glScalex(xdiv(_egl_surface_width, _focus_rect.width()),
-						xdiv(_egl_surface_height, _focus_rect.height()),
+		GLCALL(glScalex(xdiv(f.surface_width, f.focus_rect.width()),
+						xdiv(f.surface_height, f.focus_rect.height()),
 						1 << 16));
-		GLCALL(glTranslatex(-_focus_rect.left << 16,
-							-_focus_rect.top << 16, 0));
-		GLCALL(glScalex(xdiv(_game_texture->width(), _egl_surface_width),
-						xdiv(_game_texture->height(), _egl_surface_height),
+		GLCALL(glTranslatex(-f.focus_rect.left << 16,
+							-f.focus_rect.top << 16, 0));
+		GLCALL(glScalex(xdiv(f.game.width, f.surface_width),
+						xdiv(f.game.height, f.surface_height),
 						1 << 16));
 
-		_game_texture->drawTextureRect();
+		_game_layer.draw(f.game, f.game_rect.left, f.game_rect.top,
+							f.game_rect.width(), f.game_rect.height());
 
 		GLCALL(glPopMatrix());
 	}
 
-	int cs = _mouse_targetscale;
-
-	if (_show_overlay) {
+	if (f.show_overlay) {
 // TODO see above
 //		GLCALL(glColor4ub(0xff, 0xff, 0xff, 0xff));
 
-		// ugly, but the modern theme sets a wacko factor, only god knows why
-		cs = 1;
-
-		GLCALL(_overlay_texture->drawTextureRect());
+		_overlay_layer.draw(f.overlay, f.overlay_rect.left,
+							f.overlay_rect.top, f.overlay_rect.width(),
+							f.overlay_rect.height());
 	}
 
-	if (_show_mouse && !_mouse_texture->isEmpty()) {
+	if (f.show_mouse) {
 		GLCALL(glPushMatrix());
 
-		const Common::Point &mouse = getEventManager()->getMousePos();
+		const int cs = f.mouse_scale;
 
 		// Scale up ScummVM -> OpenGL (pixel) coordinates
-		if (_show_overlay) {
-			GLCALL(glScalex(xdiv(_egl_surface_width,
-									_overlay_texture->width()),
-							xdiv(_egl_surface_height,
-									_overlay_texture->height()),
+		if (f.show_overlay) {
+			GLCALL(glScalex(xdiv(f.surface_width, f.overlay.width),
+							xdiv(f.surface_height, f.overlay.height),
 							1 << 16));
 		} else {
-			const Common::Rect &r = _game_texture->getDrawRect();
+			const Common::Rect &r = f.game_rect;
 
 			GLCALL(glTranslatex(r.left << 16,
 								r.top << 16,
 								0));
-			GLCALL(glScalex(xdiv(r.width(), _game_texture->width()),
-							xdiv(r.height(), _game_texture->height()),
+			GLCALL(glScalex(xdiv(r.width(), f.game.width),
+							xdiv(r.height(), f.game.height),
 							1 << 16));
 		}
 
-		GLCALL(glTranslatex((-_mouse_hotspot.x * cs) << 16,
-							(-_mouse_hotspot.y * cs) << 16,
+		GLCALL(glTranslatex((-f.mouse_hotspot.x * cs) << 16,
+							(-f.mouse_hotspot.y * cs) << 16,
 							0));
 
 		// Note the extra half texel to position the mouse in
 		// the middle of the x,y square:
-		GLCALL(glTranslatex((mouse.x << 16) | 1 << 15,
-							(mouse.y << 16) | 1 << 15, 0));
+		GLCALL(glTranslatex((f.mouse.x << 16) | 1 << 15,
+							(f.mouse.y << 16) | 1 << 15, 0));
 
 		GLCALL(glScalex(cs << 16, cs << 16, 1 << 16));
 
-		_mouse_texture->drawTextureOrigin();
+		_mouse_layer.draw(f.cursor, 0, 0, f.cursor.width, f.cursor.height);
 
 		GLCALL(glPopMatrix());
 	}
 
 	GLCALL(glPopMatrix());
 
-	if (!JNI::swapBuffers())
+	const int64 drawn = AndroidHistogram::uptimeNanos();
+
+	if (!JNI::swapBuffers()) {
 		LOGW("swapBuffers failed: 0x%x", glGetError());
+
+		// rebuild everything with the next pollEvent()
+		if (JNI::isEglContextLost()) {
+			lockMutex(_frame_lock);
+			_egl_context_lost = true;
+			unlockMutex(_frame_lock);
+		}
+	}
+
+	const int64 swapped = AndroidHistogram::uptimeNanos();
+
+	// queued for the first vsync after the swap returned
+	const int64 vsync = nextVsync(swapped);
+
+	lockMutex(_frame_lock);
+	_present_vsync = vsync;
+	unlockMutex(_frame_lock);
+
+	logFrame(f.start, swapped, vsync);
+	addFrameStats(start, drawn, swapped, f.prepare_nanos);
+}
+
+void OSystem_Android::setVsync(int64 time, int64 period) {
+	lockMutex(_frame_lock);
+
+	_vsync_time = time;
+	_vsync_period = period;
+
+	unlockMutex(_frame_lock);
+}
+
+int64 OSystem_Android::nextVsync(int64 now) {
+	lockMutex(_frame_lock);
+
+	const int64 time = _vsync_time;
+	const int64 period = _vsync_period;
+
+	unlockMutex(_frame_lock);
+
+	if (!period)
+		return 0;
+
+	if (now < time)
+		return time;
+
+	// vsync keeps ticking between the published ones
+	return time + ((now - time) / period + 1) * period;
+}
+
+void OSystem_Android::logFrame(int64 start, int64 swapped, int64 vsync) {
+	lockMutex(_frame_lock);
+
+	AndroidFrameRecord &r = _frame_log[_frame_count % kFrameLogSize];
+
+	r.number = _frame_count++;
+	r.start = start;
+	r.swapped = swapped;
+	r.vsync = vsync;
+	r.skipped = _frames_skipped;
+
+	_frames_skipped = 0;
+
+	unlockMutex(_frame_lock);
+}
+
+void OSystem_Android::addFrameStats(int64 start, int64 drawn,
+										int64 swapped, int64 prepare_nanos) {
+	uint32 upload_bytes;
+	uint32 upload_bounding_bytes;
+	int64 upload_nanos;
+	GLESTextureLayer::takeUploadStats(upload_bytes, upload_bounding_bytes,
+										upload_nanos);
+
+	lockMutex(_frame_lock);
+
+	_frame_stats[kFrameStatUploadBytes].add(upload_bytes);
+	_frame_stats[kFrameStatUploadBoundingBytes].add(upload_bounding_bytes);
+	_frame_stats[kFrameStatUpload].add((prepare_nanos + upload_nanos) /
+										1000);
+	_frame_stats[kFrameStatDraw].add((drawn - start - upload_nanos) / 1000);
+	_frame_stats[kFrameStatSwap].add((swapped - drawn) / 1000);
+
+	if (_frame_last_start)
+		_frame_stats[kFrameStatInterval].add((start - _frame_last_start) /
+												1000);
+
+	_frame_last_start = start;
+
+	unlockMutex(_frame_lock);
+}
+
+bool OSystem_Android::getFrameStats(int stage, int32 *stats) {
+	if (stage < 0 || stage >= kFrameStatTypes)
+		return false;
+
+	lockMutex(_frame_lock);
+	_frame_stats[stage].snapshot(stats);
+	unlockMutex(_frame_lock);
+
+	return true;
+}
+
+void OSystem_Android::resetFrameStats() {
+	lockMutex(_frame_lock);
+
+	for (int i = 0; i < kFrameStatTypes; ++i)
+		_frame_stats[i].reset();
+
+	_frame_last_start = 0;
+
+	unlockMutex(_frame_lock);
+}
+
+uint OSystem_Android::getFrameLog(AndroidFrameRecord *log, uint max) {
+	lockMutex(_frame_lock);
+
+	const uint count = MIN<uint>(MIN<uint>(_frame_count, kFrameLogSize), max);
+
+	for (uint i = 0; i < count; ++i)
+		log[i] = _frame_log[(_frame_count - count + i) % kFrameLogSize];
+
+	unlockMutex(_frame_lock);
+
+	return count;
 }
 
 Graphics::Surface *OSystem_Android::lockScreen() {
@@ -612,8 +874,6 @@ void OSystem_Android::showOverlay() {
 	updateEventScale();
 
 	warpMouse(_overlay_texture->width() / 2, _overlay_texture->height() / 2);
-
-	GLCALL(glDisable(GL_SCISSOR_TEST));
 }
 
 void OSystem_Android::hideOverlay() {
@@ -627,8 +887,6 @@ void OSystem_Android::hideOverlay() {
 
 	// double buffered, flip twice
 	clearScreen(kClearUpdate, 2);
-
-	GLCALL(glEnable(GL_SCISSOR_TEST));
 }
 
 void OSystem_Android::clearOverlay() {
@@ -0,0 +1,172 @@
+/* ScummVM - Graphic Adventure Engine
+ *
+ * ScummVM is the legal property of its developers, whose names
+ * are too numerous to list here. Please refer to the COPYRIGHT
+ * file distributed with this source distribution.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ */
+
+#ifndef _ANDROID_HISTOGRAM_H_
+#define _ANDROID_HISTOGRAM_H_
+
+#if defined(__ANDROID__)
+
+#include <time.h>
+
+#include "common/scummsys.h"
+#include "common/util.h"
+
+// Fixed size log-linear histogram for the backend's instrumentation.
+// Values below kLinear get a bucket each, every power of two above that
+// is split into kSubBuckets, so percentiles are off by 12.5% at most.
+// Only one thread may add, others may read a (slightly torn) snapshot.
+class AndroidHistogram {
+public:
+	// layout of the snapshot handed to java, see ScummVM.java
+	enum {
+		kStatCount = 0,
+		kStatMin,
+		kStatMax,
+		kStatMean,
+		kStatP50,
+		kStatP90,
+		kStatP99,
+		kStatSize
+	};
+
+	AndroidHistogram() {
+		reset();
+	}
+
+	void reset() {
+		memset(_buckets, 0, sizeof(_buckets));
+		_count = 0;
+		_sum = 0;
+		_min = 0xffffffff;
+		_max = 0;
+	}
+
+	void add(uint32 v) {
+		_buckets[bucket(v)]++;
+		_count++;
+		_sum += v;
+
+		if (v < _min)
+			_min = v;
+		if (v > _max)
+			_max = v;
+	}
+
+	uint32 count() const {
+		return _count;
+	}
+
+	// upper bound of the bucket holding the given percentile
+	uint32 percentile(uint p) const {
+		if (!_count)
+			return 0;
+
+		const uint64 target = ((uint64)_count * p + 99) / 100;
+		uint64 seen = 0;
+
+		for (uint i = 0; i < kBuckets; ++i) {
+			seen += _buckets[i];
+
+			if (seen >= target)
+				return MIN(upperBound(i), _max);
+		}
+
+		return _max;
+	}
+
+	void snapshot(int32 *stats) const {
+		stats[kStatCount] = _count;
+		stats[kStatMin] = _count ? _min : 0;
+		stats[kStatMax] = _max;
+		stats[kStatMean] = _count ? (int32)(_sum / _count) : 0;
+		stats[kStatP50] = percentile(50);
+		stats[kStatP90] = percentile(90);
+		stats[kStatP99] = percentile(99);
+	}
+
+	// CLOCK_MONOTONIC, the same clock SystemClock.uptimeMillis() uses
+	static uint32 uptimeMillis() {
+		struct timespec ts;
+
+		clock_gettime(CLOCK_MONOTONIC, &ts);
+
+		return (uint32)((int64)ts.tv_sec * 1000 + ts.tv_nsec / 1000000);
+	}
+
+	static uint32 uptimeMicros() {
+		struct timespec ts;
+
+		clock_gettime(CLOCK_MONOTONIC, &ts);
+
+		return (uint32)((int64)ts.tv_sec * 1000000 + ts.tv_nsec / 1000);
+	}
+
+	// the clock of System.nanoTime() and AudioTimestamp.nanoTime
+	static int64 uptimeNanos() {
+		struct timespec ts;
+
+		clock_gettime(CLOCK_MONOTONIC, &ts);
+
+		return (int64)ts.tv_sec * 1000000000LL + ts.tv_nsec;
+	}
+
+private:
+	static const uint kLinear = 16;
+	static const uint kSubBits = 3;
+	static const uint kSubBuckets = 1 << kSubBits;
+	// 28 octaves above kLinear for the whole uint32 range
+	static const uint kBuckets = kLinear + 28 * kSubBuckets;
+
+	static uint bucket(uint32 v) {
+		if (v < kLinear)
+			return v;
+
+		uint msb = 31;
+		while (!(v & (1u << msb)))
+			--msb;
+
+		const uint shift = msb - kSubBits;
+
+		return kLinear + (msb - 4) * kSubBuckets +
+				((v >> shift) - kSubBuckets);
+	}
+
+	static uint32 upperBound(uint i) {
+		if (i < kLinear)
+			return i;
+
+		const uint msb = 4 + (i - kLinear) / kSubBuckets;
+		const uint sub = kSubBuckets + (i - kLinear) % kSubBuckets;
+		const uint shift = msb - kSubBits;
+
+		return (uint32)((((uint64)sub + 1) << shift) - 1);
+	}
+
+	uint32 _buckets[kBuckets];
+	uint32 _count;
+	uint64 _sum;
+	uint32 _min;
+	uint32 _max;
+};
+
+#endif
+#endif
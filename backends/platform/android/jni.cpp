@@ -65,6 +65,7 @@ jobject JNI::_jobj_egl_surface = 0;
 
 Common::Archive *JNI::_asset_archive = 0;
 OSystem_Android *JNI::_system = 0;
+void *JNI::_event_ring = 0;
 
 bool JNI::pause = false;
 sem_t JNI::pause_sem = { 0 };
@@ -82,6 +83,8 @@ jmethodID JNI::_MID_getSysArchives = 0;
 jmethodID JNI::_MID_getPluginDirectories = 0;
 jmethodID JNI::_MID_initSurface = 0;
 jmethodID JNI::_MID_deinitSurface = 0;
+jmethodID JNI::_MID_getEglContextGeneration = 0;
+jmethodID JNI::_MID_isEglContextLost = 0;
 
 jmethodID JNI::_MID_EGL10_eglSwapBuffers = 0;
 
@@ -90,12 +93,25 @@ jmethodID JNI::_MID_AudioTrack_pause = 0;
 jmethodID JNI::_MID_AudioTrack_play = 0;
 jmethodID JNI::_MID_AudioTrack_stop = 0;
 jmethodID JNI::_MID_AudioTrack_write = 0;
+jmethodID JNI::_MID_AudioTrack_getPlaybackHeadPosition = 0;
+jmethodID JNI::_MID_AudioTrack_getUnderrunCount = 0;
+jmethodID JNI::_MID_AudioTrack_getTimestamp = 0;
+jfieldID JNI::_FID_AudioTimestamp_framePosition = 0;
+jfieldID JNI::_FID_AudioTimestamp_nanoTime = 0;
+jmethodID JNI::_MID_AudioTrack_writeBuffer = 0;
+jmethodID JNI::_MID_Buffer_clear = 0;
+
+jobject JNI::_jobj_audio_buffer = 0;
+jobject JNI::_jobj_audio_timestamp = 0;
+byte *JNI::_audio_buffer = 0;
 
 const JNINativeMethod JNI::_natives[] = {
 	{ "create", "(Landroid/content/res/AssetManager;"
 				"Ljavax/microedition/khronos/egl/EGL10;"
 				"Ljavax/microedition/khronos/egl/EGLDisplay;"
-				"Landroid/media/AudioTrack;II)V",
+				"Landroid/media/AudioTrack;II"
+				"Ljava/nio/ByteBuffer;"
+				"Ljava/nio/ByteBuffer;)V",
 		(void *)JNI::create },
 	{ "destroy", "()V",
 		(void *)JNI::destroy },
@@ -103,10 +119,42 @@ const JNINativeMethod JNI::_natives[] = {
 		(void *)JNI::setSurface },
 	{ "main", "([Ljava/lang/String;)I",
 		(void *)JNI::main },
-	{ "pushEvent", "(IIIIII)V",
-		(void *)JNI::pushEvent },
+	{ "publishEvents", "(I)I",
+		(void *)JNI::publishEvents },
+	{ "getInputLatency", "(I[I)Z",
+		(void *)JNI::getInputLatency },
+	{ "resetInputLatency", "()V",
+		(void *)JNI::resetInputLatency },
+	{ "setVsync", "(JJ)V",
+		(void *)JNI::setVsync },
+	{ "getFrameLog", "([J)I",
+		(void *)JNI::getFrameLog },
+	{ "getFrameStats", "(I[I)Z",
+		(void *)JNI::getFrameStats },
+	{ "resetFrameStats", "()V",
+		(void *)JNI::resetFrameStats },
 	{ "enableZoning", "(Z)V",
 		(void *)JNI::enableZoning },
+	{ "setAudioLatencyBounds", "(II)V",
+		(void *)JNI::setAudioLatencyBounds },
+	{ "getAudioLatency", "()I",
+		(void *)JNI::getAudioLatency },
+	{ "getAudioOutputLatency", "([I)I",
+		(void *)JNI::getAudioOutputLatency },
+	{ "setAudioFastResume", "(Z)V",
+		(void *)JNI::setAudioFastResume },
+	{ "getAudioResumeLatency", "([I)I",
+		(void *)JNI::getAudioResumeLatency },
+	{ "setPreserveEglContext", "(Z)V",
+		(void *)JNI::setPreserveEglContext },
+	{ "setRenderThread", "(Z)V",
+		(void *)JNI::setRenderThread },
+	{ "setDirtyRegions", "(II)V",
+		(void *)JNI::setDirtyRegions },
+	{ "setAudioBackend", "(II)V",
+		(void *)JNI::setAudioBackend },
+	{ "setAudioRender", "(Ljava/lang/String;Ljava/lang/String;I)V",
+		(void *)JNI::setAudioRender },
 	{ "setPause", "(Z)V",
 		(void *)JNI::setPause }
 };
@@ -368,6 +416,18 @@ void JNI::deinitSurface() {
 	_jobj_egl_surface = 0;
 }
 
+int JNI::getEglContextGeneration() {
+	JNIEnv *env = JNI::getEnv();
+
+	return env->CallIntMethod(_jobj, _MID_getEglContextGeneration);
+}
+
+bool JNI::isEglContextLost() {
+	JNIEnv *env = JNI::getEnv();
+
+	return env->CallBooleanMethod(_jobj, _MID_isEglContextLost);
+}
+
 void JNI::setAudioPause() {
 	JNIEnv *env = JNI::getEnv();
 
@@ -416,11 +476,61 @@ void JNI::setAudioStop() {
 	}
 }
 
+// pause without flushing, the track keeps what's queued for play()
+void JNI::setAudioHold() {
+	JNIEnv *env = JNI::getEnv();
+
+	env->CallVoidMethod(_jobj_audio_track, _MID_AudioTrack_pause);
+
+	if (env->ExceptionCheck()) {
+		LOGE("Error setting AudioTrack: pause");
+
+		env->ExceptionDescribe();
+		env->ExceptionClear();
+	}
+}
+
+void JNI::rewindAudioBuffer(JNIEnv *env) {
+	jobject res = env->CallObjectMethod(_jobj_audio_buffer, _MID_Buffer_clear);
+
+	if (env->ExceptionCheck()) {
+		LOGE("Error rewinding the audio buffer");
+
+		env->ExceptionDescribe();
+		env->ExceptionClear();
+	}
+
+	// the audio thread never returns to java, don't pile up local refs
+	env->DeleteLocalRef(res);
+}
+
+// The frame being presented at nanos (CLOCK_MONOTONIC), from
+// AudioTrack.getTimestamp() (API 19). Without a timestamp this returns
+// false and frames is the playback head, which is roughly now.
+bool JNI::getAudioTimestamp(JNIEnv *env, uint32 &frames, int64 &nanos) {
+	if (_MID_AudioTrack_getTimestamp &&
+			env->CallBooleanMethod(_jobj_audio_track,
+									_MID_AudioTrack_getTimestamp,
+									_jobj_audio_timestamp)) {
+		frames = (uint32)env->GetLongField(_jobj_audio_timestamp,
+									_FID_AudioTimestamp_framePosition);
+		nanos = env->GetLongField(_jobj_audio_timestamp,
+									_FID_AudioTimestamp_nanoTime);
+
+		return true;
+	}
+
+	frames = getAudioHead(env);
+
+	return false;
+}
+
 // natives for the dark side
 
 void JNI::create(JNIEnv *env, jobject self, jobject asset_manager,
 				jobject egl, jobject egl_display,
-				jobject at, jint audio_sample_rate, jint audio_buffer_size) {
+				jobject at, jint audio_sample_rate, jint audio_buffer_size,
+				jobject audio_buffer, jobject event_ring) {
 	LOGI(gScummVMFullVersion);
 
 	assert(!_system);
@@ -435,6 +545,20 @@ void JNI::create(JNIEnv *env, jobject self, jobject asset_manager,
 	_system = new OSystem_Android(audio_sample_rate, audio_buffer_size);
 	assert(_system);
 
+	// the buffer is owned by the java peer, which outlives _system
+	void *ring = env->GetDirectBufferAddress(event_ring);
+	jlong ring_size = env->GetDirectBufferCapacity(event_ring);
+
+	if (!ring || ring_size <= OSystem_Android::kEventRingHeaderSize) {
+		throwRuntimeException(env, "Invalid event ring");
+		return;
+	}
+
+	_event_ring = ring;
+	_system->setEventRing(ring, (ring_size -
+								OSystem_Android::kEventRingHeaderSize) /
+								(OSystem_Android::kEventRecordSize * 4));
+
 	// weak global ref to allow class to be unloaded
 	// ... except dalvik implements NewWeakGlobalRef only on froyo
 	//_jobj = env->NewWeakGlobalRef(self);
@@ -457,6 +581,8 @@ void JNI::create(JNIEnv *env, jobject self, jobject asset_manager,
 	FIND_METHOD(, getPluginDirectories, "()[Ljava/lang/String;");
 	FIND_METHOD(, initSurface, "()Ljavax/microedition/khronos/egl/EGLSurface;");
 	FIND_METHOD(, deinitSurface, "()V");
+	FIND_METHOD(, getEglContextGeneration, "()I");
+	FIND_METHOD(, isEglContextLost, "()Z");
 
 	_jobj_egl = env->NewGlobalRef(egl);
 	_jobj_egl_display = env->NewGlobalRef(egl_display);
@@ -469,6 +595,12 @@ void JNI::create(JNIEnv *env, jobject self, jobject asset_manager,
 
 	_jobj_audio_track = env->NewGlobalRef(at);
 
+	// there's no track when rendering offline, see setAudioRender()
+	if (!_jobj_audio_track) {
+		g_system = _system;
+		return;
+	}
+
 	cls = env->GetObjectClass(_jobj_audio_track);
 
 	FIND_METHOD(AudioTrack_, flush, "()V");
@@ -476,6 +608,75 @@ void JNI::create(JNIEnv *env, jobject self, jobject asset_manager,
 	FIND_METHOD(AudioTrack_, play, "()V");
 	FIND_METHOD(AudioTrack_, stop, "()V");
 	FIND_METHOD(AudioTrack_, write, "([BII)I");
+	FIND_METHOD(AudioTrack_, getPlaybackHeadPosition, "()I");
+
+	// optional, only used for adaptive buffering
+	_MID_AudioTrack_getUnderrunCount =
+		env->GetMethodID(cls, "getUnderrunCount", "()I");
+
+	if (!_MID_AudioTrack_getUnderrunCount)
+		env->ExceptionClear();
+
+	// optional, the audio clock falls back to the playback head
+	_MID_AudioTrack_getTimestamp =
+		env->GetMethodID(cls, "getTimestamp",
+							"(Landroid/media/AudioTimestamp;)Z");
+
+	if (!_MID_AudioTrack_getTimestamp) {
+		env->ExceptionClear();
+	} else {
+		jclass ts_cls = env->FindClass("android/media/AudioTimestamp");
+		jmethodID ts_init = 0;
+
+		if (ts_cls) {
+			ts_init = env->GetMethodID(ts_cls, "<init>", "()V");
+			_FID_AudioTimestamp_framePosition =
+				env->GetFieldID(ts_cls, "framePosition", "J");
+			_FID_AudioTimestamp_nanoTime =
+				env->GetFieldID(ts_cls, "nanoTime", "J");
+		}
+
+		jobject ts = 0;
+
+		if (ts_init && _FID_AudioTimestamp_framePosition &&
+				_FID_AudioTimestamp_nanoTime)
+			ts = env->NewObject(ts_cls, ts_init);
+
+		if (ts) {
+			_jobj_audio_timestamp = env->NewGlobalRef(ts);
+			env->DeleteLocalRef(ts);
+		} else {
+			env->ExceptionClear();
+			_MID_AudioTrack_getTimestamp = 0;
+		}
+	}
+
+	// Mix straight into the direct buffer and write that, where the track
+	// takes ByteBuffers (API 21). Otherwise the audio thread falls back
+	// to its own byte array.
+	_MID_AudioTrack_writeBuffer =
+		env->GetMethodID(cls, "write", "(Ljava/nio/ByteBuffer;II)I");
+
+	if (!_MID_AudioTrack_writeBuffer) {
+		env->ExceptionClear();
+	} else if (env->GetDirectBufferCapacity(audio_buffer) <
+				audio_buffer_size) {
+		LOGW("audio buffer too small, not using it");
+		_MID_AudioTrack_writeBuffer = 0;
+	} else {
+		_jobj_audio_buffer = env->NewGlobalRef(audio_buffer);
+		_audio_buffer = (byte *)env->GetDirectBufferAddress(audio_buffer);
+
+		cls = env->FindClass("java/nio/Buffer");
+		_MID_Buffer_clear = env->GetMethodID(cls, "clear",
+												"()Ljava/nio/Buffer;");
+
+		if (!_audio_buffer || !_MID_Buffer_clear) {
+			env->ExceptionClear();
+			_MID_AudioTrack_writeBuffer = 0;
+			_audio_buffer = 0;
+		}
+	}
 
 #undef FIND_METHOD
 
@@ -498,6 +699,21 @@ void JNI::destroy(JNIEnv *env, jobject self) {
 	JNI::getEnv()->DeleteGlobalRef(_jobj_egl_display);
 	JNI::getEnv()->DeleteGlobalRef(_jobj_egl);
 	JNI::getEnv()->DeleteGlobalRef(_jobj_audio_track);
+
+	if (_jobj_audio_buffer) {
+		JNI::getEnv()->DeleteGlobalRef(_jobj_audio_buffer);
+		_jobj_audio_buffer = 0;
+	}
+
+	_audio_buffer = 0;
+	_MID_AudioTrack_writeBuffer = 0;
+
+	if (_jobj_audio_timestamp) {
+		JNI::getEnv()->DeleteGlobalRef(_jobj_audio_timestamp);
+		_jobj_audio_timestamp = 0;
+	}
+
+	_MID_AudioTrack_getTimestamp = 0;
 	JNI::getEnv()->DeleteGlobalRef(_jobj);
 }
 
@@ -575,17 +791,86 @@ cleanup:
 	return res;
 }
 
-void JNI::pushEvent(JNIEnv *env, jobject self, int type, int arg1, int arg2,
-					int arg3, int arg4, int arg5) {
-	// drop events until we're ready and after we quit
-	if (!_ready_for_events) {
-		LOGW("dropping event");
-		return;
+jint JNI::publishEvents(JNIEnv *env, jobject self, jint head) {
+	// the java side only publishes after create(), but may race destroy()
+	assert(_event_ring);
+
+	return OSystem_Android::publishEvents(_event_ring, head);
+}
+
+jboolean JNI::getInputLatency(JNIEnv *env, jobject self, jint type,
+								jintArray stats) {
+	if (!_system)
+		return false;
+
+	if (env->GetArrayLength(stats) < AndroidHistogram::kStatSize) {
+		LOGE("input latency stats array too small");
+		return false;
 	}
 
-	assert(_system);
+	int32 s[AndroidHistogram::kStatSize];
 
-	_system->pushEvent(type, arg1, arg2, arg3, arg4, arg5);
+	if (!_system->getInputLatency(type, s))
+		return false;
+
+	env->SetIntArrayRegion(stats, 0, AndroidHistogram::kStatSize, (jint *)s);
+
+	return true;
+}
+
+void JNI::resetInputLatency(JNIEnv *env, jobject self) {
+	if (_system)
+		_system->resetInputLatency();
+}
+
+void JNI::setVsync(JNIEnv *env, jobject self, jlong time, jlong period) {
+	if (_system)
+		_system->setVsync(time, period);
+}
+
+jint JNI::getFrameLog(JNIEnv *env, jobject self, jlongArray log) {
+	if (!_system)
+		return 0;
+
+	const uint fields = sizeof(AndroidFrameRecord) / sizeof(int64);
+	const uint max = env->GetArrayLength(log) / fields;
+
+	if (!max)
+		return 0;
+
+	AndroidFrameRecord *frames = new AndroidFrameRecord[max];
+	const uint count = _system->getFrameLog(frames, max);
+
+	env->SetLongArrayRegion(log, 0, count * fields, (jlong *)frames);
+
+	delete[] frames;
+
+	return count;
+}
+
+jboolean JNI::getFrameStats(JNIEnv *env, jobject self, jint stage,
+							jintArray stats) {
+	if (!_system)
+		return false;
+
+	if (env->GetArrayLength(stats) < AndroidHistogram::kStatSize) {
+		LOGE("frame stats array too small");
+		return false;
+	}
+
+	int32 s[AndroidHistogram::kStatSize];
+
+	if (!_system->getFrameStats(stage, s))
+		return false;
+
+	env->SetIntArrayRegion(stats, 0, AndroidHistogram::kStatSize, (jint *)s);
+
+	return true;
+}
+
+void JNI::resetFrameStats(JNIEnv *env, jobject self) {
+	if (_system)
+		_system->resetFrameStats();
 }
 
 void JNI::enableZoning(JNIEnv *env, jobject self, jboolean enable) {
@@ -594,6 +879,107 @@ void JNI::enableZoning(JNIEnv *env, jobject self, jboolean enable) {
 	_system->enableZoning(enable);
 }
 
+void JNI::setAudioLatencyBounds(JNIEnv *env, jobject self, jint min,
+									jint max) {
+	assert(_system);
+
+	if (max > 0)
+		_system->setAudioLatencyBounds(min, max);
+}
+
+void JNI::setAudioBackend(JNIEnv *env, jobject self, jint backend,
+							jint period_frames) {
+	assert(_system);
+
+	_system->setAudioBackend(backend, period_frames);
+}
+
+void JNI::setAudioRender(JNIEnv *env, jobject self, jstring wav,
+							jstring report, jint seconds) {
+	assert(_system);
+
+	const char *w = env->GetStringUTFChars(wav, 0);
+	const char *r = env->GetStringUTFChars(report, 0);
+
+	_system->setAudioRender(w, r, seconds);
+
+	env->ReleaseStringUTFChars(wav, w);
+	env->ReleaseStringUTFChars(report, r);
+}
+
+jint JNI::getAudioLatency(JNIEnv *env, jobject self) {
+	if (!_system)
+		return 0;
+
+	return _system->getAudioLatency();
+}
+
+jint JNI::getAudioOutputLatency(JNIEnv *env, jobject self,
+									jintArray stats) {
+	if (!_system)
+		return 0;
+
+	if (stats) {
+		if (env->GetArrayLength(stats) < AndroidHistogram::kStatSize) {
+			LOGE("audio latency stats array too small");
+		} else {
+			int32 s[AndroidHistogram::kStatSize];
+
+			_system->getAudioOutputLatencyStats(s);
+			env->SetIntArrayRegion(stats, 0, AndroidHistogram::kStatSize,
+									(jint *)s);
+		}
+	}
+
+	return _system->getAudioOutputLatency();
+}
+
+void JNI::setAudioFastResume(JNIEnv *env, jobject self, jboolean enable) {
+	assert(_system);
+
+	_system->setAudioFastResume(enable);
+}
+
+void JNI::setPreserveEglContext(JNIEnv *env, jobject self,
+									jboolean enable) {
+	assert(_system);
+
+	_system->setPreserveEglContext(enable);
+}
+
+void JNI::setRenderThread(JNIEnv *env, jobject self, jboolean enable) {
+	assert(_system);
+
+	_system->setRenderThread(enable);
+}
+
+void JNI::setDirtyRegions(JNIEnv *env, jobject self, jint max_rects,
+							jint slack) {
+	assert(_system);
+
+	_system->setDirtyRegions(max_rects, slack);
+}
+
+jint JNI::getAudioResumeLatency(JNIEnv *env, jobject self,
+									jintArray stats) {
+	if (!_system)
+		return 0;
+
+	if (stats) {
+		if (env->GetArrayLength(stats) < AndroidHistogram::kStatSize) {
+			LOGE("audio resume stats array too small");
+		} else {
+			int32 s[AndroidHistogram::kStatSize];
+
+			_system->getAudioResumeLatencyStats(s);
+			env->SetIntArrayRegion(stats, 0, AndroidHistogram::kStatSize,
+									(jint *)s);
+		}
+	}
+
+	return _system->getAudioResumeLatency();
+}
+
 void JNI::setPause(JNIEnv *env, jobject self, jboolean value) {
 	if (!_system)
 		return;
@@ -611,9 +997,11 @@ void JNI::setPause(JNIEnv *env, jobject self, jboolean value) {
 
 	pause = value;
 
+	_system->pauseAudio(pause);
+
 	if (!pause) {
 		// wake up all threads
-		for (uint i = 0; i < 3; ++i)
+		for (uint i = 0; i < _system->getPausedThreads(); ++i)
 			sem_post(&pause_sem);
 	}
 }
@@ -66,25 +66,40 @@ public:
 	static inline bool swapBuffers();
 	static bool initSurface();
 	static void deinitSurface();
+	static int getEglContextGeneration();
+	static bool isEglContextLost();
 
 	static void setAudioPause();
 	static void setAudioPlay();
 	static void setAudioStop();
+	static void setAudioHold();
 
 	static inline int writeAudio(JNIEnv *env, jbyteArray &data, int offset,
 									int size);
+	static inline uint32 getAudioHead(JNIEnv *env);
+	// the direct buffer to mix into, 0 if the track can't take it
+	static inline byte *getAudioBuffer();
+	static inline int writeAudioBuffer(JNIEnv *env, int size);
+	static void rewindAudioBuffer(JNIEnv *env);
+	static inline int getAudioUnderrunCount(JNIEnv *env);
+	static bool getAudioTimestamp(JNIEnv *env, uint32 &frames, int64 &nanos);
 
 private:
 	static JavaVM *_vm;
 	// back pointer to (java) peer instance
 	static jobject _jobj;
 	static jobject _jobj_audio_track;
+	static jobject _jobj_audio_buffer;
+	static jobject _jobj_audio_timestamp;
+	static byte *_audio_buffer;
 	static jobject _jobj_egl;
 	static jobject _jobj_egl_display;
 	static jobject _jobj_egl_surface;
 
 	static Common::Archive *_asset_archive;
 	static OSystem_Android *_system;
+	// the java peer's event ring, kept after destroy()
+	static void *_event_ring;
 
 	static bool _ready_for_events;
 
@@ -96,6 +111,8 @@ private:
 	static jmethodID _MID_getPluginDirectories;
 	static jmethodID _MID_initSurface;
 	static jmethodID _MID_deinitSurface;
+	static jmethodID _MID_getEglContextGeneration;
+	static jmethodID _MID_isEglContextLost;
 
 	static jmethodID _MID_EGL10_eglSwapBuffers;
 
@@ -104,6 +121,15 @@ private:
 	static jmethodID _MID_AudioTrack_play;
 	static jmethodID _MID_AudioTrack_stop;
 	static jmethodID _MID_AudioTrack_write;
+	static jmethodID _MID_AudioTrack_getPlaybackHeadPosition;
+	// API 24, 0 if not available
+	static jmethodID _MID_AudioTrack_getUnderrunCount;
+	static jmethodID _MID_AudioTrack_getTimestamp;
+	static jfieldID _FID_AudioTimestamp_framePosition;
+	static jfieldID _FID_AudioTimestamp_nanoTime;
+	// API 21, 0 if not available
+	static jmethodID _MID_AudioTrack_writeBuffer;
+	static jmethodID _MID_Buffer_clear;
 
 	static const JNINativeMethod _natives[];
 
@@ -114,15 +140,41 @@ private:
 	static void create(JNIEnv *env, jobject self, jobject asset_manager,
 						jobject egl, jobject egl_display,
 						jobject at, jint audio_sample_rate,
-						jint audio_buffer_size);
+						jint audio_buffer_size, jobject audio_buffer,
+						jobject event_ring);
 	static void destroy(JNIEnv *env, jobject self);
 
 	static void setSurface(JNIEnv *env, jobject self, jint width, jint height);
 	static jint main(JNIEnv *env, jobject self, jobjectArray args);
 
-	static void pushEvent(JNIEnv *env, jobject self, int type, int arg1,
-							int arg2, int arg3, int arg4, int arg5);
+	static jint publishEvents(JNIEnv *env, jobject self, jint head);
+	static jboolean getInputLatency(JNIEnv *env, jobject self, jint type,
+									jintArray stats);
+	static void resetInputLatency(JNIEnv *env, jobject self);
+	static void setVsync(JNIEnv *env, jobject self, jlong time, jlong period);
+	static jint getFrameLog(JNIEnv *env, jobject self, jlongArray log);
+	static jboolean getFrameStats(JNIEnv *env, jobject self, jint stage,
+									jintArray stats);
+	static void resetFrameStats(JNIEnv *env, jobject self);
 	static void enableZoning(JNIEnv *env, jobject self, jboolean enable);
+	static void setAudioLatencyBounds(JNIEnv *env, jobject self, jint min,
+										jint max);
+	static jint getAudioLatency(JNIEnv *env, jobject self);
+	static jint getAudioOutputLatency(JNIEnv *env, jobject self,
+										jintArray stats);
+	static void setAudioFastResume(JNIEnv *env, jobject self,
+									jboolean enable);
+	static void setPreserveEglContext(JNIEnv *env, jobject self,
+										jboolean enable);
+	static void setRenderThread(JNIEnv *env, jobject self, jboolean enable);
+	static void setDirtyRegions(JNIEnv *env, jobject self, jint max_rects,
+								jint slack);
+	static jint getAudioResumeLatency(JNIEnv *env, jobject self,
+										jintArray stats);
+	static void setAudioBackend(JNIEnv *env, jobject self, jint backend,
+								jint period_frames);
+	static void setAudioRender(JNIEnv *env, jobject self, jstring wav,
+								jstring report, jint seconds);
 
 	static void setPause(JNIEnv *env, jobject self, jboolean value);
 };
@@ -143,5 +195,31 @@ inline int JNI::writeAudio(JNIEnv *env, jbyteArray &data, int offset, int size)
 								offset, size);
 }
 
+inline byte *JNI::getAudioBuffer() {
+	return _audio_buffer;
+}
+
+// writes from the buffer's position on, which it advances
+inline int JNI::writeAudioBuffer(JNIEnv *env, int size) {
+	// AudioTrack.WRITE_BLOCKING
+	return env->CallIntMethod(_jobj_audio_track, _MID_AudioTrack_writeBuffer,
+								_jobj_audio_buffer, size, 0);
+}
+
+// in frames, wraps around as an unsigned 32 bit value
+inline uint32 JNI::getAudioHead(JNIEnv *env) {
+	return env->CallIntMethod(_jobj_audio_track,
+								_MID_AudioTrack_getPlaybackHeadPosition);
+}
+
+// -1 if the platform doesn't count them
+inline int JNI::getAudioUnderrunCount(JNIEnv *env) {
+	if (!_MID_AudioTrack_getUnderrunCount)
+		return -1;
+
+	return env->CallIntMethod(_jobj_audio_track,
+								_MID_AudioTrack_getUnderrunCount);
+}
+
 #endif
 #endif
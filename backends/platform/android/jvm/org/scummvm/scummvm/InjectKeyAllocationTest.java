@@ -0,0 +1,90 @@
+package org.scummvm.scummvm;
+
+import android.os.Looper;
+import android.view.KeyEvent;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * injectKey() is on the path of every joystick hat edge and mapped
+ * button, it mustn't allocate.  Injects and flushes keys of each route
+ * (plain, d-pad and gamepad) over and over, and fails if the thread
+ * allocated anything on the way, as counted by the JVM.
+ */
+public class InjectKeyAllocationTest {
+	final private static int WARMUP = 50000;
+	final private static int ITERATIONS = 100000;
+
+	final private static int[] KEYS = {
+		KeyEvent.KEYCODE_A, KeyEvent.KEYCODE_SPACE, KeyEvent.KEYCODE_ENTER,
+		KeyEvent.KEYCODE_ESCAPE, KeyEvent.KEYCODE_DPAD_LEFT,
+		KeyEvent.KEYCODE_DPAD_RIGHT, KeyEvent.KEYCODE_BUTTON_A,
+		KeyEvent.KEYCODE_BUTTON_START
+	};
+
+	private static com.sun.management.ThreadMXBean _bean;
+	private static long _thread;
+
+	private static void inject(ScummVMEvents events, ScummVM scummvm,
+								int iterations) {
+		for (int i = 0; i < iterations; ++i) {
+			final int key = KEYS[i % KEYS.length];
+
+			events.injectKey(key, KeyEvent.ACTION_DOWN);
+			events.injectKey(key, KeyEvent.ACTION_UP);
+			scummvm.flushEvents();
+		}
+	}
+
+	private static long allocated() {
+		return _bean.getThreadAllocatedBytes(_thread);
+	}
+
+	public static void main(String[] args) {
+		_bean = (com.sun.management.ThreadMXBean)
+					ManagementFactory.getThreadMXBean();
+		_thread = Thread.currentThread().getId();
+
+		if (!_bean.isThreadAllocatedMemorySupported()) {
+			System.err.println("Thread allocation counting isn't supported");
+			System.exit(1);
+		}
+
+		_bean.setThreadAllocatedMemoryEnabled(true);
+
+		Looper.prepare();
+
+		final RecordingScummVM scummvm = new RecordingScummVM();
+		final ScummVMEvents events =
+			new ScummVMEventsHoneycomb(null, scummvm, null);
+
+		inject(events, scummvm, WARMUP);
+
+		// what asking for the count takes itself
+		long start = allocated();
+		final long overhead = allocated() - start;
+
+		scummvm.reset();
+
+		start = allocated();
+		inject(events, scummvm, ITERATIONS);
+		final long bytes = allocated() - start - overhead;
+
+		if (scummvm.getRecords() != ITERATIONS * 2) {
+			System.err.println(String.format(
+				"injectKey(): %d records queued, expected %d",
+				scummvm.getRecords(), ITERATIONS * 2));
+			System.exit(1);
+		}
+
+		if (bytes > 0) {
+			System.err.println(String.format(
+				"injectKey() allocated %d bytes over %d keys",
+				bytes, ITERATIONS * 2));
+			System.exit(1);
+		}
+
+		System.out.println(String.format(
+			"injectKey(): %d keys, no allocations", ITERATIONS * 2));
+	}
+}
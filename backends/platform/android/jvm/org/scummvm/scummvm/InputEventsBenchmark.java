@@ -0,0 +1,91 @@
+package org.scummvm.scummvm;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The mixes of InputBenchmark on a plain JVM, against the stubs: ns per
+ * event from the input listeners up to the event ring, and allocations
+ * per event with -prof gc.  The records end up in a RecordingScummVM.
+ *
+ * Each invocation dispatches one event of the mix, the looper runs the
+ * messages which came due once the whole mix went through.  The joystick
+ * is a stub device with both sticks' and the hat's axes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputEventsBenchmark {
+	final private static int JOYSTICK_ID = 1;
+
+	@Param({ "key", "inject", "touch", "mouse", "joystick", "mixed" })
+	public String mix;
+
+	private RecordingScummVM _scummvm;
+	private InputBenchmark _benchmark;
+	private Object[] _events;
+	private int _next = 0;
+
+	private Handler _handler;
+	final private Runnable _quit = new Runnable() {
+		public void run() {
+			Looper.myLooper().quit();
+		}
+	};
+
+	@Setup
+	public void setUp() {
+		if (Looper.myLooper() == null)
+			Looper.prepare();
+
+		if (InputDevice.getDevice(JOYSTICK_ID) == null)
+			InputDevice.addDevice(JOYSTICK_ID, "JVM gamepad",
+									InputDevice.SOURCE_JOYSTICK |
+										InputDevice.SOURCE_GAMEPAD,
+									new int[] {
+										MotionEvent.AXIS_X, MotionEvent.AXIS_Y,
+										MotionEvent.AXIS_Z, MotionEvent.AXIS_RZ,
+										MotionEvent.AXIS_HAT_X,
+										MotionEvent.AXIS_HAT_Y
+									}, 0.01f);
+
+		_handler = new Handler();
+		_scummvm = new RecordingScummVM();
+		_benchmark = new InputBenchmark(null, _scummvm);
+		_events = _benchmark.getEvents(mix);
+	}
+
+	@Benchmark
+	public long dispatch() {
+		_benchmark.dispatch(_events[_next]);
+
+		if (++_next == _events.length) {
+			_next = 0;
+
+			// run what's due, the quit comes after that
+			_handler.post(_quit);
+			Looper.loop();
+		}
+
+		return _scummvm.getRecords();
+	}
+}
@@ -0,0 +1,81 @@
+package org.scummvm.scummvm;
+
+/**
+ * A ScummVM without a native side, which keeps count of the records the
+ * input layer queued instead, per event type, and the last one of them.
+ * Nothing allocates on the way, so the allocation tests see only what
+ * the input layer does.
+ */
+public class RecordingScummVM extends ScummVM {
+	// what fits into the records' type, without JE_QUIT
+	final private static int MAX_TYPES = 32;
+
+	final private int[] _counts = new int[MAX_TYPES];
+	final private int[] _last = new int[8];
+	private long _records = 0;
+
+	public RecordingScummVM() {
+		super(null, null);
+	}
+
+	@Override
+	protected void onEventsDropped(int first, int count) {
+		for (int i = first; i != first + count; ++i) {
+			getEventRecord(i, _last);
+
+			if (_last[0] >= 0 && _last[0] < MAX_TYPES)
+				_counts[_last[0]]++;
+		}
+
+		_records += count;
+	}
+
+	// all records so far
+	public long getRecords() {
+		return _records;
+	}
+
+	// records of a ScummVMEvents.JE_* type so far
+	public int getRecords(int type) {
+		return _counts[type];
+	}
+
+	// The latest record: type, five arguments, time and flags
+	public int[] getLastRecord() {
+		return _last;
+	}
+
+	public void reset() {
+		for (int i = 0; i < MAX_TYPES; ++i)
+			_counts[i] = 0;
+
+		_records = 0;
+	}
+
+	@Override
+	protected void getDPI(float[] values) {
+		values[0] = values[1] = 160;
+	}
+
+	@Override
+	protected void displayMessageOnOSD(String msg) {
+	}
+
+	@Override
+	protected void setWindowCaption(String caption) {
+	}
+
+	@Override
+	protected String[] getPluginDirectories() {
+		return new String[0];
+	}
+
+	@Override
+	protected void showVirtualKeyboard(boolean enable) {
+	}
+
+	@Override
+	protected String[] getSysArchives() {
+		return new String[0];
+	}
+}
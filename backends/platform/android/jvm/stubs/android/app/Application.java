@@ -0,0 +1,11 @@
+package android.app;
+
+import android.content.Context;
+
+/**
+ * JVM stub.
+ */
+public class Application extends Context {
+	public void onCreate() {
+	}
+}
@@ -0,0 +1,18 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * JVM stub without any system services.
+ */
+public abstract class Context {
+	public static final String INPUT_METHOD_SERVICE = "input_method";
+
+	public Object getSystemService(String name) {
+		return null;
+	}
+
+	public File getCacheDir() {
+		return null;
+	}
+}
@@ -0,0 +1,9 @@
+package android.content.res;
+
+/**
+ * JVM stub.
+ */
+public final class AssetManager {
+	private AssetManager() {
+	}
+}
@@ -0,0 +1,9 @@
+package android.media;
+
+/**
+ * JVM stub.
+ */
+public class AudioFormat {
+	public static final int ENCODING_PCM_16BIT = 2;
+	public static final int CHANNEL_CONFIGURATION_STEREO = 3;
+}
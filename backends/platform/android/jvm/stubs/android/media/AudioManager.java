@@ -0,0 +1,8 @@
+package android.media;
+
+/**
+ * JVM stub.
+ */
+public class AudioManager {
+	public static final int STREAM_MUSIC = 3;
+}
@@ -0,0 +1,30 @@
+package android.media;
+
+/**
+ * JVM stub which never initializes.
+ */
+public class AudioTrack {
+	public static final int MODE_STREAM = 1;
+	public static final int STATE_UNINITIALIZED = 0;
+	public static final int STATE_INITIALIZED = 1;
+
+	public AudioTrack(int streamType, int sampleRateInHz, int channelConfig,
+						int audioFormat, int bufferSizeInBytes, int mode) {
+	}
+
+	public static int getNativeOutputSampleRate(int streamType) {
+		return 44100;
+	}
+
+	public static int getMinBufferSize(int sampleRateInHz, int channelConfig,
+										int audioFormat) {
+		return 4096;
+	}
+
+	public int getState() {
+		return STATE_UNINITIALIZED;
+	}
+
+	public void stop() {
+	}
+}
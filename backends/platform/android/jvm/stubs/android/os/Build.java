@@ -0,0 +1,24 @@
+package android.os;
+
+/**
+ * JVM stub: the API level of the android.jar the port builds against.
+ */
+public class Build {
+	public static final String DEVICE = "jvm";
+	public static final String FINGERPRINT = "jvm";
+	public static final String HARDWARE = "jvm";
+	public static final String MODEL = "jvm";
+
+	public static class VERSION {
+		public static final int SDK_INT = 16;
+	}
+
+	public static class VERSION_CODES {
+		public static final int FROYO = 8;
+		public static final int GINGERBREAD = 9;
+		public static final int HONEYCOMB = 11;
+		public static final int HONEYCOMB_MR1 = 12;
+		public static final int ICE_CREAM_SANDWICH = 14;
+		public static final int JELLY_BEAN = 16;
+	}
+}
@@ -0,0 +1,22 @@
+package android.os;
+
+/**
+ * JVM stub which counts nothing, JMH's gc profiler does there.
+ */
+public final class Debug {
+	private Debug() {
+	}
+
+	public static void startAllocCounting() {
+	}
+
+	public static void stopAllocCounting() {
+	}
+
+	public static void resetThreadAllocCount() {
+	}
+
+	public static int getThreadAllocCount() {
+		return 0;
+	}
+}
@@ -0,0 +1,21 @@
+package android.os;
+
+/**
+ * JVM stub which never sees any change.
+ */
+public abstract class FileObserver {
+	public static final int CLOSE_WRITE = 0x00000008;
+	public static final int MOVED_TO = 0x00000080;
+	public static final int DELETE = 0x00000200;
+
+	public FileObserver(String path, int mask) {
+	}
+
+	public abstract void onEvent(int event, String path);
+
+	public void startWatching() {
+	}
+
+	public void stopWatching() {
+	}
+}
@@ -0,0 +1,80 @@
+package android.os;
+
+/**
+ * JVM stub, see Looper.
+ */
+public class Handler {
+	final private Looper _looper;
+
+	public Handler() {
+		this(Looper.myLooper());
+	}
+
+	public Handler(Looper looper) {
+		if (looper == null)
+			throw new RuntimeException("Can't create handler inside thread that has not called Looper.prepare()");
+
+		_looper = looper;
+	}
+
+	public void handleMessage(Message msg) {
+	}
+
+	public void dispatchMessage(Message msg) {
+		if (msg.callback != null)
+			msg.callback.run();
+		else
+			handleMessage(msg);
+	}
+
+	final public Looper getLooper() {
+		return _looper;
+	}
+
+	final public Message obtainMessage(int what) {
+		return Message.obtain(this, what);
+	}
+
+	final public boolean post(Runnable r) {
+		return postDelayed(r, 0);
+	}
+
+	final public boolean postDelayed(Runnable r, long delayMillis) {
+		final Message m = Message.obtain(this, 0);
+
+		m.callback = r;
+
+		return sendMessageDelayed(m, delayMillis);
+	}
+
+	final public boolean sendMessage(Message msg) {
+		return sendMessageDelayed(msg, 0);
+	}
+
+	final public boolean sendEmptyMessage(int what) {
+		return sendMessage(obtainMessage(what));
+	}
+
+	final public boolean sendEmptyMessageDelayed(int what, long delayMillis) {
+		return sendMessageDelayed(obtainMessage(what), delayMillis);
+	}
+
+	final public boolean sendMessageDelayed(Message msg, long delayMillis) {
+		msg.target = this;
+		_looper.enqueue(msg,
+						SystemClock.uptimeMillis() + Math.max(delayMillis, 0));
+		return true;
+	}
+
+	final public void removeCallbacks(Runnable r) {
+		_looper.remove(this, 0, r, false);
+	}
+
+	final public void removeMessages(int what) {
+		_looper.remove(this, what, null, false);
+	}
+
+	final public boolean hasMessages(int what) {
+		return _looper.remove(this, what, null, true);
+	}
+}
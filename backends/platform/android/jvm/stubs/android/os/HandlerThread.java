@@ -0,0 +1,48 @@
+package android.os;
+
+/**
+ * JVM stub, see Looper.
+ */
+public class HandlerThread extends Thread {
+	private Looper _looper = null;
+
+	public HandlerThread(String name) {
+		super(name);
+	}
+
+	@Override
+	public void run() {
+		Looper.prepare();
+
+		synchronized (this) {
+			_looper = Looper.myLooper();
+			notifyAll();
+		}
+
+		Looper.loop();
+	}
+
+	// waits until the thread is up
+	public Looper getLooper() {
+		synchronized (this) {
+			while (_looper == null && isAlive()) {
+				try {
+					wait();
+				} catch (InterruptedException e) {
+				}
+			}
+		}
+
+		return _looper;
+	}
+
+	public boolean quit() {
+		final Looper looper = getLooper();
+
+		if (looper == null)
+			return false;
+
+		looper.quit();
+		return true;
+	}
+}
@@ -0,0 +1,147 @@
+package android.os;
+
+/**
+ * JVM stub: a message queue per thread, ordered by time.
+ *
+ * Unlike Android, quit() keeps the messages still queued and a later
+ * loop() picks up again, so single threaded tests and benchmarks can run
+ * their looper in steps: post a Runnable which quits, then loop().
+ */
+public final class Looper {
+	final private static ThreadLocal<Looper> _loopers =
+		new ThreadLocal<Looper>();
+
+	final private Thread _thread;
+	private Message _messages = null;
+	private boolean _quit = false;
+
+	private Looper() {
+		_thread = Thread.currentThread();
+	}
+
+	public static void prepare() {
+		if (_loopers.get() != null)
+			throw new RuntimeException("Only one Looper may be created per thread");
+
+		_loopers.set(new Looper());
+	}
+
+	public static Looper myLooper() {
+		return _loopers.get();
+	}
+
+	public Thread getThread() {
+		return _thread;
+	}
+
+	// Runs the due messages until quit() is called, waits for the
+	// others as they come due
+	public static void loop() {
+		final Looper me = myLooper();
+
+		if (me == null)
+			throw new RuntimeException("No Looper; Looper.prepare() wasn't called on this thread.");
+
+		me._quit = false;
+
+		while (!me._quit) {
+			final Message m = me.next();
+
+			if (m == null)
+				break;
+
+			m.target.dispatchMessage(m);
+			m.recycle();
+		}
+	}
+
+	public void quit() {
+		synchronized (this) {
+			_quit = true;
+			notifyAll();
+		}
+	}
+
+	// the next due message, waits for one. null once quit
+	private synchronized Message next() {
+		while (!_quit) {
+			final long now = SystemClock.uptimeMillis();
+
+			if (_messages != null && _messages.when <= now) {
+				final Message m = _messages;
+
+				_messages = m.next;
+				m.next = null;
+
+				return m;
+			}
+
+			try {
+				if (_messages == null)
+					wait();
+				else
+					wait(_messages.when - now);
+			} catch (InterruptedException e) {
+				return null;
+			}
+		}
+
+		return null;
+	}
+
+	synchronized void enqueue(Message m, long when) {
+		m.when = when;
+
+		Message prev = null;
+		Message cur = _messages;
+
+		// after the ones due at the same time
+		while (cur != null && cur.when <= when) {
+			prev = cur;
+			cur = cur.next;
+		}
+
+		m.next = cur;
+
+		if (prev == null)
+			_messages = m;
+		else
+			prev.next = m;
+
+		notifyAll();
+	}
+
+	// removes the messages of h matching what or r, what is ignored if
+	// r is given
+	synchronized boolean remove(Handler h, int what, Runnable r,
+								boolean dry) {
+		boolean found = false;
+		Message prev = null;
+		Message cur = _messages;
+
+		while (cur != null) {
+			final Message next = cur.next;
+
+			if (cur.target == h && (r != null ? cur.callback == r :
+					cur.callback == null && cur.what == what)) {
+				found = true;
+
+				if (dry)
+					return true;
+
+				if (prev == null)
+					_messages = next;
+				else
+					prev.next = next;
+
+				cur.recycle();
+			} else {
+				prev = cur;
+			}
+
+			cur = next;
+		}
+
+		return found;
+	}
+}
@@ -0,0 +1,71 @@
+package android.os;
+
+/**
+ * JVM stub, pooled like the real one: messages go back to the pool once
+ * they're handled or removed.
+ */
+public final class Message {
+	public int what;
+	public int arg1;
+	public int arg2;
+	public Object obj;
+
+	// set by the Handler which queues it
+	Handler target;
+	Runnable callback;
+	long when;
+	Message next;
+
+	final private static Object _pool_lock = new Object();
+	private static Message _pool = null;
+
+	public Message() {
+	}
+
+	public static Message obtain() {
+		synchronized (_pool_lock) {
+			if (_pool != null) {
+				final Message m = _pool;
+
+				_pool = m.next;
+				m.next = null;
+
+				return m;
+			}
+		}
+
+		return new Message();
+	}
+
+	public static Message obtain(Handler h, int what) {
+		final Message m = obtain();
+
+		m.target = h;
+		m.what = what;
+
+		return m;
+	}
+
+	public Handler getTarget() {
+		return target;
+	}
+
+	public void sendToTarget() {
+		target.sendMessage(this);
+	}
+
+	public void recycle() {
+		what = 0;
+		arg1 = 0;
+		arg2 = 0;
+		obj = null;
+		target = null;
+		callback = null;
+		when = 0;
+
+		synchronized (_pool_lock) {
+			next = _pool;
+			_pool = this;
+		}
+	}
+}
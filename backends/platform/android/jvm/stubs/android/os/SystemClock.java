@@ -0,0 +1,30 @@
+package android.os;
+
+/**
+ * JVM stub, on top of System.nanoTime().
+ */
+public final class SystemClock {
+	private SystemClock() {
+	}
+
+	public static long uptimeMillis() {
+		return System.nanoTime() / 1000000L;
+	}
+
+	public static long elapsedRealtime() {
+		return uptimeMillis();
+	}
+
+	public static void sleep(long ms) {
+		final long end = uptimeMillis() + ms;
+
+		while (ms > 0) {
+			try {
+				Thread.sleep(ms);
+			} catch (InterruptedException e) {
+			}
+
+			ms = end - uptimeMillis();
+		}
+	}
+}
@@ -0,0 +1,53 @@
+package android.util;
+
+/**
+ * JVM stub: INFO and up go to stderr.
+ */
+public final class Log {
+	public static final int VERBOSE = 2;
+	public static final int DEBUG = 3;
+	public static final int INFO = 4;
+	public static final int WARN = 5;
+	public static final int ERROR = 6;
+
+	final private static String LEVELS = "??VDIWE";
+
+	private Log() {
+	}
+
+	public static int println(int priority, String tag, String msg) {
+		if (priority < INFO)
+			return 0;
+
+		System.err.println(LEVELS.charAt(priority) + "/" + tag + ": " + msg);
+		return 0;
+	}
+
+	public static boolean isLoggable(String tag, int level) {
+		return level >= INFO;
+	}
+
+	public static int d(String tag, String msg) {
+		return println(DEBUG, tag, msg);
+	}
+
+	public static int i(String tag, String msg) {
+		return println(INFO, tag, msg);
+	}
+
+	public static int w(String tag, String msg) {
+		return println(WARN, tag, msg);
+	}
+
+	public static int w(String tag, String msg, Throwable tr) {
+		return println(WARN, tag, msg + '\n' + tr);
+	}
+
+	public static int e(String tag, String msg) {
+		return println(ERROR, tag, msg);
+	}
+
+	public static int e(String tag, String msg, Throwable tr) {
+		return println(ERROR, tag, msg + '\n' + tr);
+	}
+}
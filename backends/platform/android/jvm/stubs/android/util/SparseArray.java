@@ -0,0 +1,62 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * JVM stub: sorted keys, binary searched, like the real one.
+ */
+public class SparseArray<E> {
+	private int[] _keys = new int[10];
+	private Object[] _values = new Object[10];
+	private int _size = 0;
+
+	public SparseArray() {
+	}
+
+	public E get(int key) {
+		return get(key, null);
+	}
+
+	@SuppressWarnings("unchecked")
+	public E get(int key, E valueIfKeyNotFound) {
+		final int i = Arrays.binarySearch(_keys, 0, _size, key);
+
+		return i < 0 ? valueIfKeyNotFound : (E)_values[i];
+	}
+
+	public void put(int key, E value) {
+		int i = Arrays.binarySearch(_keys, 0, _size, key);
+
+		if (i >= 0) {
+			_values[i] = value;
+			return;
+		}
+
+		i = ~i;
+
+		if (_size == _keys.length) {
+			_keys = Arrays.copyOf(_keys, _size * 2);
+			_values = Arrays.copyOf(_values, _size * 2);
+		}
+
+		System.arraycopy(_keys, i, _keys, i + 1, _size - i);
+		System.arraycopy(_values, i, _values, i + 1, _size - i);
+
+		_keys[i] = key;
+		_values[i] = value;
+		_size++;
+	}
+
+	public int size() {
+		return _size;
+	}
+
+	public int keyAt(int index) {
+		return _keys[index];
+	}
+
+	@SuppressWarnings("unchecked")
+	public E valueAt(int index) {
+		return (E)_values[index];
+	}
+}
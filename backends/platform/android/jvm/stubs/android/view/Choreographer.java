@@ -0,0 +1,69 @@
+package android.view;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayList;
+
+/**
+ * JVM stub: frames every 16 ms off the looper of the thread.
+ */
+public final class Choreographer {
+	public interface FrameCallback {
+		public void doFrame(long frameTimeNanos);
+	}
+
+	final private static int FRAME_MS = 16;
+
+	final private static ThreadLocal<Choreographer> _instances =
+		new ThreadLocal<Choreographer>() {
+			@Override
+			protected Choreographer initialValue() {
+				return new Choreographer(Looper.myLooper());
+			}
+		};
+
+	final private Handler _handler;
+	private ArrayList<FrameCallback> _callbacks =
+		new ArrayList<FrameCallback>();
+	private ArrayList<FrameCallback> _running =
+		new ArrayList<FrameCallback>();
+
+	final private Runnable _frame = new Runnable() {
+		public void run() {
+			final ArrayList<FrameCallback> run = _callbacks;
+
+			_callbacks = _running;
+			_running = run;
+
+			final long now = System.nanoTime();
+
+			for (int i = 0; i < run.size(); ++i)
+				run.get(i).doFrame(now);
+
+			run.clear();
+		}
+	};
+
+	private Choreographer(Looper looper) {
+		_handler = new Handler(looper);
+	}
+
+	public static Choreographer getInstance() {
+		return _instances.get();
+	}
+
+	public void postFrameCallback(FrameCallback callback) {
+		if (_callbacks.isEmpty())
+			_handler.postDelayed(_frame, FRAME_MS);
+
+		_callbacks.add(callback);
+	}
+
+	public void removeFrameCallback(FrameCallback callback) {
+		_callbacks.remove(callback);
+
+		if (_callbacks.isEmpty())
+			_handler.removeCallbacks(_frame);
+	}
+}
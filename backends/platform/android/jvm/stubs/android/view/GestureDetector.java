@@ -0,0 +1,173 @@
+package android.view;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Message;
+
+/**
+ * JVM stub of the single pointer gestures: down, scroll past the touch
+ * slop, single tap up, fling (without a velocity), double tap and the
+ * confirmed single tap.  Keeps the events it's given instead of copies,
+ * they mustn't be recycled while a gesture goes on.
+ */
+public class GestureDetector {
+	public interface OnGestureListener {
+		boolean onDown(MotionEvent e);
+
+		void onShowPress(MotionEvent e);
+
+		boolean onSingleTapUp(MotionEvent e);
+
+		boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX,
+							float distanceY);
+
+		void onLongPress(MotionEvent e);
+
+		boolean onFling(MotionEvent e1, MotionEvent e2, float velocityX,
+						float velocityY);
+	}
+
+	public interface OnDoubleTapListener {
+		boolean onSingleTapConfirmed(MotionEvent e);
+
+		boolean onDoubleTap(MotionEvent e);
+
+		boolean onDoubleTapEvent(MotionEvent e);
+	}
+
+	final private static int TOUCH_SLOP = 8;
+	final private static int DOUBLE_TAP_SLOP = 100;
+	final private static int TAP = 1;
+
+	final private OnGestureListener _listener;
+	private OnDoubleTapListener _doubleTapListener = null;
+
+	private MotionEvent _currentDown = null;
+	private MotionEvent _previousUp = null;
+	private float _lastX;
+	private float _lastY;
+	private boolean _inTapRegion = false;
+	private boolean _doubleTap = false;
+	private boolean _stillDown = false;
+
+	final private Handler _handler = new Handler() {
+		@Override
+		public void handleMessage(Message msg) {
+			if (msg.what == TAP && _doubleTapListener != null &&
+					!_stillDown)
+				_doubleTapListener.onSingleTapConfirmed(_currentDown);
+		}
+	};
+
+	public GestureDetector(Context context, OnGestureListener listener) {
+		_listener = listener;
+	}
+
+	public void setOnDoubleTapListener(OnDoubleTapListener listener) {
+		_doubleTapListener = listener;
+	}
+
+	public void setIsLongpressEnabled(boolean isLongpressEnabled) {
+	}
+
+	public boolean onTouchEvent(MotionEvent e) {
+		final float x = e.getX();
+		final float y = e.getY();
+		boolean handled = false;
+
+		switch (e.getActionMasked()) {
+		case MotionEvent.ACTION_DOWN:
+			if (_doubleTapListener != null) {
+				final boolean pending = _handler.hasMessages(TAP);
+
+				_handler.removeMessages(TAP);
+
+				if (pending && _currentDown != null && _previousUp != null &&
+						isDoubleTap(_previousUp, e)) {
+					_doubleTap = true;
+					handled |= _doubleTapListener.onDoubleTap(_currentDown);
+					handled |= _doubleTapListener.onDoubleTapEvent(e);
+				} else {
+					_handler.sendEmptyMessageDelayed(TAP,
+								ViewConfiguration.getDoubleTapTimeout());
+				}
+			}
+
+			_currentDown = e;
+			_lastX = x;
+			_lastY = y;
+			_inTapRegion = true;
+			_stillDown = true;
+			handled |= _listener.onDown(e);
+			break;
+
+		case MotionEvent.ACTION_MOVE:
+			if (_currentDown == null)
+				break;
+
+			if (_doubleTap) {
+				handled |= _doubleTapListener.onDoubleTapEvent(e);
+				break;
+			}
+
+			final float dx = _lastX - x;
+			final float dy = _lastY - y;
+
+			if (_inTapRegion) {
+				final float ox = x - _currentDown.getX();
+				final float oy = y - _currentDown.getY();
+
+				if (ox * ox + oy * oy > TOUCH_SLOP * TOUCH_SLOP) {
+					handled = _listener.onScroll(_currentDown, e, dx, dy);
+					_lastX = x;
+					_lastY = y;
+					_inTapRegion = false;
+					_handler.removeMessages(TAP);
+				}
+			} else if (Math.abs(dx) >= 1 || Math.abs(dy) >= 1) {
+				handled = _listener.onScroll(_currentDown, e, dx, dy);
+				_lastX = x;
+				_lastY = y;
+			}
+			break;
+
+		case MotionEvent.ACTION_UP:
+			_stillDown = false;
+
+			if (_currentDown == null)
+				break;
+
+			if (_doubleTap)
+				handled |= _doubleTapListener.onDoubleTapEvent(e);
+			else if (_inTapRegion)
+				handled = _listener.onSingleTapUp(e);
+			else
+				handled = _listener.onFling(_currentDown, e, 0, 0);
+
+			_previousUp = e;
+			_doubleTap = false;
+			break;
+
+		case MotionEvent.ACTION_CANCEL:
+			_handler.removeMessages(TAP);
+			_stillDown = false;
+			_doubleTap = false;
+			_currentDown = null;
+			break;
+		}
+
+		return handled;
+	}
+
+	final private static boolean isDoubleTap(MotionEvent up,
+												MotionEvent down) {
+		if (down.getEventTime() - up.getEventTime() >
+				ViewConfiguration.getDoubleTapTimeout())
+			return false;
+
+		final float dx = down.getX() - up.getX();
+		final float dy = down.getY() - up.getY();
+
+		return dx * dx + dy * dy < DOUBLE_TAP_SLOP * DOUBLE_TAP_SLOP;
+	}
+}
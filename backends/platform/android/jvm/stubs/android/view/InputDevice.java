@@ -0,0 +1,118 @@
+package android.view;
+
+import android.util.SparseArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JVM stub.  There are no devices unless a test adds them, see
+ * addDevice(), which the real one doesn't have.
+ */
+public final class InputDevice {
+	public static final int SOURCE_CLASS_BUTTON = 0x00000001;
+	public static final int SOURCE_CLASS_POINTER = 0x00000002;
+	public static final int SOURCE_CLASS_POSITION = 0x00000008;
+	public static final int SOURCE_CLASS_JOYSTICK = 0x00000010;
+	public static final int SOURCE_KEYBOARD = 0x00000100 | SOURCE_CLASS_BUTTON;
+	public static final int SOURCE_DPAD = 0x00000200 | SOURCE_CLASS_BUTTON;
+	public static final int SOURCE_GAMEPAD = 0x00000400 | SOURCE_CLASS_BUTTON;
+	public static final int SOURCE_TOUCHSCREEN = 0x00001000 | SOURCE_CLASS_POINTER;
+	public static final int SOURCE_MOUSE = 0x00002000 | SOURCE_CLASS_POINTER;
+	public static final int SOURCE_STYLUS = 0x00004000 | SOURCE_CLASS_POINTER;
+	public static final int SOURCE_TOUCHPAD = 0x00100000 | SOURCE_CLASS_POSITION;
+	public static final int SOURCE_JOYSTICK = 0x01000000 | SOURCE_CLASS_JOYSTICK;
+
+	final private static SparseArray<InputDevice> _devices =
+		new SparseArray<InputDevice>();
+
+	final private int _id;
+	final private String _name;
+	final private int _sources;
+	final private List<MotionRange> _ranges = new ArrayList<MotionRange>();
+
+	public static final class MotionRange {
+		final private int _axis;
+		final private int _source;
+		final private float _min;
+		final private float _max;
+		final private float _flat;
+
+		MotionRange(int axis, int source, float min, float max, float flat) {
+			_axis = axis;
+			_source = source;
+			_min = min;
+			_max = max;
+			_flat = flat;
+		}
+
+		public int getAxis() {
+			return _axis;
+		}
+
+		public int getSource() {
+			return _source;
+		}
+
+		public float getMin() {
+			return _min;
+		}
+
+		public float getMax() {
+			return _max;
+		}
+
+		public float getFlat() {
+			return _flat;
+		}
+	}
+
+	private InputDevice(int id, String name, int sources) {
+		_id = id;
+		_name = name;
+		_sources = sources;
+	}
+
+	// Not in the real one: registers a device with the axes given, each
+	// ranging from -1 to 1
+	public static InputDevice addDevice(int id, String name, int sources,
+										int[] axes, float flat) {
+		final InputDevice device = new InputDevice(id, name, sources);
+
+		for (int axis : axes)
+			device._ranges.add(new MotionRange(axis, sources, -1, 1, flat));
+
+		_devices.put(id, device);
+
+		return device;
+	}
+
+	public static InputDevice getDevice(int id) {
+		return _devices.get(id);
+	}
+
+	public static int[] getDeviceIds() {
+		final int[] ids = new int[_devices.size()];
+
+		for (int i = 0; i < ids.length; ++i)
+			ids[i] = _devices.keyAt(i);
+
+		return ids;
+	}
+
+	public int getId() {
+		return _id;
+	}
+
+	public String getName() {
+		return _name;
+	}
+
+	public int getSources() {
+		return _sources;
+	}
+
+	public List<MotionRange> getMotionRanges() {
+		return _ranges;
+	}
+}
@@ -0,0 +1,16 @@
+package android.view;
+
+/**
+ * JVM stub.
+ */
+public abstract class InputEvent {
+	public abstract int getDeviceId();
+
+	public abstract int getSource();
+
+	public abstract long getEventTime();
+
+	public final InputDevice getDevice() {
+		return InputDevice.getDevice(getDeviceId());
+	}
+}
@@ -0,0 +1,69 @@
+package android.view;
+
+/**
+ * JVM stub: a US layout of letters, digits, space and enter.
+ */
+public class KeyCharacterMap {
+	public static final int VIRTUAL_KEYBOARD = -1;
+	public static final int COMBINING_ACCENT_MASK = 0x7FFFFFFF;
+
+	final private static KeyCharacterMap _map = new KeyCharacterMap();
+
+	private KeyCharacterMap() {
+	}
+
+	public static KeyCharacterMap load(int deviceId) {
+		return _map;
+	}
+
+	public int get(int keyCode, int metaState) {
+		final boolean shift = (metaState & KeyEvent.META_SHIFT_ON) != 0;
+
+		if (keyCode >= KeyEvent.KEYCODE_A && keyCode <= KeyEvent.KEYCODE_Z)
+			return (shift ? 'A' : 'a') + keyCode - KeyEvent.KEYCODE_A;
+
+		if (keyCode >= KeyEvent.KEYCODE_0 && keyCode <= KeyEvent.KEYCODE_9)
+			return '0' + keyCode - KeyEvent.KEYCODE_0;
+
+		switch (keyCode) {
+		case KeyEvent.KEYCODE_SPACE:
+			return ' ';
+		case KeyEvent.KEYCODE_ENTER:
+			return '\n';
+		}
+
+		return 0;
+	}
+
+	// a down and up per character, null if one isn't on the map
+	public KeyEvent[] getEvents(char[] chars) {
+		final KeyEvent[] events = new KeyEvent[chars.length * 2];
+
+		for (int i = 0; i < chars.length; ++i) {
+			final char c = chars[i];
+			int code, meta = 0;
+
+			if (c >= 'a' && c <= 'z') {
+				code = KeyEvent.KEYCODE_A + c - 'a';
+			} else if (c >= 'A' && c <= 'Z') {
+				code = KeyEvent.KEYCODE_A + c - 'A';
+				meta = KeyEvent.META_SHIFT_ON;
+			} else if (c >= '0' && c <= '9') {
+				code = KeyEvent.KEYCODE_0 + c - '0';
+			} else if (c == ' ') {
+				code = KeyEvent.KEYCODE_SPACE;
+			} else if (c == '\n') {
+				code = KeyEvent.KEYCODE_ENTER;
+			} else {
+				return null;
+			}
+
+			events[i * 2] = new KeyEvent(0, 0, KeyEvent.ACTION_DOWN, code, 0,
+											meta);
+			events[i * 2 + 1] = new KeyEvent(0, 0, KeyEvent.ACTION_UP, code, 0,
+												meta);
+		}
+
+		return events;
+	}
+}
@@ -0,0 +1,175 @@
+package android.view;
+
+/**
+ * JVM stub, with the key codes the port uses.
+ */
+public class KeyEvent extends InputEvent {
+	public static final int ACTION_DOWN = 0;
+	public static final int ACTION_UP = 1;
+	public static final int ACTION_MULTIPLE = 2;
+
+	public static final int META_SHIFT_ON = 0x1;
+
+	public static final int KEYCODE_UNKNOWN = 0;
+	public static final int KEYCODE_HOME = 3;
+	public static final int KEYCODE_BACK = 4;
+	public static final int KEYCODE_CALL = 5;
+	public static final int KEYCODE_ENDCALL = 6;
+	public static final int KEYCODE_0 = 7;
+	public static final int KEYCODE_9 = 16;
+	public static final int KEYCODE_DPAD_UP = 19;
+	public static final int KEYCODE_DPAD_DOWN = 20;
+	public static final int KEYCODE_DPAD_LEFT = 21;
+	public static final int KEYCODE_DPAD_RIGHT = 22;
+	public static final int KEYCODE_DPAD_CENTER = 23;
+	public static final int KEYCODE_VOLUME_UP = 24;
+	public static final int KEYCODE_VOLUME_DOWN = 25;
+	public static final int KEYCODE_POWER = 26;
+	public static final int KEYCODE_CAMERA = 27;
+	public static final int KEYCODE_A = 29;
+	public static final int KEYCODE_Z = 54;
+	public static final int KEYCODE_SPACE = 62;
+	public static final int KEYCODE_ENTER = 66;
+	public static final int KEYCODE_MENU = 82;
+	public static final int KEYCODE_SEARCH = 84;
+	public static final int KEYCODE_BUTTON_A = 96;
+	public static final int KEYCODE_BUTTON_B = 97;
+	public static final int KEYCODE_BUTTON_C = 98;
+	public static final int KEYCODE_BUTTON_X = 99;
+	public static final int KEYCODE_BUTTON_Y = 100;
+	public static final int KEYCODE_BUTTON_Z = 101;
+	public static final int KEYCODE_BUTTON_L1 = 102;
+	public static final int KEYCODE_BUTTON_R1 = 103;
+	public static final int KEYCODE_BUTTON_L2 = 104;
+	public static final int KEYCODE_BUTTON_R2 = 105;
+	public static final int KEYCODE_BUTTON_THUMBL = 106;
+	public static final int KEYCODE_BUTTON_THUMBR = 107;
+	public static final int KEYCODE_BUTTON_START = 108;
+	public static final int KEYCODE_BUTTON_SELECT = 109;
+	public static final int KEYCODE_BUTTON_MODE = 110;
+	public static final int KEYCODE_ESCAPE = 111;
+	public static final int KEYCODE_BUTTON_1 = 188;
+	public static final int KEYCODE_BUTTON_2 = 189;
+
+	final private long _downTime;
+	final private long _eventTime;
+	final private int _action;
+	final private int _keyCode;
+	final private int _repeatCount;
+	final private int _metaState;
+	final private int _deviceId;
+	final private int _source;
+	final private String _characters;
+
+	public KeyEvent(int action, int code) {
+		this(0, 0, action, code, 0);
+	}
+
+	public KeyEvent(long downTime, long eventTime, int action, int code,
+					int repeat) {
+		this(downTime, eventTime, action, code, repeat, 0);
+	}
+
+	public KeyEvent(long downTime, long eventTime, int action, int code,
+					int repeat, int metaState) {
+		this(downTime, eventTime, action, code, repeat, metaState,
+				KeyCharacterMap.VIRTUAL_KEYBOARD, 0, 0,
+				InputDevice.SOURCE_KEYBOARD);
+	}
+
+	public KeyEvent(long downTime, long eventTime, int action, int code,
+					int repeat, int metaState, int deviceId, int scancode,
+					int flags, int source) {
+		_downTime = downTime;
+		_eventTime = eventTime;
+		_action = action;
+		_keyCode = code;
+		_repeatCount = repeat;
+		_metaState = metaState;
+		_deviceId = deviceId;
+		_source = source;
+		_characters = null;
+	}
+
+	public KeyEvent(long time, String characters, int deviceId, int flags) {
+		_downTime = time;
+		_eventTime = time;
+		_action = ACTION_MULTIPLE;
+		_keyCode = KEYCODE_UNKNOWN;
+		_repeatCount = 0;
+		_metaState = 0;
+		_deviceId = deviceId;
+		_source = InputDevice.SOURCE_KEYBOARD;
+		_characters = characters;
+	}
+
+	// KEYCODE_UNKNOWN for names which aren't known
+	public static int keyCodeFromString(String symbolicName) {
+		try {
+			return KeyEvent.class.getField(symbolicName).getInt(null);
+		} catch (Exception e) {
+			return KEYCODE_UNKNOWN;
+		}
+	}
+
+	public final int getAction() {
+		return _action;
+	}
+
+	public final int getKeyCode() {
+		return _keyCode;
+	}
+
+	public final int getRepeatCount() {
+		return _repeatCount;
+	}
+
+	public final int getMetaState() {
+		return _metaState;
+	}
+
+	public final long getDownTime() {
+		return _downTime;
+	}
+
+	@Override
+	public final long getEventTime() {
+		return _eventTime;
+	}
+
+	@Override
+	public final int getDeviceId() {
+		return _deviceId;
+	}
+
+	@Override
+	public final int getSource() {
+		return _source;
+	}
+
+	public final String getCharacters() {
+		return _characters;
+	}
+
+	public final boolean isSystem() {
+		switch (_keyCode) {
+		case KEYCODE_HOME:
+		case KEYCODE_BACK:
+		case KEYCODE_CALL:
+		case KEYCODE_ENDCALL:
+		case KEYCODE_VOLUME_UP:
+		case KEYCODE_VOLUME_DOWN:
+		case KEYCODE_POWER:
+		case KEYCODE_CAMERA:
+		case KEYCODE_MENU:
+		case KEYCODE_SEARCH:
+			return true;
+		}
+
+		return false;
+	}
+
+	public int getUnicodeChar() {
+		return KeyCharacterMap.load(_deviceId).get(_keyCode, _metaState);
+	}
+}
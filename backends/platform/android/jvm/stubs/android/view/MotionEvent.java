@@ -0,0 +1,307 @@
+package android.view;
+
+import java.util.Arrays;
+
+/**
+ * JVM stub, keeps all axes of every pointer and its history.  Not
+ * pooled, obtain() allocates and recycle() does nothing.
+ */
+public final class MotionEvent extends InputEvent {
+	public static final int ACTION_MASK = 0xff;
+	public static final int ACTION_DOWN = 0;
+	public static final int ACTION_UP = 1;
+	public static final int ACTION_MOVE = 2;
+	public static final int ACTION_CANCEL = 3;
+	public static final int ACTION_POINTER_DOWN = 5;
+	public static final int ACTION_POINTER_UP = 6;
+	public static final int ACTION_HOVER_MOVE = 7;
+	public static final int ACTION_POINTER_INDEX_MASK = 0xff00;
+	public static final int ACTION_POINTER_INDEX_SHIFT = 8;
+
+	public static final int AXIS_X = 0;
+	public static final int AXIS_Y = 1;
+	public static final int AXIS_PRESSURE = 2;
+	public static final int AXIS_SIZE = 3;
+	public static final int AXIS_Z = 11;
+	public static final int AXIS_RX = 12;
+	public static final int AXIS_RY = 13;
+	public static final int AXIS_RZ = 14;
+	public static final int AXIS_HAT_X = 15;
+	public static final int AXIS_HAT_Y = 16;
+	public static final int AXIS_LTRIGGER = 17;
+	public static final int AXIS_RTRIGGER = 18;
+	// one past AXIS_GENERIC_16
+	final private static int AXIS_COUNT = 48;
+
+	public static final int BUTTON_PRIMARY = 1;
+	public static final int BUTTON_SECONDARY = 2;
+	public static final int BUTTON_TERTIARY = 4;
+
+	public static final class PointerCoords {
+		public float x;
+		public float y;
+		public float pressure;
+		public float size;
+		final private float[] _axes = new float[AXIS_COUNT];
+
+		public PointerCoords() {
+		}
+
+		public float getAxisValue(int axis) {
+			switch (axis) {
+			case AXIS_X:
+				return x;
+			case AXIS_Y:
+				return y;
+			case AXIS_PRESSURE:
+				return pressure;
+			case AXIS_SIZE:
+				return size;
+			}
+
+			return _axes[axis];
+		}
+
+		public void setAxisValue(int axis, float value) {
+			switch (axis) {
+			case AXIS_X:
+				x = value;
+				break;
+			case AXIS_Y:
+				y = value;
+				break;
+			case AXIS_PRESSURE:
+				pressure = value;
+				break;
+			case AXIS_SIZE:
+				size = value;
+				break;
+			default:
+				_axes[axis] = value;
+			}
+		}
+
+		void copyFrom(PointerCoords other) {
+			x = other.x;
+			y = other.y;
+			pressure = other.pressure;
+			size = other.size;
+			System.arraycopy(other._axes, 0, _axes, 0, AXIS_COUNT);
+		}
+	}
+
+	private long _downTime;
+	private int _action;
+	private int _metaState;
+	private int _buttonState;
+	private float _xPrecision;
+	private float _yPrecision;
+	private int _deviceId;
+	private int _source;
+	private int[] _pointerIds;
+	// samples, the last one is the current, each with a time and the
+	// coords of every pointer
+	private long[] _times;
+	private PointerCoords[][] _samples;
+	private int _sampleCount;
+
+	private MotionEvent() {
+	}
+
+	public static MotionEvent obtain(long downTime, long eventTime,
+										int action, float x, float y,
+										int metaState) {
+		final PointerCoords c = new PointerCoords();
+
+		c.x = x;
+		c.y = y;
+		c.pressure = 1;
+		c.size = 1;
+
+		return obtain(downTime, eventTime, action, 1, new int[] { 0 },
+						new PointerCoords[] { c }, metaState, 1, 1, 0, 0,
+						InputDevice.SOURCE_TOUCHSCREEN, 0);
+	}
+
+	public static MotionEvent obtain(long downTime, long eventTime,
+										int action, int pointerCount,
+										int[] pointerIds,
+										PointerCoords[] pointerCoords,
+										int metaState, float xPrecision,
+										float yPrecision, int deviceId,
+										int edgeFlags, int source,
+										int flags) {
+		final MotionEvent e = new MotionEvent();
+
+		e._downTime = downTime;
+		e._action = action;
+		e._metaState = metaState;
+		e._xPrecision = xPrecision;
+		e._yPrecision = yPrecision;
+		e._deviceId = deviceId;
+		e._source = source;
+		e._pointerIds = new int[pointerCount];
+		System.arraycopy(pointerIds, 0, e._pointerIds, 0, pointerCount);
+		e._times = new long[4];
+		e._samples = new PointerCoords[4][];
+		e.addSample(eventTime, pointerCoords);
+
+		return e;
+	}
+
+	private void addSample(long eventTime, PointerCoords[] pointerCoords) {
+		if (_sampleCount == _times.length) {
+			_times = Arrays.copyOf(_times, _sampleCount * 2);
+			_samples = Arrays.copyOf(_samples, _sampleCount * 2);
+		}
+
+		final PointerCoords[] sample = new PointerCoords[_pointerIds.length];
+
+		for (int i = 0; i < sample.length; ++i) {
+			sample[i] = new PointerCoords();
+			sample[i].copyFrom(pointerCoords[i]);
+		}
+
+		_times[_sampleCount] = eventTime;
+		_samples[_sampleCount] = sample;
+		_sampleCount++;
+	}
+
+	// the current sample becomes history
+	public final void addBatch(long eventTime, PointerCoords[] pointerCoords,
+								int metaState) {
+		addSample(eventTime, pointerCoords);
+		_metaState |= metaState;
+	}
+
+	public final void recycle() {
+	}
+
+	public final void setSource(int source) {
+		_source = source;
+	}
+
+	public final void setAction(int action) {
+		_action = action;
+	}
+
+	public static String axisToString(int axis) {
+		switch (axis) {
+		case AXIS_X:
+			return "AXIS_X";
+		case AXIS_Y:
+			return "AXIS_Y";
+		case AXIS_HAT_X:
+			return "AXIS_HAT_X";
+		case AXIS_HAT_Y:
+			return "AXIS_HAT_Y";
+		}
+
+		return Integer.toString(axis);
+	}
+
+	public final int getAction() {
+		return _action;
+	}
+
+	public final int getActionMasked() {
+		return _action & ACTION_MASK;
+	}
+
+	public final int getActionIndex() {
+		return (_action & ACTION_POINTER_INDEX_MASK) >>
+				ACTION_POINTER_INDEX_SHIFT;
+	}
+
+	public final long getDownTime() {
+		return _downTime;
+	}
+
+	@Override
+	public final long getEventTime() {
+		return _times[_sampleCount - 1];
+	}
+
+	@Override
+	public final int getDeviceId() {
+		return _deviceId;
+	}
+
+	@Override
+	public final int getSource() {
+		return _source;
+	}
+
+	public final int getMetaState() {
+		return _metaState;
+	}
+
+	public final int getButtonState() {
+		return _buttonState;
+	}
+
+	public final float getXPrecision() {
+		return _xPrecision;
+	}
+
+	public final float getYPrecision() {
+		return _yPrecision;
+	}
+
+	public final int getPointerCount() {
+		return _pointerIds.length;
+	}
+
+	public final int getPointerId(int pointerIndex) {
+		return _pointerIds[pointerIndex];
+	}
+
+	public final float getX() {
+		return getAxisValue(AXIS_X, 0);
+	}
+
+	public final float getY() {
+		return getAxisValue(AXIS_Y, 0);
+	}
+
+	public final float getX(int pointerIndex) {
+		return getAxisValue(AXIS_X, pointerIndex);
+	}
+
+	public final float getY(int pointerIndex) {
+		return getAxisValue(AXIS_Y, pointerIndex);
+	}
+
+	public final float getAxisValue(int axis) {
+		return getAxisValue(axis, 0);
+	}
+
+	public final float getAxisValue(int axis, int pointerIndex) {
+		return _samples[_sampleCount - 1][pointerIndex].getAxisValue(axis);
+	}
+
+	public final int getHistorySize() {
+		return _sampleCount - 1;
+	}
+
+	public final long getHistoricalEventTime(int pos) {
+		return _times[pos];
+	}
+
+	public final float getHistoricalX(int pos) {
+		return getHistoricalAxisValue(AXIS_X, 0, pos);
+	}
+
+	public final float getHistoricalY(int pos) {
+		return getHistoricalAxisValue(AXIS_Y, 0, pos);
+	}
+
+	public final float getHistoricalAxisValue(int axis, int pos) {
+		return getHistoricalAxisValue(axis, 0, pos);
+	}
+
+	public final float getHistoricalAxisValue(int axis, int pointerIndex,
+												int pos) {
+		return _samples[pos][pointerIndex].getAxisValue(axis);
+	}
+}
@@ -0,0 +1,17 @@
+package android.view;
+
+/**
+ * JVM stub.
+ */
+public interface SurfaceHolder {
+	public interface Callback {
+		public void surfaceCreated(SurfaceHolder holder);
+
+		public void surfaceChanged(SurfaceHolder holder, int format,
+									int width, int height);
+
+		public void surfaceDestroyed(SurfaceHolder holder);
+	}
+
+	public void addCallback(Callback callback);
+}
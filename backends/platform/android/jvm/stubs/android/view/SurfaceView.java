@@ -0,0 +1,12 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * JVM stub.
+ */
+public class SurfaceView extends View {
+	public SurfaceView(Context context) {
+		super(context);
+	}
+}
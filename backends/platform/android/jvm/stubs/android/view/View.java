@@ -0,0 +1,39 @@
+package android.view;
+
+import android.content.Context;
+
+/**
+ * JVM stub.
+ */
+public class View {
+	public interface OnKeyListener {
+		boolean onKey(View v, int keyCode, KeyEvent event);
+	}
+
+	public interface OnTouchListener {
+		boolean onTouch(View v, MotionEvent event);
+	}
+
+	public interface OnGenericMotionListener {
+		boolean onGenericMotion(View v, MotionEvent event);
+	}
+
+	public interface OnHoverListener {
+		boolean onHover(View v, MotionEvent event);
+	}
+
+	public View(Context context) {
+	}
+
+	public void setOnKeyListener(OnKeyListener l) {
+	}
+
+	public void setOnTouchListener(OnTouchListener l) {
+	}
+
+	public void setOnGenericMotionListener(OnGenericMotionListener l) {
+	}
+
+	public void setOnHoverListener(OnHoverListener l) {
+	}
+}
@@ -0,0 +1,18 @@
+package android.view;
+
+/**
+ * JVM stub, with the framework defaults.
+ */
+public class ViewConfiguration {
+	public static int getLongPressTimeout() {
+		return 500;
+	}
+
+	public static int getTapTimeout() {
+		return 100;
+	}
+
+	public static int getDoubleTapTimeout() {
+		return 300;
+	}
+}
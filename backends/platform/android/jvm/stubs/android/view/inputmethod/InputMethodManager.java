@@ -0,0 +1,14 @@
+package android.view.inputmethod;
+
+/**
+ * JVM stub.
+ */
+public final class InputMethodManager {
+	public static final int SHOW_FORCED = 2;
+
+	private InputMethodManager() {
+	}
+
+	public void toggleSoftInput(int showFlags, int hideFlags) {
+	}
+}
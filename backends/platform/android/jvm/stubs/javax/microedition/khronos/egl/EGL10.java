@@ -0,0 +1,59 @@
+package javax.microedition.khronos.egl;
+
+/**
+ * JVM stub, with what the port uses.
+ */
+public interface EGL10 extends EGL {
+	int EGL_SUCCESS = 0x3000;
+	int EGL_CONTEXT_LOST = 0x300E;
+	int EGL_ALPHA_SIZE = 0x3021;
+	int EGL_BLUE_SIZE = 0x3022;
+	int EGL_GREEN_SIZE = 0x3023;
+	int EGL_RED_SIZE = 0x3024;
+	int EGL_DEPTH_SIZE = 0x3025;
+	int EGL_STENCIL_SIZE = 0x3026;
+	int EGL_CONFIG_CAVEAT = 0x3027;
+	int EGL_CONFIG_ID = 0x3028;
+	int EGL_SAMPLES = 0x3031;
+	int EGL_SURFACE_TYPE = 0x3033;
+	int EGL_NONE = 0x3038;
+	int EGL_SLOW_CONFIG = 0x3050;
+	int EGL_NON_CONFORMANT_CONFIG = 0x3051;
+	int EGL_VENDOR = 0x3053;
+	int EGL_VERSION = 0x3054;
+	int EGL_HEIGHT = 0x3056;
+	int EGL_WIDTH = 0x3057;
+	int EGL_PBUFFER_BIT = 0x01;
+	int EGL_PIXMAP_BIT = 0x02;
+	int EGL_WINDOW_BIT = 0x04;
+
+	Object EGL_DEFAULT_DISPLAY = null;
+	EGLContext EGL_NO_CONTEXT = null;
+	EGLDisplay EGL_NO_DISPLAY = null;
+	EGLSurface EGL_NO_SURFACE = null;
+
+	boolean eglChooseConfig(EGLDisplay display, int[] attrib_list,
+							EGLConfig[] configs, int config_size,
+							int[] num_config);
+	EGLContext eglCreateContext(EGLDisplay display, EGLConfig config,
+								EGLContext share_context, int[] attrib_list);
+	EGLSurface eglCreatePbufferSurface(EGLDisplay display, EGLConfig config,
+										int[] attrib_list);
+	EGLSurface eglCreateWindowSurface(EGLDisplay display, EGLConfig config,
+										Object native_window,
+										int[] attrib_list);
+	boolean eglDestroyContext(EGLDisplay display, EGLContext context);
+	boolean eglDestroySurface(EGLDisplay display, EGLSurface surface);
+	boolean eglGetConfigAttrib(EGLDisplay display, EGLConfig config,
+								int attribute, int[] value);
+	boolean eglGetConfigs(EGLDisplay display, EGLConfig[] configs,
+							int config_size, int[] num_config);
+	EGLDisplay eglGetDisplay(Object native_display);
+	int eglGetError();
+	boolean eglInitialize(EGLDisplay display, int[] major_minor);
+	boolean eglMakeCurrent(EGLDisplay display, EGLSurface draw,
+							EGLSurface read, EGLContext context);
+	String eglQueryString(EGLDisplay display, int name);
+	boolean eglSwapBuffers(EGLDisplay display, EGLSurface surface);
+	boolean eglTerminate(EGLDisplay display);
+}
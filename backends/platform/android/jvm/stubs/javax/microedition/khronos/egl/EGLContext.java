@@ -0,0 +1,14 @@
+package javax.microedition.khronos.egl;
+
+import javax.microedition.khronos.opengles.GL;
+
+/**
+ * JVM stub, there's no EGL on the JVM.
+ */
+public abstract class EGLContext {
+	public static EGL getEGL() {
+		return null;
+	}
+
+	public abstract GL getGL();
+}
@@ -0,0 +1,7 @@
+package javax.microedition.khronos.egl;
+
+/**
+ * JVM stub.
+ */
+public abstract class EGLDisplay {
+}
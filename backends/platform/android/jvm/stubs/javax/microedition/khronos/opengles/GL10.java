@@ -0,0 +1,29 @@
+package javax.microedition.khronos.opengles;
+
+import java.nio.Buffer;
+
+/**
+ * JVM stub, with what the port uses.
+ */
+public interface GL10 extends GL {
+	int GL_TRIANGLE_STRIP = 0x0005;
+	int GL_SRC_ALPHA = 0x0302;
+	int GL_ONE_MINUS_SRC_ALPHA = 0x0303;
+	int GL_BLEND = 0x0BE2;
+	int GL_FLOAT = 0x1406;
+	int GL_VENDOR = 0x1F00;
+	int GL_RENDERER = 0x1F01;
+	int GL_VERSION = 0x1F02;
+	int GL_COLOR_BUFFER_BIT = 0x4000;
+	int GL_VERTEX_ARRAY = 0x8074;
+
+	void glBlendFunc(int sfactor, int dfactor);
+	void glClear(int mask);
+	void glColor4f(float red, float green, float blue, float alpha);
+	void glDrawArrays(int mode, int first, int count);
+	void glEnable(int cap);
+	void glEnableClientState(int array);
+	void glFinish();
+	String glGetString(int name);
+	void glVertexPointer(int size, int type, int stride, Buffer pointer);
+}
@@ -6,7 +6,9 @@ MODULE_OBJS := \
 	asset-archive.o \
 	android.o \
 	gfx.o \
-	events.o
+	events.o \
+	audiorender.o \
+	opensles.o
 
 # We don't use rules.mk but rather manually update OBJS and MODULE_DIRS.
 MODULE_OBJS := $(addprefix $(MODULE)/, $(MODULE_OBJS))
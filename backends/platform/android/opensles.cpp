@@ -0,0 +1,256 @@
+/* ScummVM - Graphic Adventure Engine
+ *
+ * ScummVM is the legal property of its developers, whose names
+ * are too numerous to list here. Please refer to the COPYRIGHT
+ * file distributed with this source distribution.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ */
+
+#if defined(__ANDROID__)
+
+// Allow use of stuff in <time.h>
+#define FORBIDDEN_SYMBOL_EXCEPTION_time_h
+
+// Disable printf override in common/forbidden.h to avoid
+// clashes with log.h from the Android SDK.
+// That header file uses
+//   __attribute__ ((format(printf, 3, 4)))
+// which gets messed up by our override mechanism; this could
+// be avoided by either changing the Android SDK to use the equally
+// legal and valid
+//   __attribute__ ((format(printf, 3, 4)))
+// or by refining our printf override to use a varadic macro
+// (which then wouldn't be portable, though).
+// Anyway, for now we just disable the printf override globally
+// for the Android port
+#define FORBIDDEN_SYMBOL_EXCEPTION_printf
+
+#include "backends/platform/android/android.h"
+#include "backends/platform/android/opensles.h"
+
+#if defined(USE_OPENSLES)
+
+#define SL_CHECK(expr, what) do {								\
+		SLresult res = (expr);									\
+		if (res != SL_RESULT_SUCCESS) {							\
+			LOGE("OpenSL ES error 0x%x: %s", (uint)res, what);	\
+			close();											\
+			return false;										\
+		}														\
+	} while (0)
+
+AndroidOpenSLES::AndroidOpenSLES() :
+	_engine_object(0),
+	_engine(0),
+	_output_mix(0),
+	_player_object(0),
+	_player(0),
+	_queue(0),
+	_mixer(0),
+	_sample_rate(0),
+	_period_bytes(0),
+	_next(0),
+	_written(0) {
+	for (uint i = 0; i < kBuffers; ++i)
+		_buffers[i] = 0;
+}
+
+AndroidOpenSLES::~AndroidOpenSLES() {
+	close();
+}
+
+bool AndroidOpenSLES::open(Audio::MixerImpl *mixer, uint sample_rate,
+							uint period_frames) {
+	_mixer = mixer;
+	_sample_rate = sample_rate;
+	_period_bytes = period_frames * 2 * 2;
+	_next = 0;
+	_written = 0;
+	_output_latency.reset();
+
+	for (uint i = 0; i < kBuffers; ++i)
+		_buffers[i] = new byte[_period_bytes];
+
+	SL_CHECK(slCreateEngine(&_engine_object, 0, 0, 0, 0, 0),
+				"slCreateEngine");
+	SL_CHECK((*_engine_object)->Realize(_engine_object, SL_BOOLEAN_FALSE),
+				"engine Realize");
+	SL_CHECK((*_engine_object)->GetInterface(_engine_object, SL_IID_ENGINE,
+												&_engine),
+				"engine GetInterface");
+
+	SL_CHECK((*_engine)->CreateOutputMix(_engine, &_output_mix, 0, 0, 0),
+				"CreateOutputMix");
+	SL_CHECK((*_output_mix)->Realize(_output_mix, SL_BOOLEAN_FALSE),
+				"output mix Realize");
+
+	SLDataLocator_AndroidSimpleBufferQueue queue_locator = {
+		SL_DATALOCATOR_ANDROIDSIMPLEBUFFERQUEUE, kBuffers
+	};
+
+	// the mixer renders native endian 16 bit stereo
+	SLDataFormat_PCM format = {
+		SL_DATAFORMAT_PCM, 2, sample_rate * 1000,
+		SL_PCMSAMPLEFORMAT_FIXED_16, SL_PCMSAMPLEFORMAT_FIXED_16,
+		SL_SPEAKER_FRONT_LEFT | SL_SPEAKER_FRONT_RIGHT,
+		SL_BYTEORDER_LITTLEENDIAN
+	};
+
+	SLDataSource source = { &queue_locator, &format };
+
+	SLDataLocator_OutputMix mix_locator = {
+		SL_DATALOCATOR_OUTPUTMIX, _output_mix
+	};
+
+	SLDataSink sink = { &mix_locator, 0 };
+
+	const SLInterfaceID ids[] = { SL_IID_ANDROIDSIMPLEBUFFERQUEUE };
+	const SLboolean required[] = { SL_BOOLEAN_TRUE };
+
+	SL_CHECK((*_engine)->CreateAudioPlayer(_engine, &_player_object,
+											&source, &sink, 1, ids, required),
+				"CreateAudioPlayer");
+	SL_CHECK((*_player_object)->Realize(_player_object, SL_BOOLEAN_FALSE),
+				"player Realize");
+	SL_CHECK((*_player_object)->GetInterface(_player_object, SL_IID_PLAY,
+												&_player),
+				"player GetInterface(PLAY)");
+	SL_CHECK((*_player_object)->GetInterface(_player_object,
+											SL_IID_ANDROIDSIMPLEBUFFERQUEUE,
+											&_queue),
+				"player GetInterface(BUFFERQUEUE)");
+	SL_CHECK((*_queue)->RegisterCallback(_queue, bufferQueueCallback, this),
+				"RegisterCallback");
+
+	// prime the queue, every completed buffer is refilled from then on
+	for (uint i = 0; i < kBuffers; ++i) {
+		if (!enqueue()) {
+			close();
+			return false;
+		}
+	}
+
+	SL_CHECK((*_player)->SetPlayState(_player, SL_PLAYSTATE_PLAYING),
+				"SetPlayState");
+
+	return true;
+}
+
+void AndroidOpenSLES::close() {
+	if (_player_object) {
+		(*_player_object)->Destroy(_player_object);
+		_player_object = 0;
+		_player = 0;
+		_queue = 0;
+	}
+
+	if (_output_mix) {
+		(*_output_mix)->Destroy(_output_mix);
+		_output_mix = 0;
+	}
+
+	if (_engine_object) {
+		(*_engine_object)->Destroy(_engine_object);
+		_engine_object = 0;
+		_engine = 0;
+	}
+
+	for (uint i = 0; i < kBuffers; ++i) {
+		delete[] _buffers[i];
+		_buffers[i] = 0;
+	}
+}
+
+void AndroidOpenSLES::setPaused(bool paused) {
+	if (!_player)
+		return;
+
+	SLresult res = (*_player)->SetPlayState(_player, paused ?
+											SL_PLAYSTATE_PAUSED :
+											SL_PLAYSTATE_PLAYING);
+
+	if (res != SL_RESULT_SUCCESS)
+		LOGE("OpenSL ES error 0x%x: SetPlayState(%d)", (uint)res, paused);
+}
+
+uint AndroidOpenSLES::getLatency() const {
+	if (!_sample_rate)
+		return 0;
+
+	return kBuffers * _period_bytes * 1000 / (_sample_rate * 2 * 2);
+}
+
+bool AndroidOpenSLES::getClock(uint32 &written, uint32 &played) {
+	if (!_player)
+		return false;
+
+	SLuint32 state;
+	SLmillisecond pos;
+
+	if ((*_player)->GetPlayState(_player, &state) != SL_RESULT_SUCCESS ||
+			state != SL_PLAYSTATE_PLAYING ||
+			(*_player)->GetPosition(_player, &pos) != SL_RESULT_SUCCESS)
+		return false;
+
+	written = _written;
+	played = (uint32)((uint64)pos * _sample_rate / 1000);
+
+	if ((int32)(played - written) > 0)
+		played = written;
+
+	return true;
+}
+
+void AndroidOpenSLES::getLatencyStats(int32 *stats) const {
+	_output_latency.snapshot(stats);
+}
+
+bool AndroidOpenSLES::enqueue() {
+	byte *buf = _buffers[_next];
+
+	_next = (_next + 1) % kBuffers;
+
+	// the mixer leaves silence in what it doesn't fill
+	_mixer->mixCallback(buf, _period_bytes);
+
+	SLresult res = (*_queue)->Enqueue(_queue, buf, _period_bytes);
+
+	if (res != SL_RESULT_SUCCESS) {
+		LOGE("OpenSL ES error 0x%x: Enqueue", (uint)res);
+		return false;
+	}
+
+	_written += _period_bytes / (2 * 2);
+
+	uint32 written, played;
+
+	if (getClock(written, played))
+		_output_latency.add((written - played) * 1000 / _sample_rate);
+
+	return true;
+}
+
+// called on the platform's audio thread whenever a buffer was played
+void AndroidOpenSLES::bufferQueueCallback(SLAndroidSimpleBufferQueueItf queue,
+											void *context) {
+	((AndroidOpenSLES *)context)->enqueue();
+}
+
+#undef SL_CHECK
+
+#endif
+#endif
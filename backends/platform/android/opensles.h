@@ -0,0 +1,88 @@
+/* ScummVM - Graphic Adventure Engine
+ *
+ * ScummVM is the legal property of its developers, whose names
+ * are too numerous to list here. Please refer to the COPYRIGHT
+ * file distributed with this source distribution.
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU General Public License
+ * as published by the Free Software Foundation; either version 2
+ * of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program; if not, write to the Free Software
+ * Foundation, Inc., 51 Franklin Street, Fifth Floor, Boston, MA 02110-1301, USA.
+ *
+ */
+
+#ifndef _ANDROID_OPENSLES_H_
+#define _ANDROID_OPENSLES_H_
+
+#if defined(__ANDROID__) && defined(USE_OPENSLES)
+
+#include <SLES/OpenSLES.h>
+#include <SLES/OpenSLES_Android.h>
+
+#include "common/scummsys.h"
+
+#include "backends/platform/android/histogram.h"
+
+namespace Audio {
+class MixerImpl;
+}
+
+// Audio output through an OpenSL ES buffer queue. The mixer is pulled
+// from the queue's callback, which runs on the platform's own audio
+// thread, so there's neither a thread of ours nor a JNI call per period.
+class AndroidOpenSLES {
+public:
+	AndroidOpenSLES();
+	~AndroidOpenSLES();
+
+	// period_frames should be what the device mixes in, see
+	// AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER
+	bool open(Audio::MixerImpl *mixer, uint sample_rate, uint period_frames);
+	void close();
+
+	void setPaused(bool paused);
+
+	// what's queued on our side, the device adds its own
+	uint getLatency() const;
+
+	// frames enqueued and frames played since open(), see
+	// OSystem_Android::getAudioClock()
+	bool getClock(uint32 &written, uint32 &played);
+	void getLatencyStats(int32 *stats) const;
+
+private:
+	static const uint kBuffers = 2;
+
+	static void bufferQueueCallback(SLAndroidSimpleBufferQueueItf queue,
+									void *context);
+	bool enqueue();
+
+	SLObjectItf _engine_object;
+	SLEngineItf _engine;
+	SLObjectItf _output_mix;
+	SLObjectItf _player_object;
+	SLPlayItf _player;
+	SLAndroidSimpleBufferQueueItf _queue;
+
+	Audio::MixerImpl *_mixer;
+	uint _sample_rate;
+	uint _period_bytes;
+	byte *_buffers[kBuffers];
+	uint _next;
+
+	// only touched by the callback, after open()
+	volatile uint32 _written;
+	AndroidHistogram _output_latency;
+};
+
+#endif
+#endif
@@ -0,0 +1,150 @@
+package org.scummvm.scummvm;
+
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+ * Moves the mouse cursor with an analog stick.  Only ticks while the stick
+ * is deflected, and sends the movement of every tick as one relative
+ * JE_JOYSTICK event.  This class ticks off a Handler, see
+ * AnalogCursorJellyBean for the vsync driven version.
+ */
+public class AnalogCursor {
+	// Acceleration curves, applied to the deflection past the dead zone
+	public static final int CURVE_LINEAR = 0;
+	public static final int CURVE_QUADRATIC = 1;
+	public static final int CURVE_CUBIC = 2;
+
+	// Action of the relative move events, see JACTION_MULTIPLE in events.cpp
+	private static final int JACTION_MULTIPLE = 2;
+
+	// Fallback tick interval when there's no vsync to follow
+	private static final int TICK_MS = 16;
+
+	final protected ScummVM _scummvm;
+	final private Handler _handler = new Handler();
+
+	private int _curve = CURVE_QUADRATIC;
+	// InputDeviceState already applies the controller's dead zone
+	private float _deadzone = 0;
+	// Joystick units per second at full deflection, the native side
+	// scales them by _joystick_scale and the screen size
+	private float _speed = 4000;
+
+	private float _x = 0;
+	private float _y = 0;
+	private float _remainder_x = 0;
+	private float _remainder_y = 0;
+
+	private boolean _running = false;
+	private long _last_tick = 0;
+
+	final private Runnable _tick = new Runnable() {
+		public void run() {
+			onTick(SystemClock.uptimeMillis() * 1000000L);
+		}
+	};
+
+	public AnalogCursor(ScummVM scummvm) {
+		_scummvm = scummvm;
+	}
+
+	public void setCurve(int curve) {
+		_curve = curve;
+	}
+
+	public void setDeadzone(float deadzone) {
+		_deadzone = deadzone;
+	}
+
+	public void setSpeed(float speed) {
+		_speed = speed;
+	}
+
+	// Current stick position, in the range -1..1 for both axes
+	final public void setPosition(float x, float y) {
+		_x = x;
+		_y = y;
+
+		final boolean deflected = Math.abs(x) > _deadzone ||
+									Math.abs(y) > _deadzone;
+
+		if (deflected && !_running) {
+			_running = true;
+			_last_tick = 0;
+			_remainder_x = 0;
+			_remainder_y = 0;
+
+			scheduleTick();
+		} else if (!deflected && _running) {
+			stop();
+		}
+	}
+
+	final public void stop() {
+		if (!_running)
+			return;
+
+		_running = false;
+		cancelTick();
+	}
+
+	// Called on every tick, with the frame time in nanoseconds
+	final protected void onTick(long time) {
+		if (!_running)
+			return;
+
+		if (_last_tick != 0) {
+			// don't jump after a stall, like the activity being paused
+			final float dt = Math.min((time - _last_tick) / 1000000000.0f,
+										0.1f);
+
+			_remainder_x += applyCurve(_x) * _speed * dt;
+			_remainder_y += applyCurve(_y) * _speed * dt;
+
+			final int dx = (int)_remainder_x;
+			final int dy = (int)_remainder_y;
+
+			if (dx != 0 || dy != 0) {
+				_remainder_x -= dx;
+				_remainder_y -= dy;
+
+				_scummvm.pushEvent(ScummVMEvents.JE_JOYSTICK, JACTION_MULTIPLE,
+									dx, dy, 0, 0);
+			}
+		}
+
+		_last_tick = time;
+
+		scheduleTick();
+	}
+
+	final private float applyCurve(float v) {
+		final float a = Math.abs(v);
+
+		if (a <= _deadzone)
+			return 0;
+
+		// rescale what's left past the dead zone to 0..1
+		float m = Math.min((a - _deadzone) / (1.0f - _deadzone), 1.0f);
+
+		switch (_curve) {
+		case CURVE_QUADRATIC:
+			m *= m;
+			break;
+		case CURVE_CUBIC:
+			m *= m * m;
+			break;
+		}
+
+		return v < 0 ? -m : m;
+	}
+
+	protected void scheduleTick() {
+		_handler.postDelayed(_tick, TICK_MS);
+	}
+
+	protected void cancelTick() {
+		_handler.removeCallbacks(_tick);
+	}
+}
@@ -0,0 +1,33 @@
+package org.scummvm.scummvm;
+
+import android.view.Choreographer;
+
+/**
+ * AnalogCursor ticking on display vsync, which is available since
+ * Android 4.1.
+ */
+public class AnalogCursorJellyBean extends AnalogCursor
+		implements Choreographer.FrameCallback {
+	final private Choreographer _choreographer;
+
+	public AnalogCursorJellyBean(ScummVM scummvm) {
+		super(scummvm);
+
+		_choreographer = Choreographer.getInstance();
+	}
+
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		onTick(frameTimeNanos);
+	}
+
+	@Override
+	protected void scheduleTick() {
+		_choreographer.postFrameCallback(this);
+	}
+
+	@Override
+	protected void cancelTick() {
+		_choreographer.removeFrameCallback(this);
+	}
+}
@@ -0,0 +1,305 @@
+package org.scummvm.scummvm;
+
+import android.os.Build;
+import android.util.Log;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+import javax.microedition.khronos.egl.EGL10;
+
+/**
+ * Ranks EGL configs for ScummVM.chooseEglConfig().  Configs are handed
+ * over as their ATTRIBS values, a policy scores them, higher is better
+ * and negative rejects.
+ *
+ *   bandwidth - RGB565 without depth, stencil or MSAA, the least memory
+ *               traffic (the default)
+ *   fill      - 8 bits per channel without depth, stencil or MSAA, which
+ *               some GPUs fill faster than 565
+ *   quality   - 8 bits per channel, with up to 4x MSAA
+ *
+ * Configs marked EGL_SLOW_CONFIG or EGL_NON_CONFORMANT_CONFIG are ranked
+ * down, unless the caveat is ignored for the device.  Devices can get
+ * another policy from an override file, one device per line:
+ *
+ *   # device = policy [nocaveat]
+ *   mydevice = fill nocaveat
+ *
+ * where device is matched against Build.DEVICE, Build.MODEL and
+ * Build.HARDWARE, or is a prefix of Build.FINGERPRINT.
+ */
+public abstract class EglConfigPolicy {
+	// Keep in sync with the indices below
+	final public static int[] ATTRIBS = {
+		EGL10.EGL_CONFIG_ID,
+		EGL10.EGL_SURFACE_TYPE,
+		EGL10.EGL_CONFIG_CAVEAT,
+		EGL10.EGL_SAMPLES,
+		EGL10.EGL_RED_SIZE,
+		EGL10.EGL_GREEN_SIZE,
+		EGL10.EGL_BLUE_SIZE,
+		EGL10.EGL_ALPHA_SIZE,
+		EGL10.EGL_DEPTH_SIZE,
+		EGL10.EGL_STENCIL_SIZE
+	};
+
+	final public static int CONFIG_ID = 0;
+	final public static int SURFACE_TYPE = 1;
+	final public static int CONFIG_CAVEAT = 2;
+	final public static int SAMPLES = 3;
+	final public static int RED_SIZE = 4;
+	final public static int GREEN_SIZE = 5;
+	final public static int BLUE_SIZE = 6;
+	final public static int ALPHA_SIZE = 7;
+	final public static int DEPTH_SIZE = 8;
+	final public static int STENCIL_SIZE = 9;
+
+	final public static String BANDWIDTH = "bandwidth";
+	final public static String FILL = "fill";
+	final public static String QUALITY = "quality";
+
+	final private String _name;
+	private boolean _trust_caveat = true;
+
+	protected EglConfigPolicy(String name) {
+		_name = name;
+	}
+
+	// what a cached choice was made by
+	final public String getName() {
+		return _trust_caveat ? _name : _name + " nocaveat";
+	}
+
+	final public void setTrustCaveat(boolean trust) {
+		_trust_caveat = trust;
+	}
+
+	// the score, with the window surface and the caveat accounted for
+	final public int rate(int[] attribs) {
+		// must have
+		if ((attribs[SURFACE_TYPE] & EGL10.EGL_WINDOW_BIT) == 0)
+			return -1;
+
+		int score = score(attribs);
+
+		if (_trust_caveat && attribs[CONFIG_CAVEAT] != EGL10.EGL_NONE)
+			score -= 1000;
+
+		return score;
+	}
+
+	protected abstract int score(int[] attribs);
+
+	// +10 for at least size bits (exactly, for 0), minus the extra bits
+	final protected static int weightBits(int[] attribs, int index,
+											int size) {
+		final int value = attribs[index];
+
+		int score = 0;
+
+		if (value == size || (size > 0 && value > size))
+			score += 10;
+
+		// penalize for wasted bits
+		score -= value - size;
+
+		return score;
+	}
+
+	private static class Bandwidth extends EglConfigPolicy {
+		Bandwidth() {
+			super(BANDWIDTH);
+		}
+
+		protected int score(int[] a) {
+			int score = 10000;
+
+			// less MSAA is better
+			score -= a[SAMPLES] * 100;
+
+			// Must be at least 565, but then smaller is better
+			score += weightBits(a, RED_SIZE, 5);
+			score += weightBits(a, GREEN_SIZE, 6);
+			score += weightBits(a, BLUE_SIZE, 5);
+			score += weightBits(a, ALPHA_SIZE, 0);
+			score += weightBits(a, DEPTH_SIZE, 0);
+			score += weightBits(a, STENCIL_SIZE, 0);
+
+			return score;
+		}
+	}
+
+	private static class Fill extends EglConfigPolicy {
+		Fill() {
+			super(FILL);
+		}
+
+		protected int score(int[] a) {
+			int score = 10000;
+
+			score -= a[SAMPLES] * 100;
+
+			// 888, alpha doesn't matter as nothing blends with the window
+			score += weightBits(a, RED_SIZE, 8);
+			score += weightBits(a, GREEN_SIZE, 8);
+			score += weightBits(a, BLUE_SIZE, 8);
+			score += weightBits(a, DEPTH_SIZE, 0);
+			score += weightBits(a, STENCIL_SIZE, 0);
+
+			return score;
+		}
+	}
+
+	private static class Quality extends EglConfigPolicy {
+		Quality() {
+			super(QUALITY);
+		}
+
+		protected int score(int[] a) {
+			int score = 10000;
+
+			// smooths the scaled screen, more than 4x isn't worth it
+			score += Math.min(a[SAMPLES], 4) * 20;
+			score -= Math.max(a[SAMPLES] - 4, 0) * 20;
+
+			score += weightBits(a, RED_SIZE, 8);
+			score += weightBits(a, GREEN_SIZE, 8);
+			score += weightBits(a, BLUE_SIZE, 8);
+			score += weightBits(a, ALPHA_SIZE, 0);
+			score += weightBits(a, DEPTH_SIZE, 0);
+			score += weightBits(a, STENCIL_SIZE, 0);
+
+			return score;
+		}
+	}
+
+	// for the log, e.g. "[12] RGB565 W P"
+	public static String describe(int[] a) {
+		String s;
+
+		if (a[ALPHA_SIZE] > 0)
+			s = String.format("[%d] RGBA%d%d%d%d", a[CONFIG_ID], a[RED_SIZE],
+								a[GREEN_SIZE], a[BLUE_SIZE], a[ALPHA_SIZE]);
+		else
+			s = String.format("[%d] RGB%d%d%d", a[CONFIG_ID], a[RED_SIZE],
+								a[GREEN_SIZE], a[BLUE_SIZE]);
+
+		if (a[DEPTH_SIZE] > 0)
+			s += String.format(" D%d", a[DEPTH_SIZE]);
+
+		if (a[STENCIL_SIZE] > 0)
+			s += String.format(" S%d", a[STENCIL_SIZE]);
+
+		if (a[SAMPLES] > 0)
+			s += String.format(" MSAAx%d", a[SAMPLES]);
+
+		if ((a[SURFACE_TYPE] & EGL10.EGL_WINDOW_BIT) > 0)
+			s += " W";
+		if ((a[SURFACE_TYPE] & EGL10.EGL_PBUFFER_BIT) > 0)
+			s += " P";
+		if ((a[SURFACE_TYPE] & EGL10.EGL_PIXMAP_BIT) > 0)
+			s += " X";
+
+		switch (a[CONFIG_CAVEAT]) {
+		case EGL10.EGL_NONE:
+			break;
+
+		case EGL10.EGL_SLOW_CONFIG:
+			s += " SLOW";
+			break;
+
+		case EGL10.EGL_NON_CONFORMANT_CONFIG:
+			s += " NON_CONFORMANT";
+
+		default:
+			s += String.format(" unknown CAVEAT 0x%x", a[CONFIG_CAVEAT]);
+		}
+
+		return s;
+	}
+
+	// null for unknown names
+	public static EglConfigPolicy forName(String name) {
+		if (BANDWIDTH.equals(name))
+			return new Bandwidth();
+		if (FILL.equals(name))
+			return new Fill();
+		if (QUALITY.equals(name))
+			return new Quality();
+
+		return null;
+	}
+
+	// The policy of this device from the override file, else the named
+	// one, else bandwidth
+	public static EglConfigPolicy forDevice(String name, File overrides) {
+		EglConfigPolicy policy = null;
+
+		if (overrides != null && overrides.exists())
+			policy = readOverride(overrides);
+
+		if (policy == null)
+			policy = forName(name);
+
+		if (policy == null) {
+			if (name != null)
+				Log.w(ScummVM.LOG_TAG, "Unknown EGL config policy " + name);
+
+			policy = new Bandwidth();
+		}
+
+		return policy;
+	}
+
+	final private static EglConfigPolicy readOverride(File file) {
+		try {
+			BufferedReader in = new BufferedReader(new FileReader(file));
+
+			try {
+				String line;
+
+				while ((line = in.readLine()) != null) {
+					final int comment = line.indexOf('#');
+					if (comment >= 0)
+						line = line.substring(0, comment);
+
+					final int eq = line.indexOf('=');
+					if (eq < 0 || !matches(line.substring(0, eq).trim()))
+						continue;
+
+					final String[] rhs =
+						line.substring(eq + 1).trim().split("\\s+");
+					final EglConfigPolicy policy = forName(rhs[0]);
+
+					if (policy == null) {
+						Log.w(ScummVM.LOG_TAG, String.format(
+							"%s: unknown EGL config policy %s", file, rhs[0]));
+						continue;
+					}
+
+					if (rhs.length > 1 && rhs[1].equals("nocaveat"))
+						policy.setTrustCaveat(false);
+
+					return policy;
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			Log.e(ScummVM.LOG_TAG, "Unable to read " + file, e);
+		}
+
+		return null;
+	}
+
+	final private static boolean matches(String device) {
+		return device.length() > 0 &&
+				(device.equals(Build.DEVICE) || device.equals(Build.MODEL) ||
+					(Build.VERSION.SDK_INT >= Build.VERSION_CODES.FROYO &&
+						device.equals(Build.HARDWARE)) ||
+					Build.FINGERPRINT.startsWith(device));
+	}
+}
@@ -0,0 +1,120 @@
+package org.scummvm.scummvm;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * Records the input event stream as it enters ScummVM.queueEvent() and
+ * queueSample(), so a session can be replayed with EventReplayer.
+ *
+ * The file starts with MAGIC and VERSION, followed by records of one kind
+ * byte and the time in ms since the recording started.  Events and
+ * samples add the type as a short and the five arguments as ints, flush
+ * records mark where ScummVM published a batch to the engine, held back
+ * moves and full rings included, so the replay keeps the batching (and
+ * with it the coalescing) of the original.
+ *
+ * Records go through a large buffer, the recorder is meant for benchmark
+ * sessions and not for shipping builds.
+ */
+public class EventRecorder {
+	final public static int MAGIC = 0x53564d49; // SVMI
+	final public static int VERSION = 1;
+
+	final public static int KIND_EVENT = 0;
+	final public static int KIND_SAMPLE = 1;
+	final public static int KIND_FLUSH = 2;
+
+	final private static int BUFFER_SIZE = 64 * 1024;
+
+	final private File _file;
+	final private long _start;
+	private DataOutputStream _out;
+
+	// whether there are events since the last flush record
+	private boolean _pending = false;
+	private int _records = 0;
+
+	public EventRecorder(File file) throws IOException {
+		_file = file;
+		_out = new DataOutputStream(new BufferedOutputStream(
+										new FileOutputStream(file),
+										BUFFER_SIZE));
+		_start = SystemClock.uptimeMillis();
+
+		_out.writeInt(MAGIC);
+		_out.writeInt(VERSION);
+	}
+
+	// Called by ScummVM on the UI thread, like flush()
+	final void record(int kind, int type, int arg1, int arg2, int arg3,
+						int arg4, int arg5, long time) {
+		if (_out == null)
+			return;
+
+		try {
+			_out.writeByte(kind);
+			_out.writeInt((int)(time - _start));
+			_out.writeShort(type);
+			_out.writeInt(arg1);
+			_out.writeInt(arg2);
+			_out.writeInt(arg3);
+			_out.writeInt(arg4);
+			_out.writeInt(arg5);
+
+			_pending = true;
+			_records++;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	final void flush() {
+		if (_out == null || !_pending)
+			return;
+
+		try {
+			_out.writeByte(KIND_FLUSH);
+			_out.writeInt((int)(SystemClock.uptimeMillis() - _start));
+
+			_pending = false;
+		} catch (IOException e) {
+			fail(e);
+		}
+	}
+
+	public void close() {
+		if (_out == null)
+			return;
+
+		flush();
+
+		try {
+			_out.close();
+
+			Log.i(ScummVM.LOG_TAG, String.format(
+				"Recorded %d input events to %s", _records, _file));
+		} catch (IOException e) {
+			Log.e(ScummVM.LOG_TAG, "Error closing input recording", e);
+		}
+
+		_out = null;
+	}
+
+	final private void fail(IOException e) {
+		Log.e(ScummVM.LOG_TAG, "Input recording to " + _file + " failed", e);
+
+		try {
+			_out.close();
+		} catch (IOException ignored) {
+		}
+
+		_out = null;
+	}
+}
@@ -0,0 +1,248 @@
+package org.scummvm.scummvm;
+
+import android.os.Handler;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Feeds a file written by EventRecorder back into ScummVM, through the
+ * same queueEvent()/queueSample()/flushEvents() calls the input listeners
+ * use.  Either at the original pace or as fast as the engine consumes
+ * the events, in which case full rings are waited for instead of dropped.
+ *
+ * The file is read on a thread of its own, which hands the records to
+ * the UI thread one flushed batch at a time, as the event ring takes no
+ * other producer.  A batch which doesn't fit into the ring is queued as
+ * far as there's room, the rest once the engine made some, so the UI
+ * thread never waits for the engine.
+ *
+ * Replaying starts once the engine is attached to the event ring, with
+ * the first record right away and the others at their offset from it,
+ * however late into the recording that came.  Events are stamped with
+ * their replayed time so the input latency stats stay meaningful.
+ */
+public class EventReplayer implements Runnable {
+	final private ScummVM _scummvm;
+	final private File _file;
+	final private boolean _fast;
+	// the UI thread, it's created there
+	final private Handler _handler = new Handler();
+
+	// ms between looking for room in a full ring
+	final private static int WAIT_SLICE = 2;
+	// ms to wait for the UI thread before checking whether to stop
+	final private static int POST_TIMEOUT = 100;
+
+	// Records handed to the UI thread at once, far less than the ring
+	// holds. Each is the kind, type, five arguments and time
+	final private static int BATCH_SIZE = 64;
+	final private static int RECORD_INTS = 8;
+
+	final private int[] _batch = new int[BATCH_SIZE * RECORD_INTS];
+	private int _batch_count = 0;
+	// how many of the batch the UI thread queued so far
+	private int _batch_queued = 0;
+	// publish the batch once it's all queued
+	private boolean _batch_flush = false;
+	private boolean _batch_posted = false;
+	private long _start = 0;
+
+	private volatile boolean _stopped = false;
+
+	final private Runnable _queue_batch = new Runnable() {
+		public void run() {
+			queueBatch();
+
+			synchronized(EventReplayer.this) {
+				_batch_posted = false;
+				EventReplayer.this.notifyAll();
+			}
+		}
+	};
+
+	public EventReplayer(ScummVM scummvm, File file, boolean fast) {
+		_scummvm = scummvm;
+		_file = file;
+		_fast = fast;
+	}
+
+	public void start() {
+		new Thread(this, "ScummVM replay").start();
+	}
+
+	public void stop() {
+		_stopped = true;
+	}
+
+	public void run() {
+		DataInputStream in = null;
+
+		try {
+			in = new DataInputStream(new BufferedInputStream(
+										new FileInputStream(_file)));
+
+			if (in.readInt() != EventRecorder.MAGIC ||
+					in.readInt() != EventRecorder.VERSION) {
+				Log.e(ScummVM.LOG_TAG, _file + " is no input recording");
+				return;
+			}
+
+			while (!_scummvm.isEventRingAttached()) {
+				if (_stopped)
+					return;
+
+				SystemClock.sleep(10);
+			}
+
+			replay(in);
+		} catch (IOException e) {
+			Log.e(ScummVM.LOG_TAG, "Error replaying " + _file, e);
+		} finally {
+			if (in != null) {
+				try {
+					in.close();
+				} catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	// UI thread: queue the batch, as far as there's room in fast mode
+	final private void queueBatch() {
+		while (_batch_queued < _batch_count) {
+			if (_fast && _scummvm.getEventRingSpace() == 0) {
+				// let the engine have what fits, the rest comes later
+				_scummvm.flushEvents();
+				return;
+			}
+
+			final int i = _batch_queued++ * RECORD_INTS;
+			final long time = _fast ? SystemClock.uptimeMillis() :
+										_start + _batch[i + 7];
+
+			if (_batch[i] == EventRecorder.KIND_SAMPLE)
+				_scummvm.queueSample(_batch[i + 1], _batch[i + 2],
+										_batch[i + 3], _batch[i + 4],
+										_batch[i + 5], _batch[i + 6], time);
+			else
+				_scummvm.queueEvent(_batch[i + 1], _batch[i + 2],
+									_batch[i + 3], _batch[i + 4],
+									_batch[i + 5], _batch[i + 6], time);
+		}
+
+		if (_batch_flush)
+			_scummvm.flushEvents();
+	}
+
+	// Hands the batch to the UI thread and waits until that queued it.
+	// False if replaying stopped or the engine detached in the meantime
+	final private synchronized boolean postBatch() {
+		if (_stopped || !_scummvm.isEventRingAttached())
+			return false;
+
+		_batch_posted = true;
+		_handler.post(_queue_batch);
+
+		while (_batch_posted) {
+			if (_stopped)
+				return false;
+
+			try {
+				wait(POST_TIMEOUT);
+			} catch (InterruptedException e) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	// Reads records up to the next flush into the batch, or as many as
+	// fit. Returns the time of the last one read, -1 at the end
+	final private int readBatch(DataInputStream in) throws IOException {
+		int time = -1;
+
+		_batch_count = 0;
+		_batch_queued = 0;
+		_batch_flush = false;
+
+		while (_batch_count < BATCH_SIZE) {
+			int kind;
+
+			try {
+				kind = in.readByte();
+			} catch (EOFException e) {
+				// publish whatever is left
+				_batch_flush = true;
+				break;
+			}
+
+			time = in.readInt();
+
+			if (kind == EventRecorder.KIND_FLUSH) {
+				_batch_flush = true;
+				break;
+			}
+
+			final int i = _batch_count++ * RECORD_INTS;
+
+			_batch[i] = kind;
+			_batch[i + 1] = in.readShort();
+			_batch[i + 2] = in.readInt();
+			_batch[i + 3] = in.readInt();
+			_batch[i + 4] = in.readInt();
+			_batch[i + 5] = in.readInt();
+			_batch[i + 6] = in.readInt();
+			_batch[i + 7] = time;
+		}
+
+		return time;
+	}
+
+	final private void replay(DataInputStream in) throws IOException {
+		final long begin = SystemClock.uptimeMillis();
+		int records = 0;
+
+		_start = -1;
+
+		while (!_stopped) {
+			final int time = readBatch(in);
+
+			// record times count from when the recording started, the
+			// replay from the first record
+			if (_start < 0 && time >= 0)
+				_start = SystemClock.uptimeMillis() -
+							(_batch_count > 0 ? _batch[7] : time);
+
+			if (!_fast && time >= 0) {
+				final long delay = _start + time - SystemClock.uptimeMillis();
+
+				if (delay > 0)
+					SystemClock.sleep(delay);
+			}
+
+			boolean posted = postBatch();
+
+			while (posted && _batch_queued < _batch_count) {
+				SystemClock.sleep(WAIT_SLICE);
+				posted = postBatch();
+			}
+
+			records += _batch_queued;
+
+			if (!posted || time < 0)
+				break;
+		}
+
+		Log.i(ScummVM.LOG_TAG, String.format(
+			"Replayed %d input events from %s in %d ms%s", records, _file,
+			SystemClock.uptimeMillis() - begin, _fast ? " (fast)" : ""));
+	}
+}
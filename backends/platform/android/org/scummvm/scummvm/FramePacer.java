@@ -0,0 +1,73 @@
+package org.scummvm.scummvm;
+
+import android.view.Choreographer;
+
+/**
+ * Publishes display vsync to the native side, which paces its presents
+ * to it, see ScummVM.setVsync(). Choreographer is available since
+ * Android 4.1.
+ */
+public class FramePacer implements Choreographer.FrameCallback {
+	// deltas further off than this from the period are missed callbacks
+	// or hiccups, and don't refine it
+	final private static double PERIOD_TOLERANCE = 0.25;
+	// weight of a new delta in the refined period
+	final private static double PERIOD_SMOOTHING = 1.0 / 16;
+
+	final private ScummVM _scummvm;
+	final private Choreographer _choreographer;
+
+	private double _period;
+	private long _last_frame = 0;
+	private boolean _running = false;
+
+	// refresh_rate is the display's, in Hz, as a first guess at the period
+	public FramePacer(ScummVM scummvm, float refresh_rate) {
+		_scummvm = scummvm;
+		_choreographer = Choreographer.getInstance();
+
+		if (refresh_rate < 1)
+			refresh_rate = 60;
+
+		_period = 1000000000.0 / refresh_rate;
+	}
+
+	// Has to be called on the UI thread, like stop()
+	public void start() {
+		if (_running)
+			return;
+
+		_running = true;
+		_last_frame = 0;
+		_choreographer.postFrameCallback(this);
+	}
+
+	public void stop() {
+		if (!_running)
+			return;
+
+		_running = false;
+		_choreographer.removeFrameCallback(this);
+	}
+
+	@Override
+	public void doFrame(long frameTimeNanos) {
+		if (!_running)
+			return;
+
+		if (_last_frame != 0) {
+			final long delta = frameTimeNanos - _last_frame;
+			final long vsyncs = Math.max(Math.round(delta / _period), 1);
+			final double sample = (double)delta / vsyncs;
+
+			if (Math.abs(sample - _period) < _period * PERIOD_TOLERANCE)
+				_period += (sample - _period) * PERIOD_SMOOTHING;
+		}
+
+		_last_frame = frameTimeNanos;
+
+		_scummvm.setVsync(frameTimeNanos, (long)_period);
+
+		_choreographer.postFrameCallback(this);
+	}
+}
@@ -0,0 +1,443 @@
+package org.scummvm.scummvm;
+
+import android.content.Context;
+import android.os.Build;
+import android.os.Debug;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.util.Log;
+import android.view.InputDevice;
+import android.view.KeyEvent;
+import android.view.MotionEvent;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Measures the java input translation layer on the device: the cost per
+ * event of ScummVMEvents.onKey(), injectKey(), onTouch(), onGenericMotion()
+ * and MouseHelper.onMouseEvent(), in ns and allocations.  The events are
+ * built up front and fed to a ScummVM instance which has no native peer,
+ * so everything up to the event ring is measured and the records are
+ * dropped at the flush.
+ *
+ * Synthetic motion events have no InputDevice, so the joystick mix needs
+ * a connected controller to build its events for.  Without one it's
+ * reported as unsupported, and the mixed one goes without the stick.
+ *
+ * Runs on a looper thread of its own, the gesture detector and the analog
+ * cursor need one, one mix per message so what the last one posted runs
+ * in between.  Allocations are counted with the (deprecated, but still
+ * working) Debug alloc counters, which slow down allocating paths, so the
+ * timing of runs with allocations is an upper bound.
+ *
+ * The same mixes run on a plain JVM with JMH, see the jvm directory.
+ */
+public class InputBenchmark {
+	final private static int WARMUP = 2000;
+	final private static int ITERATIONS = 20000;
+
+	final static String[] MIXES = {
+		"key", "inject", "touch", "mouse", "joystick", "mixed"
+	};
+
+	final private Context _context;
+	final private File _file;
+	final private Runnable _done;
+
+	private ScummVM _scummvm;
+	private ScummVMEvents _events;
+	private MouseHelper _mouseHelper;
+
+	private HandlerThread _thread;
+	private Handler _handler;
+	private PrintWriter _out;
+	private int _mix = 0;
+
+	// A ScummVM which never gets a native peer
+	private static class DetachedScummVM extends ScummVM {
+		public DetachedScummVM() {
+			super(null, null);
+		}
+
+		@Override
+		protected void getDPI(float[] values) {
+			values[0] = values[1] = 160;
+		}
+
+		@Override
+		protected void displayMessageOnOSD(String msg) {
+		}
+
+		@Override
+		protected void setWindowCaption(String caption) {
+		}
+
+		@Override
+		protected String[] getPluginDirectories() {
+			return new String[0];
+		}
+
+		@Override
+		protected void showVirtualKeyboard(boolean enable) {
+		}
+
+		@Override
+		protected String[] getSysArchives() {
+			return new String[0];
+		}
+	}
+
+	// done is run on the benchmark thread once the results are written
+	public InputBenchmark(Context context, File file, Runnable done) {
+		_context = context;
+		_file = file;
+		_done = done;
+	}
+
+	// Feeds the mixes to scummvm instead, on the calling thread, which
+	// has to have a looper. For the JVM benchmarks
+	InputBenchmark(Context context, ScummVM scummvm) {
+		_context = context;
+		_file = null;
+		_done = null;
+
+		setUp(scummvm);
+	}
+
+	public void start() {
+		// synthetic events need MotionEvent.setSource()
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB_MR1) {
+			Log.e(ScummVM.LOG_TAG, "Input benchmark needs API 12");
+
+			if (_done != null)
+				_done.run();
+
+			return;
+		}
+
+		_thread = new HandlerThread("ScummVM input benchmark");
+		_thread.start();
+
+		_handler = new Handler(_thread.getLooper());
+		_handler.post(new Runnable() {
+			public void run() {
+				setUp(new DetachedScummVM());
+
+				try {
+					_out = new PrintWriter(new FileWriter(_file));
+				} catch (IOException e) {
+					Log.e(ScummVM.LOG_TAG,
+							"Unable to write benchmark to " + _file, e);
+					finish();
+					return;
+				}
+
+				_out.println("mix,events,ns_per_event,allocs_per_event");
+				_handler.post(_next_mix);
+			}
+		});
+	}
+
+	final private void setUp(ScummVM scummvm) {
+		_scummvm = scummvm;
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH)
+			_mouseHelper = new MouseHelper(_scummvm);
+
+		_events = new ScummVMEventsHoneycomb(_context, _scummvm, _mouseHelper);
+	}
+
+	final private Runnable _next_mix = new Runnable() {
+		public void run() {
+			if (_mix == MIXES.length) {
+				_out.close();
+				finish();
+				return;
+			}
+
+			measureMix(MIXES[_mix++]);
+			_handler.post(this);
+		}
+	};
+
+	final private void finish() {
+		_events.stopAnalogCursor();
+		_thread.quit();
+
+		if (_done != null)
+			_done.run();
+	}
+
+	final private void measureMix(String mix) {
+		final Object[] events = getEvents(mix);
+
+		if (events == null) {
+			Log.w(ScummVM.LOG_TAG, "Input benchmark: no " + mix);
+			_out.println(mix + ",0,unsupported,unsupported");
+			return;
+		}
+
+		if (mix.equals("mixed") && joystickEvents() == null)
+			mix = "mixed_no_joystick";
+
+		// queues straight away, without any event to translate
+		if (measure(mix, events) > 0 && mix.equals("inject"))
+			Log.w(ScummVM.LOG_TAG, "Input benchmark: injectKey() allocates");
+	}
+
+	// The events of a mix, null if it's not supported here: the mouse
+	// needs API 14, the joystick a connected one. Without that, the mixed
+	// one goes without the stick
+	final Object[] getEvents(String mix) {
+		if (mix.equals("key"))
+			return keyEvents();
+		if (mix.equals("inject"))
+			return injectEvents();
+		if (mix.equals("touch"))
+			return touchEvents();
+		if (mix.equals("mouse"))
+			return _mouseHelper != null ? mouseEvents() : null;
+
+		final Object[] sticks = joystickEvents();
+
+		if (mix.equals("joystick"))
+			return sticks;
+		if (mix.equals("mixed"))
+			return mixedEvents(sticks != null ? sticks : new Object[0]);
+
+		throw new IllegalArgumentException("Unknown input mix " + mix);
+	}
+
+	// returns the allocations per event
+	final private double measure(String mix, Object[] events) {
+		for (int i = 0; i < WARMUP; ++i)
+			dispatch(events[i % events.length]);
+
+		long start = System.nanoTime();
+
+		for (int i = 0; i < ITERATIONS; ++i)
+			dispatch(events[i % events.length]);
+
+		final long ns = System.nanoTime() - start;
+
+		Debug.resetThreadAllocCount();
+		Debug.startAllocCounting();
+
+		for (int i = 0; i < ITERATIONS; ++i)
+			dispatch(events[i % events.length]);
+
+		Debug.stopAllocCounting();
+
+		final int allocs = Debug.getThreadAllocCount();
+
+		final String line = String.format("%s,%d,%.1f,%.3f", mix, ITERATIONS,
+									(double)ns / ITERATIONS,
+									(double)allocs / ITERATIONS);
+
+		Log.i(ScummVM.LOG_TAG, "Input benchmark: " + line);
+		_out.println(line);
+
+		return (double)allocs / ITERATIONS;
+	}
+
+	// Events are either KeyEvents, Injects, touch/joystick MotionEvents or
+	// mouse MotionEvents wrapped in a Hover
+	final void dispatch(Object event) {
+		if (event instanceof KeyEvent) {
+			final KeyEvent e = (KeyEvent)event;
+
+			_events.onKey(null, e.getKeyCode(), e);
+		} else if (event instanceof Inject) {
+			final Inject i = (Inject)event;
+
+			_events.injectKey(i.keyCode, i.action);
+			_scummvm.flushEvents();
+		} else if (event instanceof Hover) {
+			final Hover h = (Hover)event;
+
+			_mouseHelper.onMouseEvent(h.event, h.hover);
+		} else {
+			final MotionEvent e = (MotionEvent)event;
+
+			if ((e.getSource() & InputDevice.SOURCE_CLASS_JOYSTICK) != 0)
+				_events.onGenericMotion(null, e);
+			else
+				_events.onTouch(null, e);
+		}
+	}
+
+	private static class Inject {
+		final int keyCode;
+		final int action;
+
+		Inject(int keyCode, int action) {
+			this.keyCode = keyCode;
+			this.action = action;
+		}
+	}
+
+	private static class Hover {
+		final MotionEvent event;
+		final boolean hover;
+
+		Hover(MotionEvent event, boolean hover) {
+			this.event = event;
+			this.hover = hover;
+		}
+	}
+
+	// typing, with some cursor keys in between
+	final private static Object[] keyEvents() {
+		final int[] codes = {
+			KeyEvent.KEYCODE_A, KeyEvent.KEYCODE_A + 4, KeyEvent.KEYCODE_SPACE,
+			KeyEvent.KEYCODE_A + 11, KeyEvent.KEYCODE_DPAD_LEFT,
+			KeyEvent.KEYCODE_DPAD_RIGHT, KeyEvent.KEYCODE_ENTER,
+			KeyEvent.KEYCODE_ESCAPE
+		};
+		final Object[] events = new Object[codes.length * 2];
+
+		for (int i = 0; i < codes.length; ++i) {
+			events[i * 2] = new KeyEvent(0, 0, KeyEvent.ACTION_DOWN,
+											codes[i], 0);
+			events[i * 2 + 1] = new KeyEvent(0, 50, KeyEvent.ACTION_UP,
+												codes[i], 0);
+		}
+
+		return events;
+	}
+
+	// the keys of keyEvents(), as a mapped controller button sends them
+	final private static Object[] injectEvents() {
+		final Object[] keys = keyEvents();
+		final Object[] events = new Object[keys.length];
+
+		for (int i = 0; i < keys.length; ++i) {
+			final KeyEvent e = (KeyEvent)keys[i];
+
+			events[i] = new Inject(e.getKeyCode(), e.getAction());
+		}
+
+		return events;
+	}
+
+	// a tap followed by a drag across the screen
+	final private static Object[] touchEvents() {
+		final Object[] events = new Object[34];
+
+		events[0] = touch(0, 0, MotionEvent.ACTION_DOWN, 100, 100);
+		events[1] = touch(0, 60, MotionEvent.ACTION_UP, 100, 100);
+		events[2] = touch(500, 500, MotionEvent.ACTION_DOWN, 100, 200);
+
+		for (int i = 0; i < 30; ++i)
+			events[3 + i] = touch(500, 516 + i * 16, MotionEvent.ACTION_MOVE,
+									100 + i * 20, 200 + i * 5);
+
+		events[33] = touch(500, 1000, MotionEvent.ACTION_UP, 700, 350);
+
+		return events;
+	}
+
+	// hovering around, with a click in between
+	final private static Object[] mouseEvents() {
+		final Object[] events = new Object[40];
+
+		for (int i = 0; i < 36; ++i)
+			events[i] = new Hover(mouse(i * 8, MotionEvent.ACTION_HOVER_MOVE,
+										200 + i * 10, 300 - i * 4), true);
+
+		events[36] = new Hover(mouse(300, MotionEvent.ACTION_DOWN,
+										560, 156), false);
+		events[37] = new Hover(mouse(360, MotionEvent.ACTION_UP,
+										560, 156), false);
+		events[38] = new Hover(mouse(400, MotionEvent.ACTION_HOVER_MOVE,
+										562, 158), true);
+		events[39] = new Hover(mouse(410, MotionEvent.ACTION_HOVER_MOVE,
+										564, 160), true);
+
+		return events;
+	}
+
+	// The stick pushed around in a circle, with the hat tapped left and
+	// right in between, as the first connected joystick. null without one
+	final private static Object[] joystickEvents() {
+		final int deviceId = findJoystick();
+
+		if (deviceId < 0)
+			return null;
+
+		final Object[] events = new Object[32];
+		final int[] pointerIds = { 0 };
+
+		for (int i = 0; i < events.length; ++i) {
+			final double a = i * 2 * Math.PI / events.length;
+			final MotionEvent.PointerCoords c = new MotionEvent.PointerCoords();
+
+			c.setAxisValue(MotionEvent.AXIS_X, (float)Math.cos(a));
+			c.setAxisValue(MotionEvent.AXIS_Y, (float)Math.sin(a));
+			c.setAxisValue(MotionEvent.AXIS_HAT_X,
+							i % 8 == 2 ? -1 : i % 8 == 6 ? 1 : 0);
+
+			events[i] = MotionEvent.obtain(0, i * 16, MotionEvent.ACTION_MOVE,
+									1, pointerIds,
+									new MotionEvent.PointerCoords[] { c },
+									0, 1, 1, deviceId, 0,
+									InputDevice.SOURCE_JOYSTICK, 0);
+		}
+
+		return events;
+	}
+
+	// -1 if there's none
+	final private static int findJoystick() {
+		for (int id : InputDevice.getDeviceIds()) {
+			final InputDevice device = InputDevice.getDevice(id);
+
+			if (device != null && (device.getSources() &
+					InputDevice.SOURCE_CLASS_JOYSTICK) != 0)
+				return id;
+		}
+
+		return -1;
+	}
+
+	// roughly what a point and click session looks like
+	final private static Object[] mixedEvents(Object[] sticks) {
+		final Object[] keys = keyEvents();
+		final Object[] touches = touchEvents();
+		final Object[] events = new Object[keys.length + touches.length +
+											sticks.length];
+		int n = 0;
+
+		for (int i = 0; i < touches.length; ++i) {
+			events[n++] = touches[i];
+
+			if (i < keys.length)
+				events[n++] = keys[i];
+			if (i < sticks.length)
+				events[n++] = sticks[i];
+		}
+
+		return events;
+	}
+
+	final private static MotionEvent touch(long down, long time, int action,
+											float x, float y) {
+		final MotionEvent e = MotionEvent.obtain(down, time, action, x, y, 0);
+
+		e.setSource(InputDevice.SOURCE_TOUCHSCREEN);
+
+		return e;
+	}
+
+	final private static MotionEvent mouse(long time, int action, float x,
+											float y) {
+		final MotionEvent e = MotionEvent.obtain(0, time, action, x, y, 0);
+
+		e.setSource(InputDevice.SOURCE_MOUSE);
+
+		return e;
+	}
+}
@@ -0,0 +1,172 @@
+package org.scummvm.scummvm;
+
+import android.view.InputDevice;
+import android.view.InputDevice.MotionRange;
+import android.view.MotionEvent;
+
+import java.util.List;
+
+/**
+ * Tracks the joystick axes of one input device.  Raw axis values are dead
+ * zoned and rescaled, and every axis gets a discrete state (-1, 0 or 1)
+ * with hysteresis, so callers can react to edges instead of comparing
+ * thresholds themselves.  All tables are primitive arrays sized once per
+ * device, nothing is allocated while processing motion events.
+ */
+class InputDeviceState {
+	final private static int T_AXES = Tracer.defineObject(Tracer.VERBOSE, "%s");
+
+	public interface AxisListener {
+		// states are -1 or 1 past the threshold, 0 when centered
+		void onAxisEdge(InputDeviceState device, int axis, int oldState,
+						int newState);
+	}
+
+	final private InputDevice _device;
+
+	// per axis tables, indexed in the order of the device's motion ranges
+	final private int[] _axes;
+	final private float[] _deadzones;
+	final private float[] _values;
+	final private int[] _states;
+
+	private float _threshold;
+	private float _hysteresis;
+
+	public InputDeviceState(InputDevice device, float deadzone,
+							float threshold, float hysteresis) {
+		_device = device;
+		_threshold = threshold;
+		_hysteresis = hysteresis;
+
+		int numAxes = 0;
+		final List<MotionRange> ranges = device.getMotionRanges();
+		for (MotionRange range : ranges) {
+			if ((range.getSource() & InputDevice.SOURCE_CLASS_JOYSTICK) != 0)
+				numAxes++;
+		}
+
+		_axes = new int[numAxes];
+		_deadzones = new float[numAxes];
+		_values = new float[numAxes];
+		_states = new int[numAxes];
+
+		int i = 0;
+		for (MotionRange range : ranges) {
+			if ((range.getSource() & InputDevice.SOURCE_CLASS_JOYSTICK) != 0) {
+				_axes[i] = range.getAxis();
+				// the device knows best how much its sticks wobble
+				_deadzones[i] = Math.max(deadzone, range.getFlat());
+				i++;
+			}
+		}
+	}
+
+	public InputDevice getDevice() {
+		return _device;
+	}
+
+	public void setThreshold(float threshold, float hysteresis) {
+		_threshold = threshold;
+		_hysteresis = hysteresis;
+	}
+
+	public int getAxisCount() {
+		return _axes.length;
+	}
+
+	public int getAxis(int index) {
+		return _axes[index];
+	}
+
+	// Index of an axis in the tables, -1 if the device doesn't have it
+	public int indexOfAxis(int axis) {
+		for (int i = 0; i < _axes.length; ++i)
+			if (_axes[i] == axis)
+				return i;
+
+		return -1;
+	}
+
+	// Dead zoned value, rescaled to -1..1
+	public float getAxisValue(int index) {
+		return index < 0 ? 0 : _values[index];
+	}
+
+	public int getAxisState(int index) {
+		return index < 0 ? 0 : _states[index];
+	}
+
+	// Feed a motion event, including its historical samples so no edge
+	// in between gets lost.  Returns true if any axis changed its state.
+	public boolean onJoystickMotion(MotionEvent event, AxisListener listener) {
+		boolean changed = false;
+
+		final int historySize = event.getHistorySize();
+		for (int pos = 0; pos < historySize; ++pos) {
+			for (int i = 0; i < _axes.length; ++i)
+				changed |= update(i,
+							event.getHistoricalAxisValue(_axes[i], pos),
+							listener);
+		}
+
+		for (int i = 0; i < _axes.length; ++i)
+			changed |= update(i, event.getAxisValue(_axes[i]), listener);
+
+		if (Tracer.MIN_LEVEL <= Tracer.VERBOSE && Tracer.on(Tracer.VERBOSE))
+			Tracer.trace(T_AXES, describe());
+
+		return changed;
+	}
+
+	final private boolean update(int i, float raw, AxisListener listener) {
+		final float deadzone = _deadzones[i];
+		final float a = Math.abs(raw);
+		float v = 0;
+
+		if (a > deadzone) {
+			v = Math.min((a - deadzone) / (1.0f - deadzone), 1.0f);
+
+			if (raw < 0)
+				v = -v;
+		}
+
+		_values[i] = v;
+
+		final int old = _states[i];
+		int state = old;
+
+		// enter a state at the threshold, leave it only once the axis
+		// is back past threshold - hysteresis
+		if (v >= _threshold)
+			state = 1;
+		else if (v <= -_threshold)
+			state = -1;
+		else if (old != 0 && Math.abs(v) < _threshold - _hysteresis)
+			state = 0;
+
+		if (state == old)
+			return false;
+
+		_states[i] = state;
+
+		if (listener != null)
+			listener.onAxisEdge(this, _axes[i], old, state);
+
+		return true;
+	}
+
+	// Diagnostics, only built when asked for
+	public String describe() {
+		StringBuilder message = new StringBuilder();
+		message.append(_device.getName()).append(" - Joystick Motion:\n");
+
+		for (int i = 0; i < _axes.length; ++i) {
+			message.append("  ").append(MotionEvent.axisToString(_axes[i]))
+				.append(": ").append(_values[i])
+				.append(" [").append(_states[i]).append("]\n");
+		}
+
+		return message.toString();
+	}
+}
@@ -0,0 +1,294 @@
+package org.scummvm.scummvm;
+
+import android.os.Build;
+import android.os.FileObserver;
+import android.util.Log;
+import android.view.InputDevice;
+import android.view.KeyEvent;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+
+/**
+ * Decides what a key does, per source class: pass it on as a key, a d-pad
+ * or gamepad button or a system key, synthesise another key instead, or
+ * drop it.  Routes are precomputed into one flat table, so routing a key
+ * is a single array lookup.
+ *
+ * The defaults match what ScummVMEvents always did.  A user editable
+ * profile can override them, one route per line:
+ *
+ *   # source key = action [target]
+ *   gamepad BUTTON_A = key ENTER
+ *   gamepad BUTTON_B = system BACK
+ *   any BUTTON_L1 = drop
+ *
+ * Sources are keyboard (everything which isn't a controller), gamepad or
+ * any.  Actions are key, dpad, gamepad, system, drop and ignore (not
+ * handled, the framework gets it).  Keys are given by their KeyEvent
+ * name, with or without the KEYCODE_ prefix, or by number.  The target
+ * defaults to the key itself.  The table is rebuilt and swapped in as a
+ * whole when the profile changes, see watch().
+ */
+public class KeyRouter {
+	final private static int T_PROFILE =
+		Tracer.defineObject(Tracer.INFO, "key profile %s: %d routes");
+
+	// route kinds, see kind()
+	final public static int ROUTE_KEY = 0;
+	final public static int ROUTE_IGNORE = 1;
+	final public static int ROUTE_DROP = 2;
+	final public static int ROUTE_SYSTEM = 3;
+	final public static int ROUTE_DPAD = 4;
+	final public static int ROUTE_GAMEPAD = 5;
+
+	final private static String[] ROUTE_NAMES = {
+		"key", "ignore", "drop", "system", "dpad", "gamepad"
+	};
+
+	final public static int CLASS_KEYBOARD = 0;
+	final public static int CLASS_GAMEPAD = 1;
+	final private static int CLASSES = 2;
+
+	// keycodes past this are always routed as plain keys
+	final private static int TABLE_SIZE = 512;
+
+	// undocumented, sent on ACTION_HOVER_ENTER and ACTION_HOVER_EXIT
+	final private static int KEYCODE_HOVER = 238;
+
+	final private static boolean HAS_SOURCES =
+		Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD;
+
+	// [class * TABLE_SIZE + keycode], kind << 16 | target, where target 0
+	// means the key itself. A zeroed entry is a plain key.
+	private volatile int[] _table;
+
+	private FileObserver _observer;
+
+	public KeyRouter() {
+		_table = defaults();
+	}
+
+	final public int route(int sourceClass, int keyCode) {
+		if (keyCode < 0 || keyCode >= TABLE_SIZE)
+			return 0;
+
+		return _table[sourceClass * TABLE_SIZE + keyCode];
+	}
+
+	final public static int kind(int route) {
+		return route >>> 16;
+	}
+
+	final public static int target(int route, int keyCode) {
+		final int target = route & 0xffff;
+
+		return target == 0 ? keyCode : target;
+	}
+
+	final public static int classOf(KeyEvent e) {
+		if (HAS_SOURCES) {
+			final int source = e.getSource();
+
+			if ((source & InputDevice.SOURCE_GAMEPAD) ==
+						InputDevice.SOURCE_GAMEPAD ||
+					(source & InputDevice.SOURCE_JOYSTICK) ==
+						InputDevice.SOURCE_JOYSTICK)
+				return CLASS_GAMEPAD;
+		}
+
+		return CLASS_KEYBOARD;
+	}
+
+	final private static int makeRoute(int kind, int target) {
+		return kind << 16 | target;
+	}
+
+	final private static int[] defaults() {
+		final int[] table = new int[CLASSES * TABLE_SIZE];
+
+		// system keys are left to the framework, except for these
+		for (int code = 0; code < TABLE_SIZE; ++code) {
+			if (new KeyEvent(KeyEvent.ACTION_DOWN, code).isSystem())
+				setAll(table, code, makeRoute(ROUTE_IGNORE, 0));
+		}
+
+		setAll(table, KeyEvent.KEYCODE_BACK, makeRoute(ROUTE_SYSTEM, 0));
+		setAll(table, KeyEvent.KEYCODE_MENU, makeRoute(ROUTE_SYSTEM, 0));
+		setAll(table, KeyEvent.KEYCODE_CAMERA, makeRoute(ROUTE_SYSTEM, 0));
+		setAll(table, KeyEvent.KEYCODE_SEARCH, makeRoute(ROUTE_SYSTEM, 0));
+
+		setAll(table, KEYCODE_HOVER, makeRoute(ROUTE_IGNORE, 0));
+
+		setAll(table, KeyEvent.KEYCODE_BUTTON_1,
+				makeRoute(ROUTE_KEY, KeyEvent.KEYCODE_SPACE));
+		setAll(table, KeyEvent.KEYCODE_BUTTON_2,
+				makeRoute(ROUTE_DPAD, KeyEvent.KEYCODE_DPAD_CENTER));
+
+		final int[] dpad = {
+			KeyEvent.KEYCODE_DPAD_UP, KeyEvent.KEYCODE_DPAD_DOWN,
+			KeyEvent.KEYCODE_DPAD_LEFT, KeyEvent.KEYCODE_DPAD_RIGHT,
+			KeyEvent.KEYCODE_DPAD_CENTER
+		};
+
+		for (int code : dpad)
+			setAll(table, code, makeRoute(ROUTE_DPAD, 0));
+
+		final int[] gamepad = {
+			KeyEvent.KEYCODE_BUTTON_A, KeyEvent.KEYCODE_BUTTON_B,
+			KeyEvent.KEYCODE_BUTTON_C, KeyEvent.KEYCODE_BUTTON_X,
+			KeyEvent.KEYCODE_BUTTON_Y, KeyEvent.KEYCODE_BUTTON_Z,
+			KeyEvent.KEYCODE_BUTTON_L1, KeyEvent.KEYCODE_BUTTON_R1,
+			KeyEvent.KEYCODE_BUTTON_L2, KeyEvent.KEYCODE_BUTTON_R2,
+			KeyEvent.KEYCODE_BUTTON_THUMBL, KeyEvent.KEYCODE_BUTTON_THUMBR,
+			KeyEvent.KEYCODE_BUTTON_START, KeyEvent.KEYCODE_BUTTON_SELECT,
+			KeyEvent.KEYCODE_BUTTON_MODE
+		};
+
+		for (int code : gamepad)
+			setAll(table, code, makeRoute(ROUTE_GAMEPAD, 0));
+
+		return table;
+	}
+
+	final private static void setAll(int[] table, int keyCode, int route) {
+		for (int c = 0; c < CLASSES; ++c)
+			table[c * TABLE_SIZE + keyCode] = route;
+	}
+
+	// Rebuild the table from the defaults and the given profile. A missing
+	// profile restores the defaults, broken lines are skipped.
+	public void load(File profile) {
+		final int[] table = defaults();
+		int routes = 0;
+
+		if (profile.exists()) {
+			try {
+				BufferedReader in = new BufferedReader(new FileReader(profile));
+				String line;
+				int n = 0;
+
+				while ((line = in.readLine()) != null) {
+					n++;
+
+					try {
+						if (parse(table, line))
+							routes++;
+					} catch (IllegalArgumentException e) {
+						Log.w(ScummVM.LOG_TAG, String.format("%s:%d: %s",
+								profile, n, e.getMessage()));
+					}
+				}
+
+				in.close();
+			} catch (IOException e) {
+				Log.e(ScummVM.LOG_TAG, "Unable to read key profile " +
+						profile, e);
+			}
+		}
+
+		_table = table;
+
+		Tracer.trace(T_PROFILE, profile, routes, 0, 0, 0);
+	}
+
+	final private static boolean parse(int[] table, String line) {
+		final int comment = line.indexOf('#');
+		if (comment >= 0)
+			line = line.substring(0, comment);
+
+		line = line.trim();
+		if (line.length() == 0)
+			return false;
+
+		final int eq = line.indexOf('=');
+		if (eq < 0)
+			throw new IllegalArgumentException("missing '='");
+
+		final String[] lhs = line.substring(0, eq).trim().split("\\s+");
+		final String[] rhs = line.substring(eq + 1).trim().split("\\s+");
+
+		if (lhs.length != 2 || rhs.length < 1 || rhs.length > 2)
+			throw new IllegalArgumentException("expected " +
+										"'source key = action [target]'");
+
+		int kind = -1;
+		for (int i = 0; i < ROUTE_NAMES.length; ++i)
+			if (ROUTE_NAMES[i].equals(rhs[0]))
+				kind = i;
+
+		if (kind < 0)
+			throw new IllegalArgumentException("unknown action " + rhs[0]);
+
+		final int keyCode = parseKeyCode(lhs[1]);
+		final int route = makeRoute(kind,
+								rhs.length > 1 ? parseKeyCode(rhs[1]) : 0);
+
+		if (lhs[0].equals("any"))
+			setAll(table, keyCode, route);
+		else if (lhs[0].equals("keyboard"))
+			table[CLASS_KEYBOARD * TABLE_SIZE + keyCode] = route;
+		else if (lhs[0].equals("gamepad"))
+			table[CLASS_GAMEPAD * TABLE_SIZE + keyCode] = route;
+		else
+			throw new IllegalArgumentException("unknown source " + lhs[0]);
+
+		return true;
+	}
+
+	final private static int parseKeyCode(String name) {
+		int code = 0;
+
+		if (Character.isDigit(name.charAt(0))) {
+			try {
+				code = Integer.parseInt(name);
+			} catch (NumberFormatException e) {
+			}
+		} else if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1) {
+			code = KeyEvent.keyCodeFromString(name.startsWith("KEYCODE_") ?
+												name : "KEYCODE_" + name);
+		} else {
+			throw new IllegalArgumentException("key names need API 12, " +
+												"use the keycode of " + name);
+		}
+
+		if (code <= 0 || code >= TABLE_SIZE)
+			throw new IllegalArgumentException("unknown key " + name);
+
+		return code;
+	}
+
+	// Load the profile and reload it whenever it's written, replaced or
+	// deleted. FileObserver watches the directory, so the profile doesn't
+	// have to exist yet.
+	public void watch(final File profile) {
+		stopWatching();
+
+		load(profile);
+
+		final File dir = profile.getParentFile();
+		if (dir == null)
+			return;
+
+		_observer = new FileObserver(dir.getPath(), FileObserver.CLOSE_WRITE |
+										FileObserver.MOVED_TO |
+										FileObserver.DELETE) {
+			@Override
+			public void onEvent(int event, String path) {
+				if (profile.getName().equals(path))
+					load(profile);
+			}
+		};
+
+		_observer.startWatching();
+	}
+
+	public void stopWatching() {
+		if (_observer != null) {
+			_observer.stopWatching();
+			_observer = null;
+		}
+	}
+}
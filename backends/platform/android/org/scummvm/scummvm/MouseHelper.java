@@ -9,6 +9,9 @@ import android.view.View;
  * Contains helper methods for mouse/hover events that were introduced in Android 4.0.
  */
 public class MouseHelper {
+	private static final int T_BUTTON =
+		Tracer.define(Tracer.DEBUG, "mouse button event %d at %d,%d state %d");
+
 	private View.OnHoverListener _listener;
 	private ScummVM _scummvm;
 	private long _rmbGuardTime;
@@ -70,7 +73,18 @@ public class MouseHelper {
 	}
 
 	public boolean onMouseEvent(MotionEvent e, boolean hover) {
-		_scummvm.pushEvent(ScummVMEvents.JE_MOUSE_MOVE, (int)e.getX(), (int)e.getY(), 0, 0, 0);
+		if (_scummvm.getMotionHistory()) {
+			// high rate mice and styluses batch several positions per event
+			final int history = e.getHistorySize();
+
+			for (int i = 0; i < history; ++i)
+				_scummvm.queueSample(ScummVMEvents.JE_MOUSE_MOVE,
+										(int)e.getHistoricalX(i),
+										(int)e.getHistoricalY(i), 0, 0, 0,
+										e.getHistoricalEventTime(i));
+		}
+
+		_scummvm.queueEvent(ScummVMEvents.JE_MOUSE_MOVE, (int)e.getX(), (int)e.getY(), 0, 0, 0, e.getEventTime());
 		
 		int buttonState = e.getButtonState();
 
@@ -84,14 +98,14 @@ public class MouseHelper {
 		if (lmbDown) {
 			if (!_lmbPressed) {
 				// left mouse button was pressed just now
-				_scummvm.pushEvent(ScummVMEvents.JE_LMB_DOWN, (int)e.getX(), (int)e.getY(), e.getButtonState(), 0, 0);
+				queueButton(ScummVMEvents.JE_LMB_DOWN, e);
 			}
 
 			_lmbPressed = true;
 		} else {
 			if (_lmbPressed) {
 				// left mouse button was released just now
-				_scummvm.pushEvent(ScummVMEvents.JE_LMB_UP, (int)e.getX(), (int)e.getY(), e.getButtonState(), 0, 0);
+				queueButton(ScummVMEvents.JE_LMB_UP, e);
 			}
 
 			_lmbPressed = false;
@@ -101,14 +115,14 @@ public class MouseHelper {
 		if (rmbDown) {
 			if (!_rmbPressed) {
 				// right mouse button was pressed just now
-				_scummvm.pushEvent(ScummVMEvents.JE_RMB_DOWN, (int)e.getX(), (int)e.getY(), e.getButtonState(), 0, 0);
+				queueButton(ScummVMEvents.JE_RMB_DOWN, e);
 			}
 
 			_rmbPressed = true;
 		} else {
 			if (_rmbPressed) {
 				// right mouse button was released just now
-				_scummvm.pushEvent(ScummVMEvents.JE_RMB_UP, (int)e.getX(), (int)e.getY(), e.getButtonState(), 0, 0);
+				queueButton(ScummVMEvents.JE_RMB_UP, e);
 				_rmbGuardTime = System.currentTimeMillis();
 			}
 
@@ -119,22 +133,34 @@ public class MouseHelper {
 		if (mmbDown) {
 			if (!_mmbPressed) {
 				// middle mouse button was pressed just now
-				_scummvm.pushEvent(ScummVMEvents.JE_MMB_DOWN, (int)e.getX(), (int)e.getY(), e.getButtonState(), 0, 0);
+				queueButton(ScummVMEvents.JE_MMB_DOWN, e);
 			}
 
 			_mmbPressed = true;
 		} else {
 			if (_mmbPressed) {
 				// middle mouse button was released just now
-				_scummvm.pushEvent(ScummVMEvents.JE_MMB_UP, (int)e.getX(), (int)e.getY(), e.getButtonState(), 0, 0);
+				queueButton(ScummVMEvents.JE_MMB_UP, e);
 			}
 
 			_mmbPressed = false;
 		}
 
+		_scummvm.flushEvents();
+
 		return true;
 	}
 
+	private void queueButton(int type, MotionEvent e) {
+		final int x = (int)e.getX();
+		final int y = (int)e.getY();
+
+		Tracer.trace(T_BUTTON, type, x, y, e.getButtonState());
+
+		_scummvm.queueEvent(type, x, y, e.getButtonState(), 0, 0,
+							e.getEventTime());
+	}
+
 	/**
 	 * Checks whether right mouse button is pressed or was pressed just previously. This is used to prevent sending
 	 * extra back key on right mouse click which is the default behaviour in some platforms.
@@ -6,6 +6,10 @@ import android.view.SurfaceHolder;
 import android.media.AudioFormat;
 import android.media.AudioManager;
 import android.media.AudioTrack;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
 
 import javax.microedition.khronos.opengles.GL10;
 import javax.microedition.khronos.egl.EGL10;
@@ -14,11 +18,38 @@ import javax.microedition.khronos.egl.EGLContext;
 import javax.microedition.khronos.egl.EGLDisplay;
 import javax.microedition.khronos.egl.EGLSurface;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
-import java.util.LinkedHashMap;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.Arrays;
 
 public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 	final protected static String LOG_TAG = "ScummVM";
+
+	final private static int T_SURFACE_CREATED =
+		Tracer.define(Tracer.DEBUG, "surfaceCreated");
+	final private static int T_SURFACE_IGNORED =
+		Tracer.define(Tracer.DEBUG, "Ignoring surfaceChanged: %dx%d (%d)");
+	final private static int T_SURFACE_CHANGED =
+		Tracer.define(Tracer.DEBUG, "surfaceChanged: %dx%d (%d)");
+	final private static int T_SURFACE_DESTROYED =
+		Tracer.define(Tracer.DEBUG, "surfaceDestroyed");
+	final private static int T_EGL_CONFIGS =
+		Tracer.define(Tracer.DEBUG, "EGL configs:");
+	final private static int T_EGL_CONFIG =
+		Tracer.defineObject(Tracer.DEBUG, "%s (%d)");
+	final private static int T_EGL_CHOSEN =
+		Tracer.defineObject(Tracer.DEBUG, "Chosen EGL config: %s");
+	final private static int T_EGL_CACHED =
+		Tracer.defineObject(Tracer.DEBUG, "Cached EGL config: %s");
 	final private AssetManager _asset_manager;
 	final private Object _sem_surface;
 
@@ -28,17 +59,164 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 	private EGLContext _egl_context = EGL10.EGL_NO_CONTEXT;
 	private EGLSurface _egl_surface = EGL10.EGL_NO_SURFACE;
 
+	// Keep the context and its GL objects without a window surface, see
+	// preserveEglContext()
+	private boolean _egl_preserve_context = false;
+	// current while there's no window surface, 1x1
+	private EGLSurface _egl_pbuffer = EGL10.EGL_NO_SURFACE;
+	// the context lost its GL objects, initSurface() recreates it
+	private boolean _egl_context_stale = false;
+	// bumped for every new context, see getEglContextGeneration()
+	private int _egl_context_generation = 0;
+	// draw on a native thread of its own, see useRenderThread()
+	private boolean _render_thread = false;
+	// see useDirtyRegions(), 0 keeps the native defaults
+	private int _dirty_max_rects = 0;
+	private int _dirty_merge_slack = 0;
+
 	private SurfaceHolder _surface_holder;
 	private AudioTrack _audio_track;
 	private int _sample_rate = 0;
 	private int _buffer_size = 0;
+	// what the native audio thread mixes into, see initAudio()
+	private ByteBuffer _audio_buffer;
+
+	// Adaptive audio buffering: the native side mixes small chunks and
+	// keeps between _audio_latency_min and _audio_latency_max bytes
+	// queued in the track, depending on how often it runs dry
+	private boolean _audio_adaptive = false;
+	private int _audio_latency_min = 0;
+	private int _audio_latency_max = 0;
+
+	final public static int AUDIO_BACKEND_AUDIOTRACK = 0;
+	final public static int AUDIO_BACKEND_OPENSLES = 1;
+	final public static int AUDIO_BACKEND_RENDER = 2;
+
+	private int _audio_backend = AUDIO_BACKEND_AUDIOTRACK;
+	private int _audio_period_frames = 0;
+	private boolean _audio_fast_resume = false;
+	private String _audio_render_wav = "";
+	private String _audio_render_report = "";
+	private int _audio_render_seconds = 0;
 
 	private String[] _args;
 
+	// Input events are written into a ring buffer shared with the native
+	// side: the UI thread produces fixed size records, the engine thread
+	// consumes them.  Neither side takes a lock, so everything writing to
+	// the ring has to run on the UI thread, see pushEvent().  The layout
+	// has to match the one in android.h: the header holds the published
+	// head and the consumer's tail on separate cache lines, followed by
+	// the records.  A record is eight ints: type, five arguments, event
+	// time and flags.
+	final private static int EVENT_RING_HEADER = 128;
+	final private static int EVENT_RING_TAIL = 64;
+	final private static int EVENT_RECORD_SIZE = 32;
+	final private static int EVENT_RING_SIZE = 256;
+
+	// Record flags: samples are never merged with other records, keep in
+	// sync with kEventFlagSample
+	final private static int EVENT_FLAG_SAMPLE = 1;
+
+	// Layout of the input latency stats, see getInputLatency()
+	final public static int INPUT_LATENCY_COUNT = 0;
+	final public static int INPUT_LATENCY_MIN = 1;
+	final public static int INPUT_LATENCY_MAX = 2;
+	final public static int INPUT_LATENCY_MEAN = 3;
+	final public static int INPUT_LATENCY_P50 = 4;
+	final public static int INPUT_LATENCY_P90 = 5;
+	final public static int INPUT_LATENCY_P99 = 6;
+	final public static int INPUT_LATENCY_SIZE = 7;
+
+	// Layout of a presented frame, see getFrameLog(). Times are in ns,
+	// on the System.nanoTime() clock
+	final public static int FRAME_LOG_NUMBER = 0;
+	// updateScreen() was called
+	final public static int FRAME_LOG_START = 1;
+	// eglSwapBuffers() returned
+	final public static int FRAME_LOG_SWAPPED = 2;
+	// the vsync it's shown with, 0 without pacing
+	final public static int FRAME_LOG_VSYNC = 3;
+	// updates dropped since the previous frame, for landing on a vsync
+	// that one was already shown with
+	final public static int FRAME_LOG_SKIPPED = 4;
+	final public static int FRAME_LOG_SIZE = 5;
+	// frames kept by the native side, keep in sync with kFrameLogSize
+	final public static int FRAME_LOG_CAPACITY = 1024;
+
+	// Stages of the presented frames, see getFrameStats(). Times are in
+	// us, the upload covers converting the dirty texture areas on the
+	// engine side and submitting them on the GL side, the draw everything
+	// else up to eglSwapBuffers()
+	final public static int FRAME_STAT_UPLOAD_BYTES = 0;
+	final public static int FRAME_STAT_UPLOAD = 1;
+	final public static int FRAME_STAT_DRAW = 2;
+	final public static int FRAME_STAT_SWAP = 3;
+	// from one presented frame to the next
+	final public static int FRAME_STAT_INTERVAL = 4;
+	// what uploading a bounding box of the dirty regions per texture
+	// would have taken, against FRAME_STAT_UPLOAD_BYTES
+	final public static int FRAME_STAT_UPLOAD_BOUNDING_BYTES = 5;
+	final public static int FRAME_STAT_TYPES = 6;
+
+	// What to do when the engine falls behind and the ring is full
+	final public static int EVENT_OVERFLOW_DROP = 0;
+	final public static int EVENT_OVERFLOW_WAIT = 1;
+	// the wait blocks the UI thread, keep it well below the ANR timeout
+	final public static int EVENT_OVERFLOW_WAIT_MAX = 500;
+
+	final private ByteBuffer _event_ring;
+	// next record to write, last published head and last known tail
+	private int _event_head = 0;
+	private int _event_published = 0;
+	private int _event_tail = 0;
+	// records are only published once the native side is set up. Set by
+	// the ScummVM thread, everything else is only touched on the UI thread
+	private volatile boolean _event_ring_attached = false;
+
+	private int _event_overflow_policy = EVENT_OVERFLOW_DROP;
+	private int _event_overflow_wait = 20;
+
+	// Consecutive mouse moves and scrolls are merged while they haven't
+	// been published yet, only the latest position matters to the engine.
+	// While the engine still works on the last flush, a lone pending move
+	// is held back for up to EVENT_HOLD_DELAY ms to merge more into it.
+	final private static int EVENT_HOLD_DELAY = 8;
+
+	private boolean _event_coalescing = true;
+	private boolean _event_hold_posted = false;
+
+	// Optional recording of everything queued, see EventRecorder
+	private EventRecorder _event_recorder = null;
+
+	// Forward the historical samples of motion events, see queueSample()
+	private boolean _motion_history = false;
+
+	// on the UI thread, the ring's only producer
+	final private Handler _event_handler = new Handler();
+	final private Runnable _event_hold_flush = new Runnable() {
+		public void run() {
+			_event_hold_posted = false;
+			publishPendingEvents();
+		}
+	};
+
+	// Event statistics
+	private long _event_flushes = 0;
+	private long _events_written = 0;
+	private long _events_dropped = 0;
+	private int _event_batch_max = 0;
+	private int _event_ring_high_water = 0;
+	private long _events_coalesced_moves = 0;
+	private long _events_coalesced_scrolls = 0;
+	private long _event_holds = 0;
+
 	final private native void create(AssetManager asset_manager,
 										EGL10 egl, EGLDisplay egl_display,
 										AudioTrack audio_track,
-										int sample_rate, int buffer_size);
+										int sample_rate, int buffer_size,
+										ByteBuffer audio_buffer,
+										ByteBuffer event_ring);
 	final private native void destroy();
 	final private native void setSurface(int width, int height);
 	final private native int main(String[] args);
@@ -46,9 +224,42 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 	// pause the engine and all native threads
 	final public native void setPause(boolean pause);
 	final public native void enableZoning(boolean enable);
-	// Feed an event to ScummVM.  Safe to call from other threads.
-	final public native void pushEvent(int type, int arg1, int arg2, int arg3,
-										int arg4, int arg5);
+	// Bounds in bytes for adaptive audio buffering, 0 disables it
+	final private native void setAudioLatencyBounds(int min, int max);
+	// The audio latency currently aimed for, in ms
+	final public native int getAudioLatency();
+	// How far playback lags behind mixing right now, in ms, from the
+	// output's presentation timestamps. Fills stats, if given, as laid
+	// out by the INPUT_LATENCY_* constants
+	final public native int getAudioOutputLatency(int[] stats);
+	final private native void setAudioFastResume(boolean enable);
+	final private native void setPreserveEglContext(boolean enable);
+	final private native void setRenderThread(boolean enable);
+	final private native void setDirtyRegions(int max_rects, int slack);
+	// From setPause(false) to the first sample being played, in ms. Fills
+	// stats, if given, as laid out by the INPUT_LATENCY_* constants
+	final public native int getAudioResumeLatency(int[] stats);
+	// One of AUDIO_BACKEND_*, 0 frames picks a default period
+	final private native void setAudioBackend(int backend, int period_frames);
+	final private native void setAudioRender(String wav, String report,
+												int seconds);
+	// Publish the event ring up to head, returns the engine's tail
+	final private native int publishEvents(int head);
+	// Input latency of an event type, from the event time to the engine
+	// picking it up, in ms. Fills stats as laid out by the INPUT_LATENCY_*
+	// indices, returns false for unknown types.
+	final public native boolean getInputLatency(int type, int[] stats);
+	final public native void resetInputLatency();
+	// The latest vsync and the refresh period, in ns, see FramePacer
+	final public native void setVsync(long frame_time, long period);
+	// The latest presented frames, oldest first, as laid out by the
+	// FRAME_LOG_* indices. Returns how many were filled in
+	final public native int getFrameLog(long[] log);
+	// Histogram of a FRAME_STAT_* stage over the presented frames. Fills
+	// stats as laid out by the INPUT_LATENCY_* indices, returns false for
+	// unknown stages
+	final public native boolean getFrameStats(int stage, int[] stats);
+	final public native void resetFrameStats();
 
 	// Callbacks from C++ peer instance
 	abstract protected void getDPI(float[] values);
@@ -62,12 +273,18 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 		_asset_manager = asset_manager;
 		_sem_surface = new Object();
 
-		holder.addCallback(this);
+		_event_ring = ByteBuffer.allocateDirect(EVENT_RING_HEADER +
+									EVENT_RING_SIZE * EVENT_RECORD_SIZE);
+		_event_ring.order(ByteOrder.nativeOrder());
+
+		// no holder for instances which never start, see InputBenchmark
+		if (holder != null)
+			holder.addCallback(this);
 	}
 
 	// SurfaceHolder callback
 	final public void surfaceCreated(SurfaceHolder holder) {
-		Log.d(LOG_TAG, "surfaceCreated");
+		Tracer.trace(T_SURFACE_CREATED);
 
 		// no need to do anything, surfaceChanged() will be called in any case
 	}
@@ -78,13 +295,11 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 		// the orientation may reset on standby mode and the theme manager
 		// could assert when using a portrait resolution. so lets not do that.
 		if (height > width) {
-			Log.d(LOG_TAG, String.format("Ignoring surfaceChanged: %dx%d (%d)",
-											width, height, format));
+			Tracer.trace(T_SURFACE_IGNORED, width, height, format, 0);
 			return;
 		}
 
-		Log.d(LOG_TAG, String.format("surfaceChanged: %dx%d (%d)",
-										width, height, format));
+		Tracer.trace(T_SURFACE_CHANGED, width, height, format, 0);
 
 		// store values for the native code
 		// make sure to do it before notifying the lock
@@ -99,7 +314,7 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 
 	// SurfaceHolder callback
 	final public void surfaceDestroyed(SurfaceHolder holder) {
-		Log.d(LOG_TAG, "surfaceDestroyed");
+		Tracer.trace(T_SURFACE_DESTROYED);
 
 		synchronized(_sem_surface) {
 			_surface_holder = null;
@@ -110,6 +325,434 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 		setSurface(0, 0);
 	}
 
+	// Feed an event to ScummVM.  Safe to call from other threads, which
+	// post it to the UI thread (and allocate for that).
+	final public void pushEvent(final int type, final int arg1,
+								final int arg2, final int arg3,
+								final int arg4, final int arg5) {
+		if (Looper.myLooper() != _event_handler.getLooper()) {
+			_event_handler.post(new Runnable() {
+				public void run() {
+					pushEvent(type, arg1, arg2, arg3, arg4, arg5);
+				}
+			});
+
+			return;
+		}
+
+		queueEvent(type, arg1, arg2, arg3, arg4, arg5);
+		flushEvents();
+	}
+
+	// Write an event into the ring.  The engine doesn't see it until
+	// flushEvents() is called, so input listeners should flush once
+	// they're done with an input event.  UI thread only, like everything
+	// else writing to the ring.
+	final public void queueEvent(int type, int arg1, int arg2, int arg3,
+									int arg4, int arg5) {
+		queueEvent(type, arg1, arg2, arg3, arg4, arg5,
+					SystemClock.uptimeMillis());
+	}
+
+	// Same, for events which stem from an android input event. The time is
+	// the event's getEventTime(), the engine measures the input latency
+	// from it.
+	final public void queueEvent(int type, int arg1, int arg2, int arg3,
+									int arg4, int arg5, long time) {
+		if (_event_recorder != null)
+			_event_recorder.record(EventRecorder.KIND_EVENT, type, arg1,
+									arg2, arg3, arg4, arg5, time);
+
+		if (_event_coalescing && _event_head != _event_published &&
+				coalesceEvent(type, arg1, arg2, arg3, arg4, arg5, (int)time))
+			return;
+
+		writeEvent(type, arg1, arg2, arg3, arg4, arg5, (int)time, 0);
+	}
+
+	// Write a historical sample of a motion event, along with its time.
+	// Samples are never coalesced, the engine gets every one of them,
+	// spaced out by their times like they were taken.
+	final public void queueSample(int type, int arg1, int arg2, int arg3,
+									int arg4, int arg5, long time) {
+		if (_event_recorder != null)
+			_event_recorder.record(EventRecorder.KIND_SAMPLE, type, arg1,
+									arg2, arg3, arg4, arg5, time);
+
+		writeEvent(type, arg1, arg2, arg3, arg4, arg5, (int)time,
+					EVENT_FLAG_SAMPLE);
+	}
+
+	final private void writeEvent(int type, int arg1, int arg2, int arg3,
+									int arg4, int arg5, int time, int flags) {
+		if (_event_head - _event_tail == EVENT_RING_SIZE &&
+				!waitForEventRing()) {
+			_events_dropped++;
+			return;
+		}
+
+		int pos = eventRecordOffset(_event_head);
+
+		_event_ring.putInt(pos, type);
+		_event_ring.putInt(pos += 4, arg1);
+		_event_ring.putInt(pos += 4, arg2);
+		_event_ring.putInt(pos += 4, arg3);
+		_event_ring.putInt(pos += 4, arg4);
+		_event_ring.putInt(pos += 4, arg5);
+		_event_ring.putInt(pos += 4, time);
+		_event_ring.putInt(pos += 4, flags);
+
+		_event_head++;
+		_events_written++;
+
+		final int used = _event_head - _event_tail;
+		if (used > _event_ring_high_water)
+			_event_ring_high_water = used;
+	}
+
+	final private static int eventRecordOffset(int index) {
+		return EVENT_RING_HEADER +
+				(index & (EVENT_RING_SIZE - 1)) * EVENT_RECORD_SIZE;
+	}
+
+	final private static boolean isCoalescable(int type) {
+		return type == ScummVMEvents.JE_MOUSE_MOVE ||
+				type == ScummVMEvents.JE_SCROLL;
+	}
+
+	// Merge a move or scroll into the last unpublished record, if that's
+	// of the same kind. Scrolls only merge if they share the same anchor.
+	// Anything else in between (like a button) ends up as the last record,
+	// so the order of transitions and moves is kept.
+	final private boolean coalesceEvent(int type, int arg1, int arg2,
+										int arg3, int arg4, int arg5,
+										int time) {
+		if (!isCoalescable(type))
+			return false;
+
+		int pos = eventRecordOffset(_event_head - 1);
+
+		if (_event_ring.getInt(pos) != type ||
+				(_event_ring.getInt(pos + 28) & EVENT_FLAG_SAMPLE) != 0)
+			return false;
+
+		if (type == ScummVMEvents.JE_SCROLL) {
+			if (_event_ring.getInt(pos + 4) != arg1 ||
+					_event_ring.getInt(pos + 8) != arg2)
+				return false;
+
+			_events_coalesced_scrolls++;
+		} else {
+			_events_coalesced_moves++;
+		}
+
+		_event_ring.putInt(pos += 4, arg1);
+		_event_ring.putInt(pos += 4, arg2);
+		_event_ring.putInt(pos += 4, arg3);
+		_event_ring.putInt(pos += 4, arg4);
+		_event_ring.putInt(pos += 4, arg5);
+		_event_ring.putInt(pos += 4, time);
+
+		return true;
+	}
+
+	// Make all queued events visible to the engine thread
+	final public void flushEvents() {
+		final int count = _event_head - _event_published;
+
+		if (count == 0)
+			return;
+
+		// The tail is only read as a hint here, whether the engine got
+		// to the last flush yet
+		final int pos = eventRecordOffset(_event_published);
+
+		if (_event_coalescing && _event_ring_attached && count == 1 &&
+				isCoalescable(_event_ring.getInt(pos)) &&
+				(_event_ring.getInt(pos + 28) & EVENT_FLAG_SAMPLE) == 0 &&
+				_event_ring.getInt(EVENT_RING_TAIL) != _event_published) {
+			if (!_event_hold_posted) {
+				_event_hold_posted = true;
+				_event_handler.postDelayed(_event_hold_flush,
+											EVENT_HOLD_DELAY);
+			}
+
+			_event_holds++;
+			return;
+		}
+
+		publishPendingEvents();
+	}
+
+	final private void publishPendingEvents() {
+		// the batch as it goes out, held back moves included
+		if (_event_recorder != null)
+			_event_recorder.flush();
+
+		final int count = _event_head - _event_published;
+
+		if (count == 0)
+			return;
+
+		if (!_event_ring_attached) {
+			// nobody to consume them yet (or anymore)
+			onEventsDropped(_event_published, count);
+
+			_event_head = _event_published;
+			_events_written -= count;
+			_events_dropped += count;
+			return;
+		}
+
+		_event_tail = publishEvents(_event_head);
+		_event_published = _event_head;
+
+		_event_flushes++;
+		if (count > _event_batch_max)
+			_event_batch_max = count;
+	}
+
+	// Called on the UI thread with the records which are dropped as
+	// there's no native side, see getEventRecord(). For the JVM tests
+	// and benchmarks, to see what the input layer queued
+	protected void onEventsDropped(int first, int count) {
+	}
+
+	// Fills record with the one at index: type, five arguments, time and
+	// flags
+	final protected void getEventRecord(int index, int[] record) {
+		int pos = eventRecordOffset(index);
+
+		for (int i = 0; i < EVENT_RECORD_SIZE / 4; ++i, pos += 4)
+			record[i] = _event_ring.getInt(pos);
+	}
+
+	// The ring is full: publish what we have and, depending on the
+	// overflow policy, give the engine a moment to catch up. That blocks
+	// the UI thread, but nothing else waits on it.
+	// Returns true if there's room for another record.
+	final private boolean waitForEventRing() {
+		if (!_event_ring_attached)
+			return false;
+
+		if (_event_recorder != null)
+			_event_recorder.flush();
+
+		_event_tail = publishEvents(_event_head);
+		_event_published = _event_head;
+
+		if (_event_overflow_policy == EVENT_OVERFLOW_WAIT) {
+			final long timeout = SystemClock.uptimeMillis() +
+									_event_overflow_wait;
+
+			while (_event_head - _event_tail == EVENT_RING_SIZE &&
+					SystemClock.uptimeMillis() < timeout) {
+				SystemClock.sleep(1);
+				_event_tail = publishEvents(_event_head);
+			}
+		}
+
+		return _event_head - _event_tail < EVENT_RING_SIZE;
+	}
+
+	// wait_ms is capped at EVENT_OVERFLOW_WAIT_MAX
+	final public void setEventOverflowPolicy(int policy, int wait_ms) {
+		_event_overflow_policy = policy;
+		_event_overflow_wait = Math.min(wait_ms, EVENT_OVERFLOW_WAIT_MAX);
+	}
+
+	// Records that can be queued before the ring is full, as far as the
+	// engine got with the published ones. 0 while it's not attached
+	final public int getEventRingSpace() {
+		if (!_event_ring_attached)
+			return 0;
+
+		return EVENT_RING_SIZE -
+				(_event_head - _event_ring.getInt(EVENT_RING_TAIL));
+	}
+
+	// Start recording the queued events, null stops (and closes) the
+	// current recording
+	final public void setEventRecorder(EventRecorder recorder) {
+		if (_event_recorder != null)
+			_event_recorder.close();
+
+		_event_recorder = recorder;
+	}
+
+	final public boolean isEventRingAttached() {
+		return _event_ring_attached;
+	}
+
+	// Has to be set before the thread starts
+	final public void setAudioAdaptive(boolean enable) {
+		_audio_adaptive = enable;
+	}
+
+	// Has to be set before the thread starts. Pausing keeps the audio
+	// queued in the AudioTrack, so resuming doesn't start on an empty one
+	final public void useAudioFastResume(boolean enable) {
+		_audio_fast_resume = enable;
+	}
+
+	// Has to be set before the thread starts. Instead of playing, render
+	// seconds of audio as fast as possible into the wav file, or nowhere
+	// if that's null, and write the mixer's throughput to the report
+	final public void useAudioRender(File wav, File report, int seconds) {
+		_audio_backend = AUDIO_BACKEND_RENDER;
+		_audio_render_wav = wav == null ? "" : wav.getPath();
+		_audio_render_report = report.getPath();
+		_audio_render_seconds = seconds;
+	}
+
+	// Has to be set before the thread starts. OpenSL ES falls back to
+	// the AudioTrack if it's not available
+	final public void useAudioBackend(int backend, int period_frames) {
+		_audio_backend = backend;
+		_audio_period_frames = period_frames;
+	}
+
+	final public void setMotionHistory(boolean enable) {
+		_motion_history = enable;
+	}
+
+	final public boolean getMotionHistory() {
+		return _motion_history;
+	}
+
+	final public void setEventCoalescing(boolean enable) {
+		_event_coalescing = enable;
+
+		if (!enable)
+			publishPendingEvents();
+	}
+
+	final public long getEventFlushCount() {
+		return _event_flushes;
+	}
+
+	final public long getEventsWritten() {
+		return _events_written;
+	}
+
+	final public long getEventsDropped() {
+		return _events_dropped;
+	}
+
+	final public int getEventBatchMax() {
+		return _event_batch_max;
+	}
+
+	final public int getEventRingHighWater() {
+		return _event_ring_high_water;
+	}
+
+	final public long getCoalescedMoves() {
+		return _events_coalesced_moves;
+	}
+
+	final public long getCoalescedScrolls() {
+		return _events_coalesced_scrolls;
+	}
+
+	final public long getEventHolds() {
+		return _event_holds;
+	}
+
+	// Write the input latency of all event types as CSV, one line per type
+	final public boolean dumpInputLatency(File file) {
+		final String[] names = {
+			"sys_key", "key", "dpad", "down", "scroll", "tap", "double_tap",
+			"multi", "ball", "lmb_down", "lmb_up", "rmb_down", "rmb_up",
+			"mouse_move", "gamepad", "joystick", "mmb_down", "mmb_up"
+		};
+		final int[] stats = new int[INPUT_LATENCY_SIZE];
+
+		try {
+			PrintWriter out = new PrintWriter(new FileWriter(file));
+
+			out.println("type,count,min,max,mean,p50,p90,p99");
+
+			for (int type = 0; type < names.length; ++type) {
+				if (!getInputLatency(type, stats) ||
+						stats[INPUT_LATENCY_COUNT] == 0)
+					continue;
+
+				out.print(names[type]);
+				for (int i = 0; i < INPUT_LATENCY_SIZE; ++i)
+					out.print("," + stats[i]);
+				out.println();
+			}
+
+			out.close();
+
+			return true;
+		} catch (IOException e) {
+			Log.e(LOG_TAG, "Unable to write input latency to " + file, e);
+			return false;
+		}
+	}
+
+	// Write the frame stats as CSV, one line per stage
+	final public boolean dumpFrameStats(File file) {
+		final String[] names = {
+			"upload_bytes", "upload_us", "draw_us", "swap_us", "interval_us",
+			"upload_bounding_bytes"
+		};
+		final int[] stats = new int[INPUT_LATENCY_SIZE];
+
+		try {
+			PrintWriter out = new PrintWriter(new FileWriter(file));
+
+			out.println("stage,count,min,max,mean,p50,p90,p99");
+
+			for (int stage = 0; stage < FRAME_STAT_TYPES; ++stage) {
+				if (!getFrameStats(stage, stats))
+					continue;
+
+				out.print(names[stage]);
+				for (int i = 0; i < INPUT_LATENCY_SIZE; ++i)
+					out.print("," + stats[i]);
+				out.println();
+			}
+
+			out.close();
+
+			return true;
+		} catch (IOException e) {
+			Log.e(LOG_TAG, "Unable to write frame stats to " + file, e);
+			return false;
+		}
+	}
+
+	// Write the latest presented frames as CSV, one line per frame
+	final public boolean dumpFrameLog(File file) {
+		final long[] log = new long[FRAME_LOG_SIZE * FRAME_LOG_CAPACITY];
+		final int frames = getFrameLog(log);
+
+		try {
+			PrintWriter out = new PrintWriter(new FileWriter(file));
+
+			out.println("frame,start,swapped,vsync,skipped");
+
+			for (int f = 0; f < frames; ++f) {
+				final int i = f * FRAME_LOG_SIZE;
+
+				out.print(log[i]);
+				for (int j = 1; j < FRAME_LOG_SIZE; ++j)
+					out.print("," + log[i + j]);
+				out.println();
+			}
+
+			out.close();
+
+			return true;
+		} catch (IOException e) {
+			Log.e(LOG_TAG, "Unable to write the frame log to " + file, e);
+			return false;
+		}
+	}
+
 	final public void setArgs(String[] args) {
 		_args = args;
 	}
@@ -132,10 +775,40 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 		}
 
 		create(_asset_manager, _egl, _egl_display,
-				_audio_track, _sample_rate, _buffer_size);
+				_audio_track, _sample_rate, _buffer_size, _audio_buffer,
+				_event_ring);
+
+		setAudioLatencyBounds(_audio_latency_min, _audio_latency_max);
+		setAudioBackend(_audio_backend, _audio_period_frames);
+		setAudioFastResume(_audio_fast_resume);
+		setPreserveEglContext(_egl_preserve_context);
+		setRenderThread(_render_thread);
+		setDirtyRegions(_dirty_max_rects, _dirty_merge_slack);
+
+		if (_audio_backend == AUDIO_BACKEND_RENDER)
+			setAudioRender(_audio_render_wav, _audio_render_report,
+							_audio_render_seconds);
+
+		_event_ring_attached = true;
 
 		int res = main(_args);
 
+		_event_ring_attached = false;
+
+		if (_event_flushes > 0)
+			Log.d(LOG_TAG, String.format(
+				"Events: %d written in %d flushes (%.2f avg, %d max), " +
+				"%d dropped, ring high water %d/%d",
+				_events_written, _event_flushes,
+				(double)_events_written / _event_flushes, _event_batch_max,
+				_events_dropped, _event_ring_high_water, EVENT_RING_SIZE));
+
+		if (_event_coalescing)
+			Log.d(LOG_TAG, String.format(
+				"Events coalesced: %d moves, %d scrolls, %d held flushes",
+				_events_coalesced_moves, _events_coalesced_scrolls,
+				_event_holds));
+
 		destroy();
 
 		deinitEGL();
@@ -152,20 +825,7 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 		int[] version = new int[2];
 		_egl.eglInitialize(_egl_display, version);
 
-		int[] num_config = new int[1];
-		_egl.eglGetConfigs(_egl_display, null, 0, num_config);
-
-		final int numConfigs = num_config[0];
-
-		if (numConfigs <= 0)
-			throw new IllegalArgumentException("No EGL configs");
-
-		EGLConfig[] configs = new EGLConfig[numConfigs];
-		_egl.eglGetConfigs(_egl_display, configs, numConfigs, num_config);
-
-		// Android's eglChooseConfig is busted in several versions and
-		// devices so we have to filter/rank the configs ourselves.
-		_egl_config = chooseEglConfig(configs);
+		_egl_config = chooseEglConfig();
 
 		_egl_context = _egl.eglCreateContext(_egl_display, _egl_config,
 											EGL10.EGL_NO_CONTEXT, null);
@@ -184,8 +844,17 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 			throw new Exception(String.format(
 					"eglCreateWindowSurface failed: 0x%x", _egl.eglGetError()));
 
-		_egl.eglMakeCurrent(_egl_display, _egl_surface, _egl_surface,
-							_egl_context);
+		if (_egl_context_stale)
+			recreateEglContext();
+
+		if (!_egl.eglMakeCurrent(_egl_display, _egl_surface, _egl_surface,
+									_egl_context) &&
+				_egl.eglGetError() == EGL10.EGL_CONTEXT_LOST) {
+			recreateEglContext();
+
+			_egl.eglMakeCurrent(_egl_display, _egl_surface, _egl_surface,
+								_egl_context);
+		}
 
 		GL10 gl = (GL10)_egl_context.getGL();
 
@@ -202,8 +871,9 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 	// Callback from C++ peer instance
 	final protected void deinitSurface() {
 		if (_egl_display != EGL10.EGL_NO_DISPLAY) {
-			_egl.eglMakeCurrent(_egl_display, EGL10.EGL_NO_SURFACE,
-								EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_CONTEXT);
+			if (!_egl_preserve_context || !bindEglPbuffer())
+				_egl.eglMakeCurrent(_egl_display, EGL10.EGL_NO_SURFACE,
+									EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_CONTEXT);
 
 			if (_egl_surface != EGL10.EGL_NO_SURFACE)
 				_egl.eglDestroySurface(_egl_display, _egl_surface);
@@ -212,6 +882,97 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 		_egl_surface = EGL10.EGL_NO_SURFACE;
 	}
 
+	// Callback from C++ peer instance. Changes whenever the GL objects
+	// of the previous context are gone
+	final protected int getEglContextGeneration() {
+		return _egl_context_generation;
+	}
+
+	// Callback from C++ peer instance, right after eglSwapBuffers failed
+	final protected boolean isEglContextLost() {
+		if (_egl.eglGetError() != EGL10.EGL_CONTEXT_LOST)
+			return false;
+
+		_egl_context_stale = true;
+		return true;
+	}
+
+	// Has to be set before the thread starts. Losing the window surface
+	// keeps the EGL context current on a pbuffer, so the textures don't
+	// need to be uploaded again for the next one
+	final public void preserveEglContext(boolean enable) {
+		_egl_preserve_context = enable;
+	}
+
+	// Has to be set before the thread starts. The native side draws on a
+	// thread of its own, which takes the EGL context and the surface
+	// callbacks, while this one runs the engine
+	final public void useRenderThread(boolean enable) {
+		_render_thread = enable;
+	}
+
+	// Has to be set before the thread starts. Texture updates are
+	// uploaded as up to max_rects regions, merged when their bounding box
+	// is at most slack percent bigger. 1 uploads a single bounding box
+	final public void useDirtyRegions(int max_rects, int slack) {
+		_dirty_max_rects = max_rects;
+		_dirty_merge_slack = slack;
+	}
+
+	// Make the context current without a window. Without a pbuffer no GL
+	// call is safe until the next surface, so that rebuilds everything
+	final private boolean bindEglPbuffer() {
+		if (_egl_pbuffer == EGL10.EGL_NO_SURFACE) {
+			final int[] attribs = {
+				EGL10.EGL_WIDTH, 1,
+				EGL10.EGL_HEIGHT, 1,
+				EGL10.EGL_NONE
+			};
+
+			_egl_pbuffer = _egl.eglCreatePbufferSurface(_egl_display,
+														_egl_config, attribs);
+
+			if (_egl_pbuffer == EGL10.EGL_NO_SURFACE) {
+				Log.w(LOG_TAG, String.format(
+						"eglCreatePbufferSurface failed: 0x%x",
+						_egl.eglGetError()));
+
+				_egl_context_stale = true;
+				return false;
+			}
+		}
+
+		if (_egl.eglMakeCurrent(_egl_display, _egl_pbuffer, _egl_pbuffer,
+								_egl_context))
+			return true;
+
+		Log.w(LOG_TAG, String.format("Binding the pbuffer failed: 0x%x",
+										_egl.eglGetError()));
+
+		_egl_context_stale = true;
+		return false;
+	}
+
+	final private void recreateEglContext() throws Exception {
+		Log.w(LOG_TAG, "Recreating the EGL context, its GL objects are lost");
+
+		_egl.eglMakeCurrent(_egl_display, EGL10.EGL_NO_SURFACE,
+							EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_CONTEXT);
+
+		if (_egl_context != EGL10.EGL_NO_CONTEXT)
+			_egl.eglDestroyContext(_egl_display, _egl_context);
+
+		_egl_context = _egl.eglCreateContext(_egl_display, _egl_config,
+											EGL10.EGL_NO_CONTEXT, null);
+
+		if (_egl_context == EGL10.EGL_NO_CONTEXT)
+			throw new Exception(String.format("Failed to create context: 0x%x",
+												_egl.eglGetError()));
+
+		_egl_context_stale = false;
+		++_egl_context_generation;
+	}
+
 	final private void deinitEGL() {
 		if (_egl_display != EGL10.EGL_NO_DISPLAY) {
 			_egl.eglMakeCurrent(_egl_display, EGL10.EGL_NO_SURFACE,
@@ -220,6 +981,9 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 			if (_egl_surface != EGL10.EGL_NO_SURFACE)
 				_egl.eglDestroySurface(_egl_display, _egl_surface);
 
+			if (_egl_pbuffer != EGL10.EGL_NO_SURFACE)
+				_egl.eglDestroySurface(_egl_display, _egl_pbuffer);
+
 			if (_egl_context != EGL10.EGL_NO_CONTEXT)
 				_egl.eglDestroyContext(_egl_display, _egl_context);
 
@@ -227,6 +991,7 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 		}
 
 		_egl_surface = EGL10.EGL_NO_SURFACE;
+		_egl_pbuffer = EGL10.EGL_NO_SURFACE;
 		_egl_context = EGL10.EGL_NO_CONTEXT;
 		_egl_config = null;
 		_egl_display = EGL10.EGL_NO_DISPLAY;
@@ -242,22 +1007,51 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 
 		// ~50ms
 		int buffer_size_want = (_sample_rate * 2 * 2 / 20) & ~1023;
+		int track_size;
+
+		if (_audio_adaptive) {
+			// start at what the track needs at least, grow up to 4 times
+			// the fixed size if it keeps running dry. mix in ~5ms chunks
+			// so the queued amount can be controlled finely.
+			_audio_latency_min = (_buffer_size + 3) & ~3;
+			_audio_latency_max = Math.max(_audio_latency_min * 4,
+											buffer_size_want * 4);
+			_buffer_size = Math.max((_sample_rate * 2 * 2 / 200) & ~3, 256);
+			track_size = _audio_latency_max;
+
+			Log.i(LOG_TAG, String.format(
+				"Adaptive audio buffering: %d-%d bytes, %d bytes chunks " +
+				"for %dHz audio", _audio_latency_min, _audio_latency_max,
+				_buffer_size, _sample_rate));
+		} else {
+			if (_buffer_size < buffer_size_want) {
+				Log.w(LOG_TAG, String.format(
+					"adjusting audio buffer size (was: %d)", _buffer_size));
+
+				_buffer_size = buffer_size_want;
+			}
 
-		if (_buffer_size < buffer_size_want) {
-			Log.w(LOG_TAG, String.format(
-				"adjusting audio buffer size (was: %d)", _buffer_size));
+			track_size = _buffer_size;
 
-			_buffer_size = buffer_size_want;
+			Log.i(LOG_TAG, String.format(
+				"Using %d bytes buffer for %dHz audio",
+				_buffer_size, _sample_rate));
 		}
 
-		Log.i(LOG_TAG, String.format("Using %d bytes buffer for %dHz audio",
-										_buffer_size, _sample_rate));
+		// a direct buffer the mixer can render into, handed to the track
+		// as is where AudioTrack.write(ByteBuffer...) exists
+		_audio_buffer = ByteBuffer.allocateDirect(_buffer_size);
+		_audio_buffer.order(ByteOrder.nativeOrder());
+
+		// the offline render needs no track
+		if (_audio_backend == AUDIO_BACKEND_RENDER)
+			return;
 
 		_audio_track = new AudioTrack(AudioManager.STREAM_MUSIC,
 									_sample_rate,
 									AudioFormat.CHANNEL_CONFIGURATION_STEREO,
 									AudioFormat.ENCODING_PCM_16BIT,
-									_buffer_size,
+									track_size,
 									AudioTrack.MODE_STREAM);
 
 		if (_audio_track.getState() != AudioTrack.STATE_INITIALIZED)
@@ -271,167 +1065,331 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 			_audio_track.stop();
 
 		_audio_track = null;
+		_audio_buffer = null;
 		_buffer_size = 0;
 		_sample_rate = 0;
 	}
 
-	private static final int[] s_eglAttribs = {
-		EGL10.EGL_CONFIG_ID,
-		EGL10.EGL_BUFFER_SIZE,
-		EGL10.EGL_RED_SIZE,
-		EGL10.EGL_GREEN_SIZE,
-		EGL10.EGL_BLUE_SIZE,
-		EGL10.EGL_ALPHA_SIZE,
-		EGL10.EGL_CONFIG_CAVEAT,
-		EGL10.EGL_DEPTH_SIZE,
-		EGL10.EGL_LEVEL,
-		EGL10.EGL_MAX_PBUFFER_WIDTH,
-		EGL10.EGL_MAX_PBUFFER_HEIGHT,
-		EGL10.EGL_MAX_PBUFFER_PIXELS,
-		EGL10.EGL_NATIVE_RENDERABLE,
-		EGL10.EGL_NATIVE_VISUAL_ID,
-		EGL10.EGL_NATIVE_VISUAL_TYPE,
-		EGL10.EGL_SAMPLE_BUFFERS,
-		EGL10.EGL_SAMPLES,
-		EGL10.EGL_STENCIL_SIZE,
-		EGL10.EGL_SURFACE_TYPE,
-		EGL10.EGL_TRANSPARENT_TYPE,
-		EGL10.EGL_TRANSPARENT_RED_VALUE,
-		EGL10.EGL_TRANSPARENT_GREEN_VALUE,
-		EGL10.EGL_TRANSPARENT_BLUE_VALUE
+	// in the cache dir, see loadEglConfig()
+	final private static String EGL_CONFIG_CACHE = "egl-config";
+	final private static int EGL_CONFIG_CACHE_VERSION = 1;
+
+	// see benchmarkEglConfig()
+	final private static int EGL_BENCHMARK_CANDIDATES = 3;
+	final private static int EGL_BENCHMARK_SIZE = 512;
+	final private static int EGL_BENCHMARK_FRAMES = 20;
+	final private static int EGL_BENCHMARK_OVERDRAW = 8;
+
+	private EglConfigPolicy _egl_policy =
+		EglConfigPolicy.forName(EglConfigPolicy.BANDWIDTH);
+	private boolean _egl_benchmark = false;
+
+	// Has to be set before the thread starts
+	final public void setEglConfigPolicy(EglConfigPolicy policy,
+											boolean benchmark) {
+		_egl_policy = policy;
+		_egl_benchmark = benchmark;
+	}
+
+	// EglConfigPolicy.ATTRIBS of one config, by index. Reused while scanning
+	final private class EglAttribs {
+		final public int[] values = new int[EglConfigPolicy.ATTRIBS.length];
+		final private int[] _value = new int[1];
+
+		public EglAttribs read(EGLConfig config) {
+			for (int i = 0; i < values.length; ++i) {
+				_egl.eglGetConfigAttrib(_egl_display, config,
+										EglConfigPolicy.ATTRIBS[i], _value);
+				values[i] = _value[0];
+			}
+
+			return this;
+		}
+
+		public int get(int index) {
+			return values[index];
+		}
+
+		public String toString() {
+			return EglConfigPolicy.describe(values);
+		}
 	};
 
-	final private class EglAttribs extends LinkedHashMap<Integer, Integer> {
-		public EglAttribs(EGLConfig config) {
-			super(s_eglAttribs.length);
+	// What the cached choice is valid for: the driver, the build and how
+	// it was chosen
+	final private String eglConfigCacheKey() {
+		return _egl.eglQueryString(_egl_display, EGL10.EGL_VENDOR) + "|" +
+				_egl.eglQueryString(_egl_display, EGL10.EGL_VERSION) + "|" +
+				Build.FINGERPRINT + "|" + _egl_policy.getName() +
+				(_egl_benchmark ? "|benchmark" : "");
+	}
 
-			int[] value = new int[1];
+	final private File eglConfigCacheFile() {
+		final File dir = ScummVMApplication.getLastCacheDir();
+
+		return dir == null ? null : new File(dir, EGL_CONFIG_CACHE);
+	}
 
-			for (int i : s_eglAttribs) {
-				_egl.eglGetConfigAttrib(_egl_display, config, i, value);
+	// The config chosen on an earlier launch, if the key matches and the
+	// config still has the cached attributes
+	final private EGLConfig loadEglConfig(String key) {
+		final File file = eglConfigCacheFile();
+
+		if (file == null || !file.exists())
+			return null;
+
+		final int[] cached = new int[EglConfigPolicy.ATTRIBS.length];
+
+		try {
+			DataInputStream in =
+				new DataInputStream(new FileInputStream(file));
 
-				put(i, value[0]);
+			try {
+				if (in.readInt() != EGL_CONFIG_CACHE_VERSION ||
+						!in.readUTF().equals(key))
+					return null;
+
+				for (int i = 0; i < cached.length; ++i)
+					cached[i] = in.readInt();
+			} finally {
+				in.close();
 			}
+		} catch (IOException e) {
+			Log.w(LOG_TAG, "Unable to read " + file, e);
+			return null;
 		}
 
-		private int weightBits(int attr, int size) {
-			final int value = get(attr);
+		// with EGL_CONFIG_ID, all other attributes are ignored
+		final int[] attribs = {
+			EGL10.EGL_CONFIG_ID, cached[EglConfigPolicy.CONFIG_ID],
+			EGL10.EGL_NONE
+		};
+		final EGLConfig[] configs = new EGLConfig[1];
+		final int[] num_config = new int[1];
 
-			int score = 0;
+		if (!_egl.eglChooseConfig(_egl_display, attribs, configs, 1,
+									num_config) || num_config[0] != 1)
+			return null;
 
-			if (value == size || (size > 0 && value > size))
-				score += 10;
+		final EglAttribs attr = new EglAttribs().read(configs[0]);
 
-			// penalize for wasted bits
-			score -= value - size;
+		if (!Arrays.equals(attr.values, cached))
+			return null;
 
-			return score;
-		}
+		Tracer.trace(T_EGL_CACHED, attr);
 
-		public int weight() {
-			int score = 10000;
+		return configs[0];
+	}
 
-			if (get(EGL10.EGL_CONFIG_CAVEAT) != EGL10.EGL_NONE)
-				score -= 1000;
+	final private void saveEglConfig(String key, EglAttribs attr) {
+		final File file = eglConfigCacheFile();
 
-			// less MSAA is better
-			score -= get(EGL10.EGL_SAMPLES) * 100;
+		if (file == null)
+			return;
 
-			// Must be at least 565, but then smaller is better
-			score += weightBits(EGL10.EGL_RED_SIZE, 5);
-			score += weightBits(EGL10.EGL_GREEN_SIZE, 6);
-			score += weightBits(EGL10.EGL_BLUE_SIZE, 5);
-			score += weightBits(EGL10.EGL_ALPHA_SIZE, 0);
-			score += weightBits(EGL10.EGL_DEPTH_SIZE, 0);
-			score += weightBits(EGL10.EGL_STENCIL_SIZE, 0);
+		try {
+			DataOutputStream out =
+				new DataOutputStream(new FileOutputStream(file));
 
-			return score;
-		}
+			try {
+				out.writeInt(EGL_CONFIG_CACHE_VERSION);
+				out.writeUTF(key);
 
-		public String toString() {
-			String s;
-
-			if (get(EGL10.EGL_ALPHA_SIZE) > 0)
-				s = String.format("[%d] RGBA%d%d%d%d",
-									get(EGL10.EGL_CONFIG_ID),
-									get(EGL10.EGL_RED_SIZE),
-									get(EGL10.EGL_GREEN_SIZE),
-									get(EGL10.EGL_BLUE_SIZE),
-									get(EGL10.EGL_ALPHA_SIZE));
-			else
-				s = String.format("[%d] RGB%d%d%d",
-									get(EGL10.EGL_CONFIG_ID),
-									get(EGL10.EGL_RED_SIZE),
-									get(EGL10.EGL_GREEN_SIZE),
-									get(EGL10.EGL_BLUE_SIZE));
-
-			if (get(EGL10.EGL_DEPTH_SIZE) > 0)
-				s += String.format(" D%d", get(EGL10.EGL_DEPTH_SIZE));
-
-			if (get(EGL10.EGL_STENCIL_SIZE) > 0)
-				s += String.format(" S%d", get(EGL10.EGL_STENCIL_SIZE));
-
-			if (get(EGL10.EGL_SAMPLES) > 0)
-				s += String.format(" MSAAx%d", get(EGL10.EGL_SAMPLES));
-
-			if ((get(EGL10.EGL_SURFACE_TYPE) & EGL10.EGL_WINDOW_BIT) > 0)
-				s += " W";
-			if ((get(EGL10.EGL_SURFACE_TYPE) & EGL10.EGL_PBUFFER_BIT) > 0)
-				s += " P";
-			if ((get(EGL10.EGL_SURFACE_TYPE) & EGL10.EGL_PIXMAP_BIT) > 0)
-				s += " X";
-
-			switch (get(EGL10.EGL_CONFIG_CAVEAT)) {
-			case EGL10.EGL_NONE:
-				break;
-
-			case EGL10.EGL_SLOW_CONFIG:
-				s += " SLOW";
-				break;
-
-			case EGL10.EGL_NON_CONFORMANT_CONFIG:
-				s += " NON_CONFORMANT";
-
-			default:
-				s += String.format(" unknown CAVEAT 0x%x",
-									get(EGL10.EGL_CONFIG_CAVEAT));
+				for (int value : attr.values)
+					out.writeInt(value);
+			} finally {
+				out.close();
 			}
-
-			return s;
+		} catch (IOException e) {
+			Log.w(LOG_TAG, "Unable to write " + file, e);
 		}
-	};
+	}
+
+	final private EGLConfig chooseEglConfig() {
+		final String key = eglConfigCacheKey();
+
+		EGLConfig res = loadEglConfig(key);
 
-	final private EGLConfig chooseEglConfig(EGLConfig[] configs) {
-		EGLConfig res = configs[0];
-		int bestScore = -1;
+		if (res != null)
+			return res;
 
-		Log.d(LOG_TAG, "EGL configs:");
+		int[] num_config = new int[1];
+		_egl.eglGetConfigs(_egl_display, null, 0, num_config);
+
+		final int numConfigs = num_config[0];
+
+		if (numConfigs <= 0)
+			throw new IllegalArgumentException("No EGL configs");
+
+		EGLConfig[] configs = new EGLConfig[numConfigs];
+		_egl.eglGetConfigs(_egl_display, configs, numConfigs, num_config);
+
+		// Android's eglChooseConfig is busted in several versions and
+		// devices so we have to filter/rank the configs ourselves.
+		// The best few are kept, by score, for the benchmark
+		final int keep = _egl_benchmark ? EGL_BENCHMARK_CANDIDATES : 1;
+		final EGLConfig[] top = new EGLConfig[keep];
+		final int[] topScores = new int[keep];
+		final int[][] topValues = new int[keep][EglConfigPolicy.ATTRIBS.length];
+		int found = 0;
+
+		// The tracer formats its records later, so the attributes are
+		// described right away, and only if the trace point is on
+		final boolean trace = Tracer.on(Tracer.DEBUG);
+		final EglAttribs attr = new EglAttribs();
+
+		Tracer.trace(T_EGL_CONFIGS);
 
 		for (EGLConfig config : configs) {
-			EglAttribs attr = new EglAttribs(config);
+			attr.read(config);
 
-			// must have
-			if ((attr.get(EGL10.EGL_SURFACE_TYPE) & EGL10.EGL_WINDOW_BIT) == 0)
+			final int score = _egl_policy.rate(attr.values);
+
+			if (score < 0)
 				continue;
 
-			int score = attr.weight();
+			if (trace)
+				Tracer.trace(T_EGL_CONFIG, attr.toString(), score, 0, 0, 0);
+
+			if (found == keep && score <= topScores[keep - 1])
+				continue;
 
-			Log.d(LOG_TAG, String.format("%s (%d)", attr.toString(), score));
+			int i = Math.min(found, keep - 1);
 
-			if (score > bestScore) {
-				res = config;
-				bestScore = score;
+			for (; i > 0 && topScores[i - 1] < score; --i) {
+				top[i] = top[i - 1];
+				topScores[i] = topScores[i - 1];
+				System.arraycopy(topValues[i - 1], 0, topValues[i], 0,
+									topValues[i].length);
 			}
+
+			top[i] = config;
+			topScores[i] = score;
+			System.arraycopy(attr.values, 0, topValues[i], 0,
+								topValues[i].length);
+
+			if (found < keep)
+				found++;
 		}
 
-		if (bestScore < 0)
+		if (found == 0) {
 			Log.e(LOG_TAG,
 					"Unable to find an acceptable EGL config, expect badness.");
+			return configs[0];
+		}
+
+		int chosen = 0;
+
+		if (found > 1)
+			chosen = benchmarkEglConfigs(top, topValues, found);
+
+		System.arraycopy(topValues[chosen], 0, attr.values, 0,
+							attr.values.length);
 
-		Log.d(LOG_TAG, String.format("Chosen EGL config: %s",
-										new EglAttribs(res).toString()));
+		Tracer.trace(T_EGL_CHOSEN, attr);
 
-		return res;
+		saveEglConfig(key, attr);
+
+		return top[chosen];
+	}
+
+	// Index of the config which filled a pbuffer the fastest, 0 if none
+	// could be measured
+	final private int benchmarkEglConfigs(EGLConfig[] configs,
+											int[][] values, int count) {
+		int best = 0;
+		long bestTime = Long.MAX_VALUE;
+
+		for (int i = 0; i < count; ++i) {
+			if ((values[i][EglConfigPolicy.SURFACE_TYPE] &
+					EGL10.EGL_PBUFFER_BIT) == 0)
+				continue;
+
+			final long time = benchmarkEglConfig(configs[i]);
+
+			Log.i(LOG_TAG, String.format("EGL config %s: %s",
+						EglConfigPolicy.describe(values[i]),
+						time == Long.MAX_VALUE ? "failed" :
+							String.format("%.2fms", time / 1000000.0)));
+
+			if (time < bestTime) {
+				best = i;
+				bestTime = time;
+			}
+		}
+
+		return best;
+	}
+
+	// ns to draw EGL_BENCHMARK_FRAMES of blended full screen quads into a
+	// pbuffer, Long.MAX_VALUE if that fails
+	final private long benchmarkEglConfig(EGLConfig config) {
+		final int[] surface_attribs = {
+			EGL10.EGL_WIDTH, EGL_BENCHMARK_SIZE,
+			EGL10.EGL_HEIGHT, EGL_BENCHMARK_SIZE,
+			EGL10.EGL_NONE
+		};
+
+		EGLSurface surface = _egl.eglCreatePbufferSurface(_egl_display,
+															config,
+															surface_attribs);
+
+		if (surface == EGL10.EGL_NO_SURFACE)
+			return Long.MAX_VALUE;
+
+		EGLContext context = _egl.eglCreateContext(_egl_display, config,
+													EGL10.EGL_NO_CONTEXT,
+													null);
+
+		try {
+			if (context == EGL10.EGL_NO_CONTEXT ||
+					!_egl.eglMakeCurrent(_egl_display, surface, surface,
+											context))
+				return Long.MAX_VALUE;
+
+			final GL10 gl = (GL10)context.getGL();
+			final float[] quad = { -1, -1, 1, -1, -1, 1, 1, 1 };
+			final FloatBuffer vertices = ByteBuffer
+				.allocateDirect(quad.length * 4)
+				.order(ByteOrder.nativeOrder())
+				.asFloatBuffer();
+
+			vertices.put(quad).position(0);
+
+			gl.glEnableClientState(GL10.GL_VERTEX_ARRAY);
+			gl.glVertexPointer(2, GL10.GL_FLOAT, 0, vertices);
+			gl.glEnable(GL10.GL_BLEND);
+			gl.glBlendFunc(GL10.GL_SRC_ALPHA, GL10.GL_ONE_MINUS_SRC_ALPHA);
+			gl.glColor4f(1, 1, 1, 0.5f);
+
+			// the first frame pays for the driver's setup
+			drawBenchmarkFrames(gl, 1);
+
+			final long start = System.nanoTime();
+
+			drawBenchmarkFrames(gl, EGL_BENCHMARK_FRAMES);
+
+			return System.nanoTime() - start;
+		} finally {
+			_egl.eglMakeCurrent(_egl_display, EGL10.EGL_NO_SURFACE,
+								EGL10.EGL_NO_SURFACE, EGL10.EGL_NO_CONTEXT);
+
+			if (context != EGL10.EGL_NO_CONTEXT)
+				_egl.eglDestroyContext(_egl_display, context);
+
+			_egl.eglDestroySurface(_egl_display, surface);
+		}
+	}
+
+	final private static void drawBenchmarkFrames(GL10 gl, int frames) {
+		for (int f = 0; f < frames; ++f) {
+			gl.glClear(GL10.GL_COLOR_BUFFER_BIT);
+
+			for (int i = 0; i < EGL_BENCHMARK_OVERDRAW; ++i)
+				gl.glDrawArrays(GL10.GL_TRIANGLE_STRIP, 0, 4);
+		}
+
+		gl.glFinish();
 	}
 
 	static {
@@ -445,9 +1403,14 @@ public abstract class ScummVM implements SurfaceHolder.Callback, Runnable {
 		}
 
 		File cache_dir = ScummVMApplication.getLastCacheDir();
-		String libname = System.mapLibraryName("scummvm");
-		File libpath = new File(cache_dir, libname);
 
-		System.load(libpath.getPath());
+		// no application on the JVM tests and benchmarks, see the jvm
+		// directory. Nothing native may be called there
+		if (cache_dir != null) {
+			String libname = System.mapLibraryName("scummvm");
+			File libpath = new File(cache_dir, libname);
+
+			System.load(libpath.getPath());
+		}
 	}
 }
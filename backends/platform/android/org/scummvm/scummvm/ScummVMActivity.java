@@ -5,30 +5,91 @@ import android.app.AlertDialog;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.media.AudioManager;
-import android.os.AsyncTask;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Environment;
 import android.util.DisplayMetrics;
 import android.util.Log;
-import android.view.KeyEvent;
 import android.view.SurfaceView;
 import android.view.SurfaceHolder;
 import android.view.MotionEvent;
-import android.view.View;
-import android.view.inputmethod.BaseInputConnection;
 import android.view.inputmethod.InputMethodManager;
 import android.widget.Toast;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 
 public class ScummVMActivity extends Activity {
 
-	private View mGame;
-	private MouseEmulatorTask task1;
-	private MouseEmulatorTask task2;
-	
+	// Intent extras to tune the input path
+	final public static String EXTRA_MOTION_HISTORY =
+		"org.scummvm.scummvm.MOTION_HISTORY";
+	// Tracer levels, the trace is dumped on exit if one is given. DEBUG
+	// records the hot paths too, it's off unless given
+	final public static String EXTRA_TRACE_LEVEL =
+		"org.scummvm.scummvm.TRACE_LEVEL";
+	final public static String EXTRA_TRACE_LOG_LEVEL =
+		"org.scummvm.scummvm.TRACE_LOG_LEVEL";
+	// Record the input events to the given file, or replay them from it,
+	// at the original pace or as fast as possible, see EventRecorder
+	final public static String EXTRA_RECORD_INPUT =
+		"org.scummvm.scummvm.RECORD_INPUT";
+	final public static String EXTRA_REPLAY_INPUT =
+		"org.scummvm.scummvm.REPLAY_INPUT";
+	final public static String EXTRA_REPLAY_FAST =
+		"org.scummvm.scummvm.REPLAY_FAST";
+	// Run InputBenchmark instead of the engine, writing its results to
+	// the given file, and quit
+	final public static String EXTRA_BENCHMARK_INPUT =
+		"org.scummvm.scummvm.BENCHMARK_INPUT";
+	// Size the audio buffer at runtime, from the underruns seen
+	final public static String EXTRA_AUDIO_ADAPTIVE =
+		"org.scummvm.scummvm.AUDIO_ADAPTIVE";
+	// Output audio through OpenSL ES buffer queue callbacks instead of
+	// the AudioTrack thread, where available
+	final public static String EXTRA_AUDIO_OPENSLES =
+		"org.scummvm.scummvm.AUDIO_OPENSLES";
+	// Keep the queued audio over pauses instead of flushing it
+	final public static String EXTRA_AUDIO_FAST_RESUME =
+		"org.scummvm.scummvm.AUDIO_FAST_RESUME";
+	// Keep the EGL context and its textures while there's no surface
+	final public static String EXTRA_PRESERVE_EGL_CONTEXT =
+		"org.scummvm.scummvm.PRESERVE_EGL_CONTEXT";
+	// Draw on a thread of its own, decoupled from the engine's
+	final public static String EXTRA_RENDER_THREAD =
+		"org.scummvm.scummvm.RENDER_THREAD";
+	// How many dirty regions a texture uploads at most, 1 for a single
+	// bounding box, and the percentage merging them may waste
+	final public static String EXTRA_DIRTY_RECTS =
+		"org.scummvm.scummvm.DIRTY_RECTS";
+	final public static String EXTRA_DIRTY_MERGE_SLACK =
+		"org.scummvm.scummvm.DIRTY_MERGE_SLACK";
+	// Render the mixer's output offline as fast as possible, into the
+	// given WAV file or nowhere if it's empty, for AUDIO_RENDER_SECONDS
+	// of audio. The results go to files/audio-render.csv
+	final public static String EXTRA_AUDIO_RENDER =
+		"org.scummvm.scummvm.AUDIO_RENDER";
+	final public static String EXTRA_AUDIO_RENDER_SECONDS =
+		"org.scummvm.scummvm.AUDIO_RENDER_SECONDS";
+	// How to rank EGL configs, see EglConfigPolicy. Devices listed in
+	// ScummVM/egl-devices.txt get the policy given there
+	final public static String EXTRA_EGL_POLICY =
+		"org.scummvm.scummvm.EGL_POLICY";
+	// Time the best few EGL configs and take the fastest
+	final public static String EXTRA_EGL_BENCHMARK =
+		"org.scummvm.scummvm.EGL_BENCHMARK";
+	// Pace presents to the display's vsync, and write the latest frames
+	// to files/frame-log.csv on exit
+	final public static String EXTRA_FRAME_PACING =
+		"org.scummvm.scummvm.FRAME_PACING";
+	// Write the frame stage histograms to files/frame-stats.csv on exit
+	final public static String EXTRA_FRAME_STATS =
+		"org.scummvm.scummvm.FRAME_STATS";
+	// Write the input latency histograms to files/input-latency.csv on exit
+	final public static String EXTRA_INPUT_LATENCY =
+		"org.scummvm.scummvm.INPUT_LATENCY";
+
 	/* Establish whether the hover events are available */
 	private static boolean _hoverAvailable;
 
@@ -119,11 +180,31 @@ public class ScummVMActivity extends Activity {
 	private ScummVMEvents _events;
 	private MouseHelper _mouseHelper;
 	private Thread _scummvm_thread;
+	private EventReplayer _replayer;
+	private FramePacer _frame_pacer;
 
 	@Override
 	public void onCreate(Bundle savedInstanceState) {
 		super.onCreate(savedInstanceState);
 
+		final Intent intent = getIntent();
+
+		Tracer.setLevels(intent.getIntExtra(EXTRA_TRACE_LEVEL, Tracer.INFO),
+							intent.getIntExtra(EXTRA_TRACE_LOG_LEVEL,
+												Tracer.INFO));
+		Tracer.installCrashHandler(new File(getFilesDir(), "crash-trace.txt"));
+
+		final String benchmark = intent.getStringExtra(EXTRA_BENCHMARK_INPUT);
+		if (benchmark != null) {
+			new InputBenchmark(this, new File(benchmark), new Runnable() {
+				public void run() {
+					finish();
+				}
+			}).start();
+
+			return;
+		}
+
 		setVolumeControlStream(AudioManager.STREAM_MUSIC);
 
 		setContentView(R.layout.main);
@@ -174,6 +255,39 @@ public class ScummVMActivity extends Activity {
 			"--savepath=" + savePath
 		});
 
+		_scummvm.setMotionHistory(
+			intent.getBooleanExtra(EXTRA_MOTION_HISTORY, false));
+		_scummvm.setAudioAdaptive(
+			intent.getBooleanExtra(EXTRA_AUDIO_ADAPTIVE, false));
+
+		_scummvm.setEglConfigPolicy(
+			EglConfigPolicy.forDevice(
+				intent.getStringExtra(EXTRA_EGL_POLICY),
+				new File(Environment.getExternalStorageDirectory(),
+							"ScummVM/egl-devices.txt")),
+			intent.getBooleanExtra(EXTRA_EGL_BENCHMARK, false));
+		_scummvm.preserveEglContext(
+			intent.getBooleanExtra(EXTRA_PRESERVE_EGL_CONTEXT, false));
+		_scummvm.useRenderThread(
+			intent.getBooleanExtra(EXTRA_RENDER_THREAD, false));
+		_scummvm.useDirtyRegions(
+			intent.getIntExtra(EXTRA_DIRTY_RECTS, 0),
+			intent.getIntExtra(EXTRA_DIRTY_MERGE_SLACK, 25));
+
+		_scummvm.useAudioFastResume(
+			intent.getBooleanExtra(EXTRA_AUDIO_FAST_RESUME, false));
+
+		final String render = intent.getStringExtra(EXTRA_AUDIO_RENDER);
+
+		if (render != null)
+			_scummvm.useAudioRender(
+				render.length() == 0 ? null : new File(render),
+				getFileStreamPath("audio-render.csv"),
+				intent.getIntExtra(EXTRA_AUDIO_RENDER_SECONDS, 60));
+		else if (intent.getBooleanExtra(EXTRA_AUDIO_OPENSLES, false))
+			_scummvm.useAudioBackend(ScummVM.AUDIO_BACKEND_OPENSLES,
+										getOutputFramesPerBuffer());
+
 		Log.d(ScummVM.LOG_TAG, "Hover available: " + _hoverAvailable);
 		if (_hoverAvailable) {
 			_mouseHelper = new MouseHelper(_scummvm);
@@ -189,18 +303,41 @@ public class ScummVMActivity extends Activity {
 			_events = new ScummVMEventsHoneycomb(this, _scummvm, _mouseHelper);
 		}
 
+		// user editable button mapping, see KeyRouter
+		_events.getKeyRouter().watch(new File(
+			Environment.getExternalStorageDirectory(), "ScummVM/keymap.txt"));
+
 		main_surface.setOnKeyListener(_events);
 		main_surface.setOnTouchListener(_events);
 		main_surface.setOnGenericMotionListener(_events);
 
-		mGame = (View) findViewById(R.id.main_surface);
-		task1 = new MouseEmulatorTask();
-        task1.execute(new Integer[]{5,1});
-        task2 = new MouseEmulatorTask();
-        task2.execute(new Integer[]{5,2});
-		
+		final String record = intent.getStringExtra(EXTRA_RECORD_INPUT);
+		if (record != null) {
+			try {
+				_scummvm.setEventRecorder(new EventRecorder(new File(record)));
+			} catch (IOException e) {
+				Log.e(ScummVM.LOG_TAG, "Unable to record input to " + record,
+						e);
+			}
+		}
+
+		if (intent.getBooleanExtra(EXTRA_FRAME_PACING, false)) {
+			if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+				_frame_pacer = new FramePacer(_scummvm,
+					getWindowManager().getDefaultDisplay().getRefreshRate());
+			else
+				Log.w(ScummVM.LOG_TAG, "Frame pacing needs Android 4.1");
+		}
+
 		_scummvm_thread = new Thread(_scummvm, "ScummVM");
 		_scummvm_thread.start();
+
+		final String replay = intent.getStringExtra(EXTRA_REPLAY_INPUT);
+		if (replay != null) {
+			_replayer = new EventReplayer(_scummvm, new File(replay),
+							intent.getBooleanExtra(EXTRA_REPLAY_FAST, false));
+			_replayer.start();
+		}
 	}
 
 	@Override
@@ -218,6 +355,8 @@ public class ScummVMActivity extends Activity {
 
 		if (_scummvm != null)
 			_scummvm.setPause(false);
+		if (_frame_pacer != null)
+			_frame_pacer.start();
 		showMouseCursor(false);
 	}
 
@@ -229,6 +368,10 @@ public class ScummVMActivity extends Activity {
 
 		if (_scummvm != null)
 			_scummvm.setPause(true);
+		if (_events != null)
+			_events.stopAnalogCursor();
+		if (_frame_pacer != null)
+			_frame_pacer.stop();
 		showMouseCursor(true);
 	}
 
@@ -242,11 +385,35 @@ public class ScummVMActivity extends Activity {
 	@Override
 	public void onDestroy() {
 		Log.d(ScummVM.LOG_TAG, "onDestroy");
-		task1.cancel(true);
-		task2.cancel(true);
+
 		super.onDestroy();
 
+		if (getIntent().hasExtra(EXTRA_TRACE_LEVEL))
+			Tracer.dump(new File(getFilesDir(), "trace.txt"));
+
+		if (_replayer != null)
+			_replayer.stop();
+
+		if (_scummvm != null)
+			_scummvm.setEventRecorder(null);
+
+		if (_scummvm != null &&
+				getIntent().getBooleanExtra(EXTRA_INPUT_LATENCY, false))
+			_scummvm.dumpInputLatency(new File(getFilesDir(),
+												"input-latency.csv"));
+
+		if (_scummvm != null &&
+				getIntent().getBooleanExtra(EXTRA_FRAME_STATS, false))
+			_scummvm.dumpFrameStats(new File(getFilesDir(),
+												"frame-stats.csv"));
+
+		if (_frame_pacer != null) {
+			_frame_pacer.stop();
+			_scummvm.dumpFrameLog(new File(getFilesDir(), "frame-log.csv"));
+		}
+
 		if (_events != null) {
+			_events.getKeyRouter().stopWatching();
 			_events.sendQuitEvent();
 
 			try {
@@ -300,93 +467,32 @@ public class ScummVMActivity extends Activity {
 				   "tv.ouya.controller.action.HIDE_CURSOR");
 		sendBroadcast(intent);
 	}
-	
-	public class MouseEmulatorTask extends AsyncTask<Integer, Integer, Long> {
-		protected void onPreExecute() {
-	         //showDialog("Downloaded " + result + " bytes");
-	    	 Log.i(ScummVM.LOG_TAG,"MouseEmulatorTask started");
-	     }
-	
-	     protected Long doInBackground(Integer... data) {
-	         int delay = data[0];
-	         int axis = data[1];
-	         long totalSize = 0;
-	         
-	         while (true) {
-		         try {
-					Thread.sleep(delay);
-					//getRunningApps();
-				 } catch (InterruptedException e) {
-					// TODO Auto-generated catch block
-					e.printStackTrace();
-				 }
-		         if (isCancelled()) break;
-
-		         boolean done[] = new boolean[4];
-		         /*
-		         if (_events.getActiveCursor(axis,(axis==1 ? 0 : 2))) {
-		        	 generateKeyEvent(KeyEvent.KEYCODE_DPAD_RIGHT,KeyEvent.ACTION_DOWN);
-		        	 done[0] = true;
-		         }
-		         if (_events.getActiveCursor(axis,(axis==1 ? 1 : 3))) {
-		        	 generateKeyEvent(KeyEvent.KEYCODE_DPAD_LEFT,KeyEvent.ACTION_DOWN);
-		        	 done[1] = true;
-		         }
-		         if (_events.getActiveCursor(axis,(axis==1 ? 2 : 0))) {
-		        	 generateKeyEvent(KeyEvent.KEYCODE_DPAD_DOWN,KeyEvent.ACTION_DOWN);
-		        	 done[2] = true;
-		         }
-		         if (_events.getActiveCursor(axis,(axis==1 ? 3 : 1))) {
-		        	 generateKeyEvent(KeyEvent.KEYCODE_DPAD_UP,KeyEvent.ACTION_DOWN);
-		        	 done[3] = true;
-		         }
-		         */
-		         
-		         if (axis == 1 && _events.getActiveCursor(1,0)) {
-		        	 generateKeyEvent(KeyEvent.KEYCODE_DPAD_RIGHT,KeyEvent.ACTION_DOWN);
-		        	 done[0] = true;
-		         }
-		         if (axis == 1 && _events.getActiveCursor(1,1)) {
-		        	 generateKeyEvent(KeyEvent.KEYCODE_DPAD_LEFT,KeyEvent.ACTION_DOWN);
-		        	 done[1] = true;
-		         }
-		         if (axis == 2 && _events.getActiveCursor(1,2)) {
-		        	 generateKeyEvent(KeyEvent.KEYCODE_DPAD_DOWN,KeyEvent.ACTION_DOWN);
-		        	 done[2] = true;
-		         }
-		         if (axis == 2 && _events.getActiveCursor(1,3)) {
-		        	 generateKeyEvent(KeyEvent.KEYCODE_DPAD_UP,KeyEvent.ACTION_DOWN);
-		        	 done[3] = true;
-		         }
-	         	 if (done[0]) generateKeyEvent(KeyEvent.KEYCODE_DPAD_RIGHT,KeyEvent.ACTION_UP);
-	         	 if (done[1]) generateKeyEvent(KeyEvent.KEYCODE_DPAD_LEFT,KeyEvent.ACTION_UP);
-	         	 if (done[2]) generateKeyEvent(KeyEvent.KEYCODE_DPAD_DOWN,KeyEvent.ACTION_UP);
-	         	 if (done[3]) generateKeyEvent(KeyEvent.KEYCODE_DPAD_UP,KeyEvent.ACTION_UP);	         	 	         
-	         }
-	        
-	         return totalSize;
-	     }
-	    
-
-	     protected void onPostExecute(Long result) {
-	         //showDialog("Downloaded " + result + " bytes");
-	    	 Log.i(ScummVM.LOG_TAG,"MouseEmulatorTask finished");
-	     }
+
+	// The period the device mixes in, 0 if it doesn't tell. The property
+	// is API 17, so it's looked up by name.
+	private int getOutputFramesPerBuffer() {
+		if (Build.VERSION.SDK_INT < 17)
+			return 0;
+
+		try {
+			AudioManager am =
+				(AudioManager)getSystemService(AUDIO_SERVICE);
+			String frames = (String)AudioManager.class
+				.getMethod("getProperty", String.class)
+				.invoke(am, "android.media.property.OUTPUT_FRAMES_PER_BUFFER");
+
+			return frames == null ? 0 : Integer.parseInt(frames);
+		} catch (Exception e) {
+			Log.w(ScummVM.LOG_TAG, "Unable to get the output period", e);
+			return 0;
+		}
 	}
 	
-
-	public void generateKeyEvent(int keyCode,int action) {
-		Log.d(ScummVM.LOG_TAG,"keyCode = "+keyCode+", action = "+action);
-		/*
-		if (KeyEvent.KEYCODE_DPAD_RIGHT == keyCode) System.out.println("Right");
-		else if (KeyEvent.KEYCODE_DPAD_LEFT == keyCode) System.out.println("Left");
-		else if (KeyEvent.KEYCODE_DPAD_DOWN == keyCode) System.out.println("Down");
-		else if (KeyEvent.KEYCODE_DPAD_UP == keyCode) System.out.println("Up");
-		*/
-		if (mGame != null) {
-			BaseInputConnection  mInputConnection = new BaseInputConnection(mGame, true);
-			mInputConnection.sendKeyEvent(new KeyEvent(action,keyCode));
-			//mInputConnection.sendKeyEvent(new KeyEvent(KeyEvent.ACTION_UP,keyCode));
+	// Send a key to the engine as if it was pressed
+	public void generateKeyEvent(int keyCode, int action) {
+		if (_events != null) {
+			_events.injectKey(keyCode, action);
+			_scummvm.flushEvents();
 		}
 	}
 }
@@ -1,12 +1,11 @@
 package org.scummvm.scummvm;
 
-import java.util.List;
-
+import android.os.Build;
 import android.os.Handler;
 import android.os.Message;
+import android.os.SystemClock;
 import android.util.Log;
 import android.util.SparseArray;
-import android.util.SparseIntArray;
 import android.content.Context;
 import android.view.InputDevice;
 import android.view.InputEvent;
@@ -16,7 +15,6 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.GestureDetector;
-import android.view.InputDevice.MotionRange;
 import android.view.InputDevice;
 import android.view.inputmethod.InputMethodManager;
 
@@ -25,7 +23,8 @@ public class ScummVMEvents implements
 		android.view.View.OnTouchListener,
 		android.view.View.OnGenericMotionListener,
 		android.view.GestureDetector.OnGestureListener,
-		android.view.GestureDetector.OnDoubleTapListener {
+		android.view.GestureDetector.OnDoubleTapListener,
+		InputDeviceState.AxisListener {
 
 	public static final int JE_SYS_KEY = 0;
 	public static final int JE_KEY = 1;
@@ -47,11 +46,19 @@ public class ScummVMEvents implements
 	public static final int JE_MMB_UP = 17;
 	public static final int JE_QUIT = 0x1000;
 
+	final private static int T_KEY =
+		Tracer.define(Tracer.DEBUG, "onKey keyCode=%d action=%d");
+	final private static int T_DEVICE =
+		Tracer.defineObject(Tracer.INFO, "%s");
+
 	final protected Context _context;
 	final protected ScummVM _scummvm;
 	final protected GestureDetector _gd;
 	final protected int _longPress;
 	final protected MouseHelper _mouseHelper;
+	final protected AnalogCursor _analogCursor;
+	final protected KeyCharacterMap _keyCharacterMap;
+	final protected KeyRouter _keyRouter;
 
 	public ScummVMEvents(Context context, ScummVM scummvm, MouseHelper mouseHelper) {
 		_context = context;
@@ -62,9 +69,19 @@ public class ScummVMEvents implements
 		_gd.setOnDoubleTapListener(this);
 		_gd.setIsLongpressEnabled(false);
 		
-		mInputDeviceStates = new SparseArray<InputDeviceState>();
+		_inputDeviceStates = new SparseArray<InputDeviceState>();
 
 		_longPress = ViewConfiguration.getLongPressTimeout();
+
+		// used for injected keys
+		_keyCharacterMap = KeyCharacterMap.load(KeyCharacterMap.VIRTUAL_KEYBOARD);
+
+		_keyRouter = new KeyRouter();
+
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN)
+			_analogCursor = new AnalogCursorJellyBean(scummvm);
+		else
+			_analogCursor = new AnalogCursor(scummvm);
 	}
 
 	final public void sendQuitEvent() {
@@ -72,39 +89,56 @@ public class ScummVMEvents implements
 	}
 
 	public boolean onTrackballEvent(MotionEvent e) {
-		_scummvm.pushEvent(JE_BALL, e.getAction(),
+		_scummvm.queueEvent(JE_BALL, e.getAction(),
 							(int)(e.getX() * e.getXPrecision() * 100),
 							(int)(e.getY() * e.getYPrecision() * 100),
-							0, 0);
+							0, 0, e.getEventTime());
+		_scummvm.flushEvents();
 		return true;
 	}
 	
-	protected boolean[] activeCursor1 = new boolean[4];
-	protected boolean[] activeCursor2 = new boolean[4];
-	
-	private SparseArray<InputDeviceState> mInputDeviceStates;
-	
+	// Joystick axis tuning, applied to every controller
+	private float _axisDeadzone = 0.15f;
+	private float _axisThreshold = 0.5f;
+	private float _axisHysteresis = 0.1f;
+
+	final private SparseArray<InputDeviceState> _inputDeviceStates;
+
 	private InputDeviceState getInputDeviceState(InputEvent event) {
-        final int deviceId = event.getDeviceId();
-        InputDeviceState state = mInputDeviceStates.get(deviceId);
-        if (state == null) {
-            final InputDevice device = event.getDevice();
-            if (device == null) {
-                return null;
-            }
-            state = new InputDeviceState(device);
-            mInputDeviceStates.put(deviceId, state);
-
-            Log.i(ScummVM.LOG_TAG, device.toString());
-        }
-        return state;
-    }
-
-	/*
+		final int deviceId = event.getDeviceId();
+		InputDeviceState state = _inputDeviceStates.get(deviceId);
+
+		if (state == null) {
+			final InputDevice device = event.getDevice();
+
+			if (device == null)
+				return null;
+
+			state = new InputDeviceState(device, _axisDeadzone,
+											_axisThreshold, _axisHysteresis);
+			_inputDeviceStates.put(deviceId, state);
+
+			Tracer.trace(T_DEVICE, device);
+		}
+
+		return state;
+	}
+
+	// Deadzones only apply to controllers seen from now on, the
+	// threshold is updated for all of them
+	final public void setAxisTuning(float deadzone, float threshold,
+									float hysteresis) {
+		_axisDeadzone = deadzone;
+		_axisThreshold = threshold;
+		_axisHysteresis = hysteresis;
+
+		for (int i = 0; i < _inputDeviceStates.size(); ++i)
+			_inputDeviceStates.valueAt(i).setThreshold(threshold, hysteresis);
+	}
+
 	public boolean onGenericMotionEvent(MotionEvent e) {
 		return false;
 	}
-	*/
 
 	final static int MSG_MENU_LONG_PRESS = 1;
 
@@ -124,25 +158,86 @@ public class ScummVMEvents implements
 	// OnKeyListener
 	@Override
 	final public boolean onKey(View v, int keyCode, KeyEvent e) {
-		Log.d(ScummVM.LOG_TAG,"onKey keyCode="+keyCode);
+		final boolean handled = handleKey(keyCode, e);
+
+		// hand everything this key produced to the native side at once
+		_scummvm.flushEvents();
+
+		return handled;
+	}
+
+	final private boolean handleKey(int keyCode, KeyEvent e) {
 		final int action = e.getAction();
 
-		if (keyCode == 238) {
-			// this (undocumented) event is sent when ACTION_HOVER_ENTER or ACTION_HOVER_EXIT occurs
+		Tracer.trace(T_KEY, keyCode, action);
+
+		final int route = _keyRouter.route(KeyRouter.classOf(e), keyCode);
+		final int target = KeyRouter.target(route, keyCode);
+
+		switch (KeyRouter.kind(route)) {
+		case KeyRouter.ROUTE_IGNORE:
 			return false;
+
+		case KeyRouter.ROUTE_DROP:
+			return true;
+
+		case KeyRouter.ROUTE_SYSTEM:
+			return handleSystemKey(target, e);
+
+		case KeyRouter.ROUTE_DPAD:
+			_scummvm.queueEvent(JE_DPAD, action, target,
+								(int)(e.getEventTime() - e.getDownTime()),
+								e.getRepeatCount(), 0, e.getEventTime());
+			return true;
+
+		case KeyRouter.ROUTE_GAMEPAD:
+			_scummvm.queueEvent(JE_GAMEPAD, action, target,
+								(int)(e.getEventTime() - e.getDownTime()),
+								e.getRepeatCount(), 0, e.getEventTime());
+			return true;
 		}
 
-		if (keyCode == KeyEvent. KEYCODE_BUTTON_1) {
-			((ScummVMActivity)_context).generateKeyEvent(KeyEvent.KEYCODE_SPACE,action);
+		// a key mapped to another one, with the modifiers and repeats of
+		// the one pressed
+		if (target != keyCode) {
+			final int metaState = e.getMetaState();
+
+			_scummvm.queueEvent(JE_KEY, action, target,
+								_keyCharacterMap.get(target, metaState) &
+									KeyCharacterMap.COMBINING_ACCENT_MASK,
+								metaState, e.getRepeatCount(),
+								e.getEventTime());
 			return true;
 		}
-		if (keyCode == KeyEvent. KEYCODE_BUTTON_2) {
-			_scummvm.pushEvent(JE_DPAD, action, KeyEvent.KEYCODE_DPAD_CENTER,
-					(int)(e.getEventTime() - e.getDownTime()),
-					e.getRepeatCount(), 0);
+
+		// sequence of characters
+		if (action == KeyEvent.ACTION_MULTIPLE &&
+				keyCode == KeyEvent.KEYCODE_UNKNOWN) {
+			final KeyCharacterMap m = KeyCharacterMap.load(e.getDeviceId());
+			final KeyEvent[] es = m.getEvents(e.getCharacters().toCharArray());
+
+			if (es == null)
+				return true;
+
+			for (KeyEvent s : es) {
+				_scummvm.queueEvent(JE_KEY, s.getAction(), s.getKeyCode(),
+					s.getUnicodeChar() & KeyCharacterMap.COMBINING_ACCENT_MASK,
+					s.getMetaState(), s.getRepeatCount(), e.getEventTime());
+			}
+
 			return true;
 		}
-		
+
+		_scummvm.queueEvent(JE_KEY, action, keyCode,
+					e.getUnicodeChar() & KeyCharacterMap.COMBINING_ACCENT_MASK,
+					e.getMetaState(), e.getRepeatCount(), e.getEventTime());
+
+		return true;
+	}
+
+	final private boolean handleSystemKey(int keyCode, KeyEvent e) {
+		final int action = e.getAction();
+
 		if (keyCode == KeyEvent.KEYCODE_BACK) {
 			if (action != KeyEvent.ACTION_UP) {
 				// only send event from back button on up event, since down event is sent on right mouse click and
@@ -158,111 +253,80 @@ public class ScummVMEvents implements
 			}
 		}
 
-		if (e.isSystem()) {
-			// filter what we handle
-			switch (keyCode) {
-			case KeyEvent.KEYCODE_BACK:
-			case KeyEvent.KEYCODE_MENU:
-			case KeyEvent.KEYCODE_CAMERA:
-			case KeyEvent.KEYCODE_SEARCH:
-				break;
-
-			default:
-				return false;
-			}
-
-			// no repeats for system keys
-			if (e.getRepeatCount() > 0)
-				return false;
-
-			// Have to reimplement hold-down-menu-brings-up-softkeybd
-			// ourselves, since we are otherwise hijacking the menu key :(
-			// See com.android.internal.policy.impl.PhoneWindow.onKeyDownPanel()
-			// for the usual Android implementation of this feature.
-			if (keyCode == KeyEvent.KEYCODE_MENU) {
-				final boolean fired =
-					!keyHandler.hasMessages(MSG_MENU_LONG_PRESS);
-
-				keyHandler.removeMessages(MSG_MENU_LONG_PRESS);
+		// no repeats for system keys
+		if (e.getRepeatCount() > 0)
+			return false;
 
-				if (action == KeyEvent.ACTION_DOWN) {
-					keyHandler.sendMessageDelayed(keyHandler.obtainMessage(
-									MSG_MENU_LONG_PRESS), _longPress);
-					return true;
-				}
+		// Have to reimplement hold-down-menu-brings-up-softkeybd
+		// ourselves, since we are otherwise hijacking the menu key :(
+		// See com.android.internal.policy.impl.PhoneWindow.onKeyDownPanel()
+		// for the usual Android implementation of this feature.
+		if (keyCode == KeyEvent.KEYCODE_MENU) {
+			final boolean fired =
+				!keyHandler.hasMessages(MSG_MENU_LONG_PRESS);
 
-				if (fired)
-					return true;
+			keyHandler.removeMessages(MSG_MENU_LONG_PRESS);
 
-				// only send up events of the menu button to the native side
-				if (action != KeyEvent.ACTION_UP)
-					return true;
+			if (action == KeyEvent.ACTION_DOWN) {
+				keyHandler.sendMessageDelayed(keyHandler.obtainMessage(
+								MSG_MENU_LONG_PRESS), _longPress);
+				return true;
 			}
 
-			_scummvm.pushEvent(JE_SYS_KEY, action, keyCode, 0, 0, 0);
+			if (fired)
+				return true;
 
-			return true;
+			// only send up events of the menu button to the native side
+			if (action != KeyEvent.ACTION_UP)
+				return true;
 		}
 
-		// sequence of characters
-		if (action == KeyEvent.ACTION_MULTIPLE &&
-				keyCode == KeyEvent.KEYCODE_UNKNOWN) {
-			final KeyCharacterMap m = KeyCharacterMap.load(e.getDeviceId());
-			final KeyEvent[] es = m.getEvents(e.getCharacters().toCharArray());
-
-			if (es == null)
-				return true;
+		_scummvm.queueEvent(JE_SYS_KEY, action, keyCode, 0, 0, 0,
+							e.getEventTime());
 
-			for (KeyEvent s : es) {
-				_scummvm.pushEvent(JE_KEY, s.getAction(), s.getKeyCode(),
-					s.getUnicodeChar() & KeyCharacterMap.COMBINING_ACCENT_MASK,
-					s.getMetaState(), s.getRepeatCount());
-			}
+		return true;
+	}
 
-			return true;
+	// Inject a key without a KeyEvent, e.g. for buttons mapped to other
+	// keys.  This neither allocates nor goes through the view hierarchy,
+	// the event is only queued, see ScummVM.queueEvent().  D-pad and
+	// gamepad keys still go out as such.
+	final public void injectKey(int keyCode, int action) {
+		final long time = SystemClock.uptimeMillis();
+
+		switch (KeyRouter.kind(_keyRouter.route(KeyRouter.CLASS_KEYBOARD,
+												keyCode))) {
+		case KeyRouter.ROUTE_DPAD:
+			_scummvm.queueEvent(JE_DPAD, action, keyCode, 0, 0, 0, time);
+			return;
+
+		case KeyRouter.ROUTE_GAMEPAD:
+			_scummvm.queueEvent(JE_GAMEPAD, action, keyCode, 0, 0, 0, time);
+			return;
 		}
 
-		switch (keyCode) {
-		case KeyEvent.KEYCODE_DPAD_UP:
-		case KeyEvent.KEYCODE_DPAD_DOWN:
-		case KeyEvent.KEYCODE_DPAD_LEFT:
-		case KeyEvent.KEYCODE_DPAD_RIGHT:
-		case KeyEvent.KEYCODE_DPAD_CENTER:
-			_scummvm.pushEvent(JE_DPAD, action, keyCode,
-								(int)(e.getEventTime() - e.getDownTime()),
-								e.getRepeatCount(), 0);
-			return true;
-		case KeyEvent.KEYCODE_BUTTON_A:
-		case KeyEvent.KEYCODE_BUTTON_B:
-		case KeyEvent.KEYCODE_BUTTON_C:
-		case KeyEvent.KEYCODE_BUTTON_X:
-		case KeyEvent.KEYCODE_BUTTON_Y:
-		case KeyEvent.KEYCODE_BUTTON_Z:
-		case KeyEvent.KEYCODE_BUTTON_L1:
-		case KeyEvent.KEYCODE_BUTTON_R1:
-		case KeyEvent.KEYCODE_BUTTON_L2:
-		case KeyEvent.KEYCODE_BUTTON_R2:
-		case KeyEvent.KEYCODE_BUTTON_THUMBL:
-		case KeyEvent.KEYCODE_BUTTON_THUMBR:
-		case KeyEvent.KEYCODE_BUTTON_START:
-		case KeyEvent.KEYCODE_BUTTON_SELECT:
-		case KeyEvent.KEYCODE_BUTTON_MODE:
-			_scummvm.pushEvent(JE_GAMEPAD, action, keyCode,
-								(int)(e.getEventTime() - e.getDownTime()),
-								e.getRepeatCount(), 0);
-			return true;
-		}
-
-		_scummvm.pushEvent(JE_KEY, action, keyCode,
-					e.getUnicodeChar() & KeyCharacterMap.COMBINING_ACCENT_MASK,
-					e.getMetaState(), e.getRepeatCount());
+		_scummvm.queueEvent(JE_KEY, action, keyCode,
+							_keyCharacterMap.get(keyCode, 0) &
+								KeyCharacterMap.COMBINING_ACCENT_MASK,
+							0, 0, time);
+	}
 
-		return true;
+	final public KeyRouter getKeyRouter() {
+		return _keyRouter;
 	}
 
 	// OnTouchListener
 	@Override
 	final public boolean onTouch(View v, MotionEvent e) {
+		final boolean handled = handleTouch(e);
+
+		// the gesture detector callbacks only queue their events
+		_scummvm.flushEvents();
+
+		return handled;
+	}
+
+	final private boolean handleTouch(MotionEvent e) {
 		if (_mouseHelper != null) {
 			boolean isMouse = MouseHelper.isMouse(e);
 			if (isMouse) {
@@ -278,8 +342,9 @@ public class ScummVMEvents implements
 		final int pointer = (action & 0xff00) >> 8;
 
 		if (pointer > 0) {
-			_scummvm.pushEvent(JE_MULTI, pointer, action & 0xff, // ACTION_MASK
-								(int)e.getX(), (int)e.getY(), 0);
+			_scummvm.queueEvent(JE_MULTI, pointer, action & 0xff, // ACTION_MASK
+								(int)e.getX(), (int)e.getY(), 0,
+								e.getEventTime());
 			return true;
 		}
 
@@ -288,83 +353,63 @@ public class ScummVMEvents implements
 	
 	// OnGenericMotionListener
 	final public boolean onGenericMotion(View v, MotionEvent event) {
-		Log.i(ScummVM.LOG_TAG,"onGenericMotion");
-		if ((event.getSource() & InputDevice.SOURCE_CLASS_JOYSTICK) != 0
-                && event.getAction() == MotionEvent.ACTION_MOVE) {
-            // Update device state for visualization and logging.
-            InputDeviceState state = getInputDeviceState(event);
-            if (state != null && state.onJoystickMotion(event)) {
-            	            	
-                //mSummaryAdapter.show(state);
-                
-                if (state.getAxisValue(0)>0.9) {
-            		if (activeCursor1[0] == false) activeCursor1[0] = true;
-            	}
-                else if (state.getAxisValue(0)<0.9) {
-                	if (activeCursor1[0] == true) activeCursor1[0] = false;
-                }
-                
-            	if (state.getAxisValue(0)<-0.9) {
-            		if (activeCursor1[1] == false) activeCursor1[1] = true;
-            	}
-            	else if (state.getAxisValue(0)>-0.9) {
-            		if (activeCursor1[1] == true) activeCursor1[1] = false;
-            	}
-            	
-            	if (state.getAxisValue(1)>0.9) {            		
-            		if (activeCursor1[2] == false) activeCursor1[2] = true;
-            	}
-            	else if (state.getAxisValue(1)<0.9) {
-            		if (activeCursor1[2] == true) activeCursor1[2] = false;
-            	}
-            	
-            	
-            	if (state.getAxisValue(1)<-0.9) {
-            		if (activeCursor1[3] == false) activeCursor1[3] = true;
-            	}
-            	else if (state.getAxisValue(1)>-0.9) {
-            		if (activeCursor1[3] == true) activeCursor1[3] = false;
-            	}
-            	
-            	//
-            	if (state.getAxisValue(3)>0.9) {
-            		if (activeCursor2[0] == false) activeCursor2[0] = true;
-            	}
-                else if (state.getAxisValue(3)<0.9) {
-                	if (activeCursor2[0] == true) activeCursor2[0] = false;
-                }
-                
-            	if (state.getAxisValue(3)<-0.9) {
-            		if (activeCursor2[1] == false) activeCursor2[1] = true;
-            	}
-            	else if (state.getAxisValue(3)>-0.9) {
-            		if (activeCursor2[1] == true) activeCursor2[1] = false;
-            	}
-            	
-            	if (state.getAxisValue(4)>0.9) {            		
-            		if (activeCursor2[2] == false) activeCursor2[2] = true;
-            	}
-            	else if (state.getAxisValue(4)<0.9) {
-            		if (activeCursor2[2] == true) activeCursor2[2] = false;
-            	}
-            	
-            	
-            	if (state.getAxisValue(4)<-0.9) {
-            		if (activeCursor2[3] == false) activeCursor2[3] = true;
-            	}
-            	else if (state.getAxisValue(4)>-0.9) {
-            		if (activeCursor2[3] == true) activeCursor2[3] = false;
-            	}          
-            	
-            }
-        }
+		if ((event.getSource() & InputDevice.SOURCE_CLASS_JOYSTICK) == 0 ||
+				event.getAction() != MotionEvent.ACTION_MOVE)
+			return true;
+
+		final InputDeviceState state = getInputDeviceState(event);
+
+		if (state == null)
+			return true;
+
+		state.onJoystickMotion(event, this);
+
+		// the left stick drives the mouse cursor
+		_analogCursor.setPosition(
+			state.getAxisValue(state.indexOfAxis(MotionEvent.AXIS_X)),
+			state.getAxisValue(state.indexOfAxis(MotionEvent.AXIS_Y)));
+
+		// hand over the keys the axis edges produced
+		_scummvm.flushEvents();
+
 		return true;
 	}
 
+	// InputDeviceState.AxisListener
+	final public void onAxisEdge(InputDeviceState device, int axis,
+									int oldState, int newState) {
+		// quite a few gamepads report their d-pad as hat axes
+		int negative, positive;
+
+		switch (axis) {
+		case MotionEvent.AXIS_HAT_X:
+			negative = KeyEvent.KEYCODE_DPAD_LEFT;
+			positive = KeyEvent.KEYCODE_DPAD_RIGHT;
+			break;
+		case MotionEvent.AXIS_HAT_Y:
+			negative = KeyEvent.KEYCODE_DPAD_UP;
+			positive = KeyEvent.KEYCODE_DPAD_DOWN;
+			break;
+		default:
+			return;
+		}
+
+		if (oldState != 0)
+			injectKey(oldState < 0 ? negative : positive, KeyEvent.ACTION_UP);
+
+		if (newState != 0)
+			injectKey(newState < 0 ? negative : positive, KeyEvent.ACTION_DOWN);
+	}
+
+	final public void stopAnalogCursor() {
+		_analogCursor.stop();
+	}
+
 	// OnGestureListener
 	@Override
 	final public boolean onDown(MotionEvent e) {
-		_scummvm.pushEvent(JE_DOWN, (int)e.getX(), (int)e.getY(), 0, 0, 0);
+		_scummvm.queueEvent(JE_DOWN, (int)e.getX(), (int)e.getY(), 0, 0, 0,
+							e.getEventTime());
 		return true;
 	}
 
@@ -386,8 +431,19 @@ public class ScummVMEvents implements
 	@Override
 	final public boolean onScroll(MotionEvent e1, MotionEvent e2,
 									float distanceX, float distanceY) {
-		_scummvm.pushEvent(JE_SCROLL, (int)e1.getX(), (int)e1.getY(),
-							(int)e2.getX(), (int)e2.getY(), 0);
+		if (_scummvm.getMotionHistory()) {
+			final int history = e2.getHistorySize();
+
+			for (int i = 0; i < history; ++i)
+				_scummvm.queueSample(JE_SCROLL, (int)e1.getX(), (int)e1.getY(),
+										(int)e2.getHistoricalX(i),
+										(int)e2.getHistoricalY(i), 0,
+										e2.getHistoricalEventTime(i));
+		}
+
+		_scummvm.queueEvent(JE_SCROLL, (int)e1.getX(), (int)e1.getY(),
+							(int)e2.getX(), (int)e2.getY(), 0,
+							e2.getEventTime());
 
 		return true;
 	}
@@ -398,8 +454,9 @@ public class ScummVMEvents implements
 
 	@Override
 	final public boolean onSingleTapUp(MotionEvent e) {
-		_scummvm.pushEvent(JE_TAP, (int)e.getX(), (int)e.getY(),
-							(int)(e.getEventTime() - e.getDownTime()), 0, 0);
+		_scummvm.queueEvent(JE_TAP, (int)e.getX(), (int)e.getY(),
+							(int)(e.getEventTime() - e.getDownTime()), 0, 0,
+							e.getEventTime());
 
 		return true;
 	}
@@ -412,8 +469,8 @@ public class ScummVMEvents implements
 
 	@Override
 	final public boolean onDoubleTapEvent(MotionEvent e) {
-		_scummvm.pushEvent(JE_DOUBLE_TAP, (int)e.getX(), (int)e.getY(),
-							e.getAction(), 0, 0);
+		_scummvm.queueEvent(JE_DOUBLE_TAP, (int)e.getX(), (int)e.getY(),
+							e.getAction(), 0, 0, e.getEventTime());
 
 		return true;
 	}
@@ -422,145 +479,4 @@ public class ScummVMEvents implements
 	final public boolean onSingleTapConfirmed(MotionEvent e) {
 		return true;
 	}
-	
-	/**
-     * Tracks the state of joystick axes and game controller buttons for a particular
-     * input device for diagnostic purposes.
-     */
-    private static class InputDeviceState {
-        private final InputDevice mDevice;
-        private final int[] mAxes;
-        private final float[] mAxisValues;
-        private final SparseIntArray mKeys;
-
-        public InputDeviceState(InputDevice device) {
-            mDevice = device;
-
-            int numAxes = 0;
-            final List<MotionRange> ranges = device.getMotionRanges();
-            for (MotionRange range : ranges) {
-                if ((range.getSource() & InputDevice.SOURCE_CLASS_JOYSTICK) != 0) {
-                    numAxes += 1;
-                }
-            }
-
-            mAxes = new int[numAxes];
-            mAxisValues = new float[numAxes];
-            int i = 0;
-            for (MotionRange range : ranges) {
-                if ((range.getSource() & InputDevice.SOURCE_CLASS_JOYSTICK) != 0) {
-                    mAxes[i++] = range.getAxis();
-                }
-            }
-
-            mKeys = new SparseIntArray();
-        }
-
-        public InputDevice getDevice() {
-            return mDevice;
-        }
-
-        public int getAxisCount() {
-            return mAxes.length;
-        }
-
-        public int getAxis(int axisIndex) {
-            return mAxes[axisIndex];
-        }
-
-        public float getAxisValue(int axisIndex) {
-            return mAxisValues[axisIndex];
-        }
-
-        public int getKeyCount() {
-            return mKeys.size();
-        }
-
-        public int getKeyCode(int keyIndex) {
-            return mKeys.keyAt(keyIndex);
-        }
-
-        public boolean isKeyPressed(int keyIndex) {
-            return mKeys.valueAt(keyIndex) != 0;
-        }
-
-        public boolean onKeyDown(KeyEvent event) {
-            final int keyCode = event.getKeyCode();
-            if (isGameKey(keyCode)) {
-                if (event.getRepeatCount() == 0) {
-                    final String symbolicName = KeyEvent.keyCodeToString(keyCode);
-                    mKeys.put(keyCode, 1);
-                    Log.i(ScummVM.LOG_TAG, mDevice.getName() + " - Key Down: " + symbolicName);
-                }
-                return true;
-            }
-            return false;
-        }
-
-        public boolean onKeyUp(KeyEvent event) {
-            final int keyCode = event.getKeyCode();
-            if (isGameKey(keyCode)) {
-                int index = mKeys.indexOfKey(keyCode);
-                if (index >= 0) {
-                    final String symbolicName = KeyEvent.keyCodeToString(keyCode);
-                    mKeys.put(keyCode, 0);
-                    Log.i(ScummVM.LOG_TAG, mDevice.getName() + " - Key Up: " + symbolicName);
-                }
-                return true;
-            }
-            return false;
-        }
-
-        public boolean onJoystickMotion(MotionEvent event) {
-            StringBuilder message = new StringBuilder();
-            message.append(mDevice.getName()).append(" - Joystick Motion:\n");
-
-            final int historySize = event.getHistorySize();
-            for (int i = 0; i < mAxes.length; i++) {
-                final int axis = mAxes[i];
-                final float value = event.getAxisValue(axis);
-                mAxisValues[i] = value;
-                message.append("  ").append(MotionEvent.axisToString(axis)).append(": ");
-
-                // Append all historical values in the batch.
-                for (int historyPos = 0; historyPos < historySize; historyPos++) {
-                    message.append(event.getHistoricalAxisValue(axis, historyPos));
-                    message.append(", ");
-                }
-
-                // Append the current value.
-                message.append(value);
-                message.append("\n");
-            }
-            //Log.i(TAG, message.toString());
-            
-            
-        	
-            
-            return true;
-        }
-
-        // Check whether this is a key we care about.
-        // In a real game, we would probably let the user configure which keys to use
-        // instead of hardcoding the keys like this.
-        private static boolean isGameKey(int keyCode) {
-            switch (keyCode) {
-                case KeyEvent.KEYCODE_DPAD_UP:
-                case KeyEvent.KEYCODE_DPAD_DOWN:
-                case KeyEvent.KEYCODE_DPAD_LEFT:
-                case KeyEvent.KEYCODE_DPAD_RIGHT:
-                case KeyEvent.KEYCODE_DPAD_CENTER:
-                case KeyEvent.KEYCODE_SPACE:
-                    return true;
-                default:
-                    return KeyEvent.isGamepadButton(keyCode);
-            }
-        }
-    }
-
-	public boolean getActiveCursor(int axis, int i) {
-		if (axis == 1) return activeCursor1[i];
-		if (axis == 2) return activeCursor2[i];
-		return false;
-	}
 }
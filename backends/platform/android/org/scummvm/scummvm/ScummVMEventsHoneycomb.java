@@ -13,10 +13,11 @@ public class ScummVMEventsHoneycomb extends ScummVMEvents {
 	@Override
 	public boolean onGenericMotionEvent(MotionEvent e) {
 		if((e.getSource() & InputDevice.SOURCE_CLASS_JOYSTICK) != 0) {
-			_scummvm.pushEvent(JE_JOYSTICK, e.getAction(),
+			_scummvm.queueEvent(JE_JOYSTICK, e.getAction(),
 					   (int)(e.getAxisValue(MotionEvent.AXIS_X)*100),
 					   (int)(e.getAxisValue(MotionEvent.AXIS_Y)*100),
-					   0, 0);
+					   0, 0, e.getEventTime());
+			_scummvm.flushEvents();
 			return true;
 		}
 
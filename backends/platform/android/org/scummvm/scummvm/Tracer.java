@@ -0,0 +1,198 @@
+package org.scummvm.scummvm;
+
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Tracing for the java side.  Trace points are defined once with a level
+ * and a format string, tracing one only stores its arguments in a fixed
+ * size ring, formatting is deferred until the ring is dumped.  Records
+ * at or above the log level are also forwarded to logcat right away.
+ *
+ * Call sites which would have to compute their arguments can check
+ * MIN_LEVEL first, which is a constant so javac drops those blocks when
+ * it's raised for production builds.
+ */
+public final class Tracer {
+	public static final int VERBOSE = Log.VERBOSE;
+	public static final int DEBUG = Log.DEBUG;
+	public static final int INFO = Log.INFO;
+	public static final int WARN = Log.WARN;
+	public static final int ERROR = Log.ERROR;
+
+	// Trace points below this level are never recorded
+	public static final int MIN_LEVEL = VERBOSE;
+
+	private static final int MAX_POINTS = 128;
+	private static final int RING_SIZE = 1024;
+
+	// Recorded and forwarded levels, see setLevels(). The DEBUG points sit
+	// on the hot paths (every key and mouse button), so they're only
+	// recorded when asked for
+	private static int _level = INFO;
+	private static int _log_level = INFO;
+
+	// trace point definitions
+	private static final int[] _point_levels = new int[MAX_POINTS];
+	private static final String[] _point_formats = new String[MAX_POINTS];
+	private static final boolean[] _point_objects = new boolean[MAX_POINTS];
+	private static int _points = 0;
+
+	// the ring, one slot per record
+	private static final long[] _times = new long[RING_SIZE];
+	private static final int[] _ids = new int[RING_SIZE];
+	private static final long[] _args = new long[RING_SIZE * 4];
+	private static final Object[] _objects = new Object[RING_SIZE];
+	private static long _records = 0;
+
+	private static boolean _crash_handler_installed = false;
+
+	private Tracer() {
+	}
+
+	public static synchronized int define(int level, String format) {
+		return define(level, format, false);
+	}
+
+	// The object is passed to the format string first, before the
+	// numeric arguments
+	public static synchronized int defineObject(int level, String format) {
+		return define(level, format, true);
+	}
+
+	private static int define(int level, String format, boolean object) {
+		if (_points == MAX_POINTS)
+			throw new IllegalStateException("Too many trace points");
+
+		_point_levels[_points] = level;
+		_point_formats[_points] = format;
+		_point_objects[_points] = object;
+
+		return _points++;
+	}
+
+	public static void setLevels(int level, int log_level) {
+		_level = level;
+		_log_level = log_level;
+	}
+
+	public static boolean on(int level) {
+		return level >= MIN_LEVEL && level >= _level;
+	}
+
+	public static void trace(int id) {
+		trace(id, null, 0, 0, 0, 0);
+	}
+
+	public static void trace(int id, long a) {
+		trace(id, null, a, 0, 0, 0);
+	}
+
+	public static void trace(int id, long a, long b) {
+		trace(id, null, a, b, 0, 0);
+	}
+
+	public static void trace(int id, long a, long b, long c, long d) {
+		trace(id, null, a, b, c, d);
+	}
+
+	public static void trace(int id, Object o) {
+		trace(id, o, 0, 0, 0, 0);
+	}
+
+	public static void trace(int id, Object o, long a, long b, long c,
+								long d) {
+		final int level = _point_levels[id];
+
+		if (level < MIN_LEVEL || level < _level)
+			return;
+
+		synchronized (_ids) {
+			final int slot = (int)(_records++ & (RING_SIZE - 1));
+
+			_times[slot] = SystemClock.uptimeMillis();
+			_ids[slot] = id;
+			_objects[slot] = o;
+			_args[slot * 4] = a;
+			_args[slot * 4 + 1] = b;
+			_args[slot * 4 + 2] = c;
+			_args[slot * 4 + 3] = d;
+		}
+
+		if (level >= _log_level)
+			Log.println(level, ScummVM.LOG_TAG, format(id, o, a, b, c, d));
+	}
+
+	private static String format(int id, Object o, long a, long b, long c,
+									long d) {
+		if (_point_objects[id])
+			return String.format(_point_formats[id], o, a, b, c, d);
+
+		return String.format(_point_formats[id], a, b, c, d);
+	}
+
+	// Write the ring, oldest record first
+	public static void dump(PrintWriter out) {
+		synchronized (_ids) {
+			final long first = Math.max(0, _records - RING_SIZE);
+
+			out.println(String.format("%d trace records, showing the last %d",
+										_records, _records - first));
+
+			for (long i = first; i < _records; ++i) {
+				final int slot = (int)(i & (RING_SIZE - 1));
+				final int id = _ids[slot];
+
+				out.println(String.format("%d %c %s", _times[slot],
+					"??VDIWEA".charAt(_point_levels[id]),
+					format(id, _objects[slot], _args[slot * 4],
+							_args[slot * 4 + 1], _args[slot * 4 + 2],
+							_args[slot * 4 + 3])));
+			}
+		}
+
+		out.flush();
+	}
+
+	public static boolean dump(File file) {
+		try {
+			PrintWriter out = new PrintWriter(new FileWriter(file));
+
+			dump(out);
+			out.close();
+
+			return true;
+		} catch (IOException e) {
+			Log.e(ScummVM.LOG_TAG, "Unable to write trace to " + file, e);
+			return false;
+		}
+	}
+
+	// Dump the ring to file if the java side crashes. Only the first call
+	// installs it, the handler stays for the life of the process
+	public static synchronized void installCrashHandler(final File file) {
+		if (_crash_handler_installed)
+			return;
+
+		_crash_handler_installed = true;
+
+		final Thread.UncaughtExceptionHandler previous =
+			Thread.getDefaultUncaughtExceptionHandler();
+
+		Thread.setDefaultUncaughtExceptionHandler(
+			new Thread.UncaughtExceptionHandler() {
+				public void uncaughtException(Thread thread, Throwable e) {
+					if (dump(file))
+						Log.e(ScummVM.LOG_TAG, "Crash trace written to " + file);
+
+					if (previous != null)
+						previous.uncaughtException(thread, e);
+				}
+			});
+	}
+}
@@ -36,6 +36,17 @@ import java.util.zip.ZipEntry;
 
 public class Unpacker extends Activity {
 	protected final static String LOG_TAG = "ScummVM";
+
+	private final static int T_NEXT_ACTIVITY =
+		Tracer.defineObject(Tracer.INFO, "Starting next activity with intent %s");
+	private final static int T_STALE_FILE =
+		Tracer.defineObject(Tracer.INFO, "Deleting stale cached file %s");
+	private final static int T_REPLACING =
+		Tracer.defineObject(Tracer.DEBUG, "Replacing %s old.mtime=%d " +
+							"new.mtime=%d old.size=%d new.size=%d");
+	private final static int T_PROGRESS =
+		Tracer.define(Tracer.DEBUG, "Ended with progress %d != total size %d");
+
 	// TODO don't hardcode this
 	private final static boolean PLUGINS_ENABLED = false;
 	private final static String META_NEXT_ACTIVITY =
@@ -94,8 +105,7 @@ public class Unpacker extends Activity {
 										  origIntent.getType());
 					//intent.fillIn(getIntent(), 0);
 					intent.addFlags(Intent.FLAG_ACTIVITY_PREVIOUS_IS_TOP);
-					Log.i(LOG_TAG,
-						  "Starting next activity with intent " + intent);
+					Tracer.trace(T_NEXT_ACTIVITY, intent);
 					startActivity(intent);
 				} else {
 					Log.w(LOG_TAG,
@@ -151,8 +161,7 @@ public class Unpacker extends Activity {
 			// Delete stale filenames from mUnpackDest
 			for (File file: mUnpackDest.listFiles()) {
 				if (!all_files.contains(file.getName())) {
-					Log.i(LOG_TAG,
-						  "Deleting stale cached file " + file);
+					Tracer.trace(T_STALE_FILE, file);
 					file.delete();
 				}
 			}
@@ -183,12 +192,11 @@ public class Unpacker extends Activity {
 							progress += zipentry.getSize();
 						} else {
 							if (dest.exists())
-								Log.d(LOG_TAG,
-									  "Replacing " + dest.getPath() +
-									  " old.mtime=" + dest.lastModified() +
-									  " new.mtime=" + zipentry.getTime() +
-									  " old.size=" + dest.length() +
-									  " new.size=" + zipentry.getSize());
+								Tracer.trace(T_REPLACING, dest,
+											 dest.lastModified(),
+											 zipentry.getTime(),
+											 dest.length(),
+											 zipentry.getSize());
 							else
 								Log.i(LOG_TAG,
 									  "Extracting " + zipentry.getName() +
@@ -226,8 +234,7 @@ public class Unpacker extends Activity {
 			}
 
 			if (progress != total_size)
-				Log.d(LOG_TAG, "Ended with progress " + progress +
-					  " != total size " + total_size);
+				Tracer.trace(T_PROGRESS, progress, total_size);
 
 			setResult(RESULT_OK);
 
@@ -53,11 +53,22 @@
 // Supported GL extensions
 static bool npot_supported = false;
 
+uint32 GLESTextureLayer::_upload_bytes = 0;
+uint32 GLESTextureLayer::_upload_bounding_bytes = 0;
+int64 GLESTextureLayer::_upload_nanos = 0;
+
+uint GLESBaseTexture::_dirty_max_rects = 8;
+uint GLESBaseTexture::_dirty_merge_slack = 25;
+
 static inline GLfixed xdiv(int numerator, int denominator) {
 	assert(numerator < (1 << 16));
 	return (numerator << 16) / denominator;
 }
 
+static inline int32 area(const Common::Rect &r) {
+	return r.width() * r.height();
+}
+
 template<class T>
 static T nextHigher2(T k) {
 	if (k == 0)
@@ -85,46 +96,97 @@ void GLESBaseTexture::initGLExtensions() {
 	}
 }
 
-GLESBaseTexture::GLESBaseTexture(GLenum glFormat, GLenum glType,
-									Graphics::PixelFormat pixelFormat) :
-	_glFormat(glFormat),
-	_glType(glType),
-	_glFilter(GL_NEAREST),
+GLESTextureFrame::GLESTextureFrame() :
+	glFormat(0),
+	glType(0),
+	glFilter(GL_NEAREST),
+	width(0),
+	height(0),
+	texture_width(0),
+	texture_height(0),
+	rect_count(0),
+	pixels(0),
+	bytes_per_pixel(0),
+	bytes(0),
+	bounding_bytes(0),
+	_buf(0),
+	_buf_size(0) {
+}
+
+GLESTextureFrame::~GLESTextureFrame() {
+	delete[] _buf;
+}
+
+byte *GLESTextureFrame::reserve(uint32 size) {
+	if (size > _buf_size) {
+		delete[] _buf;
+
+		_buf = new byte[size];
+		assert(_buf);
+
+		_buf_size = size;
+	}
+
+	return _buf;
+}
+
+GLESTextureLayer::GLESTextureLayer() :
 	_texture_name(0),
-	_surface(),
 	_texture_width(0),
 	_texture_height(0),
-	_draw_rect(),
-	_all_dirty(false),
-	_dirty_rect(),
-	_pixelFormat(pixelFormat),
-	_palettePixelFormat()
-{
-	GLCALL(glGenTextures(1, &_texture_name));
+	_glFormat(0),
+	_glType(0),
+	_glFilter(0) {
 }
 
-GLESBaseTexture::~GLESBaseTexture() {
-	release();
+void GLESTextureLayer::takeUploadStats(uint32 &bytes,
+										uint32 &bounding_bytes,
+										int64 &nanos) {
+	bytes = _upload_bytes;
+	bounding_bytes = _upload_bounding_bytes;
+	nanos = _upload_nanos;
+
+	_upload_bytes = 0;
+	_upload_bounding_bytes = 0;
+	_upload_nanos = 0;
 }
 
-void GLESBaseTexture::release() {
+void GLESTextureLayer::countUpload(const GLESTextureFrame &frame,
+									int64 start) {
+	_upload_bytes += frame.bytes;
+	_upload_bounding_bytes += frame.bounding_bytes;
+	_upload_nanos += AndroidHistogram::uptimeNanos() - start;
+}
+
+void GLESTextureLayer::release() {
 	if (_texture_name) {
 		LOGD("Destroying texture %u", _texture_name);
 
 		GLCALL(glDeleteTextures(1, &_texture_name));
-		_texture_name = 0;
 	}
+
+	forget();
 }
 
-void GLESBaseTexture::reinit() {
-	GLCALL(glGenTextures(1, &_texture_name));
+void GLESTextureLayer::forget() {
+	_texture_name = 0;
+	_texture_width = 0;
+	_texture_height = 0;
+	_glFormat = 0;
+	_glType = 0;
+	_glFilter = 0;
+}
 
-	initSize();
+void GLESTextureLayer::allocTexture(const GLESTextureFrame &frame) {
+	if (!_texture_name)
+		GLCALL(glGenTextures(1, &_texture_name));
 
-	setDirty();
-}
+	_texture_width = frame.texture_width;
+	_texture_height = frame.texture_height;
+	_glFormat = frame.glFormat;
+	_glType = frame.glType;
+	_glFilter = frame.glFilter;
 
-void GLESBaseTexture::initSize() {
 	// Allocate room for the texture now, but pixel data gets uploaded
 	// later (perhaps with multiple TexSubImage2D operations).
 	GLCALL(glBindTexture(GL_TEXTURE_2D, _texture_name));
@@ -138,42 +200,51 @@ void GLESBaseTexture::initSize() {
 						0, _glFormat, _glType, 0));
 }
 
-void GLESBaseTexture::setLinearFilter(bool value) {
-	if (value)
-		_glFilter = GL_LINEAR;
-	else
-		_glFilter = GL_NEAREST;
+void GLESTextureLayer::draw(const GLESTextureFrame &frame,
+							GLshort x, GLshort y, GLshort w, GLshort h) {
+	if (!frame.texture_width || !frame.texture_height)
+		return;
+
+	// a texture changing its size or format is all dirty, so nothing's
+	// lost by allocating it anew
+	if (!_texture_name ||
+			_texture_width != frame.texture_width ||
+			_texture_height != frame.texture_height ||
+			_glFormat != frame.glFormat || _glType != frame.glType)
+		allocTexture(frame);
 
 	GLCALL(glBindTexture(GL_TEXTURE_2D, _texture_name));
 
-	GLCALL(glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, _glFilter));
-	GLCALL(glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, _glFilter));
-}
+	if (_glFilter != frame.glFilter) {
+		_glFilter = frame.glFilter;
 
-void GLESBaseTexture::allocBuffer(GLuint w, GLuint h) {
-	_surface.w = w;
-	_surface.h = h;
-	_surface.format = _pixelFormat;
+		GLCALL(glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER,
+								_glFilter));
+		GLCALL(glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER,
+								_glFilter));
+	}
 
-	if (w == _texture_width && h == _texture_height)
-		return;
+	if (frame.rect_count > 0) {
+		const int64 start = AndroidHistogram::uptimeNanos();
+		const byte *pixels = frame.pixels;
 
-	if (npot_supported) {
-		_texture_width = _surface.w;
-		_texture_height = _surface.h;
-	} else {
-		_texture_width = nextHigher2(_surface.w);
-		_texture_height = nextHigher2(_surface.h);
-	}
+		GLCALL(glPixelStorei(GL_UNPACK_ALIGNMENT, 1));
 
-	initSize();
-}
+		for (uint i = 0; i < frame.rect_count; ++i) {
+			const Common::Rect &r = frame.rects[i];
 
-void GLESBaseTexture::drawTexture(GLshort x, GLshort y, GLshort w, GLshort h) {
-	GLCALL(glBindTexture(GL_TEXTURE_2D, _texture_name));
+			GLCALL(glTexSubImage2D(GL_TEXTURE_2D, 0,
+									r.left, r.top, r.width(), r.height(),
+									_glFormat, _glType, pixels));
+
+			pixels += area(r) * frame.bytes_per_pixel;
+		}
+
+		countUpload(frame, start);
+	}
 
-	const GLfixed tex_width = xdiv(_surface.w, _texture_width);
-	const GLfixed tex_height = xdiv(_surface.h, _texture_height);
+	const GLfixed tex_width = xdiv(frame.width, _texture_width);
+	const GLfixed tex_height = xdiv(frame.height, _texture_height);
 	const GLfixed texcoords[] = {
 		0, 0,
 		tex_width, 0,
@@ -194,6 +265,144 @@ void GLESBaseTexture::drawTexture(GLshort x, GLshort y, GLshort w, GLshort h) {
 
 	assert(ARRAYSIZE(vertices) == ARRAYSIZE(texcoords));
 	GLCALL(glDrawArrays(GL_TRIANGLE_STRIP, 0, ARRAYSIZE(vertices) / 2));
+}
+
+GLESBaseTexture::GLESBaseTexture(GLenum glFormat, GLenum glType,
+									Graphics::PixelFormat pixelFormat) :
+	_glFormat(glFormat),
+	_glType(glType),
+	_glFilter(GL_NEAREST),
+	_surface(),
+	_texture_width(0),
+	_texture_height(0),
+	_draw_rect(),
+	_all_dirty(false),
+	_dirty_count(0),
+	_pixelFormat(pixelFormat),
+	_palettePixelFormat()
+{
+}
+
+GLESBaseTexture::~GLESBaseTexture() {
+}
+
+void GLESBaseTexture::setDirtyRegions(uint max_rects, uint slack) {
+	if (!max_rects)
+		return;
+
+	_dirty_max_rects = MIN<uint>(max_rects, GLESTextureFrame::kMaxRects);
+	_dirty_merge_slack = slack;
+
+	LOGD("tracking up to %u dirty regions, merging at %u%% slack",
+			_dirty_max_rects, _dirty_merge_slack);
+}
+
+void GLESBaseTexture::setDirtyRect(const Common::Rect &r) {
+	if (_all_dirty || r.isEmpty())
+		return;
+
+	Common::Rect m(r);
+
+	// Merge with the region wasting the least in a common bounding box,
+	// for as long as that's cheap enough. Overlapping regions merge no
+	// matter what, so no pixel is uploaded twice.
+	while (_dirty_count > 0) {
+		uint best = 0;
+		int32 best_waste = 0;
+		bool best_overlaps = false;
+
+		for (uint i = 0; i < _dirty_count; ++i) {
+			Common::Rect u(_dirty_rects[i]);
+			u.extend(m);
+
+			const int32 waste = area(u) - area(_dirty_rects[i]) - area(m);
+			const bool overlaps = _dirty_rects[i].intersects(m);
+
+			if (i == 0 || (overlaps && !best_overlaps) ||
+					(overlaps == best_overlaps && waste < best_waste)) {
+				best = i;
+				best_waste = waste;
+				best_overlaps = overlaps;
+			}
+		}
+
+		const int64 limit = (int64)(area(_dirty_rects[best]) + area(m)) *
+							_dirty_merge_slack / 100;
+
+		if (!best_overlaps && best_waste > limit &&
+				_dirty_count < _dirty_max_rects)
+			break;
+
+		m.extend(_dirty_rects[best]);
+		_dirty_rects[best] = _dirty_rects[--_dirty_count];
+	}
+
+	_dirty_rects[_dirty_count++] = m;
+}
+
+void GLESBaseTexture::setLinearFilter(bool value) {
+	if (value)
+		_glFilter = GL_LINEAR;
+	else
+		_glFilter = GL_NEAREST;
+}
+
+void GLESBaseTexture::allocBuffer(GLuint w, GLuint h) {
+	_surface.w = w;
+	_surface.h = h;
+	_surface.format = _pixelFormat;
+
+	if (w == _texture_width && h == _texture_height)
+		return;
+
+	if (npot_supported) {
+		_texture_width = _surface.w;
+		_texture_height = _surface.h;
+	} else {
+		_texture_width = nextHigher2(_surface.w);
+		_texture_height = nextHigher2(_surface.h);
+	}
+}
+
+void GLESBaseTexture::prepareFrame(GLESTextureFrame &frame, bool copy) {
+	frame.glFormat = _glFormat;
+	frame.glType = _glType;
+	frame.glFilter = _glFilter;
+	frame.width = _surface.w;
+	frame.height = _surface.h;
+	frame.texture_width = _texture_width;
+	frame.texture_height = _texture_height;
+
+	if (_all_dirty) {
+		_dirty_count = 0;
+
+		if (!isEmpty())
+			_dirty_rects[_dirty_count++] = Common::Rect(_surface.w, _surface.h);
+
+		_all_dirty = false;
+	}
+
+	Common::Rect bounds;
+
+	for (uint i = 0; i < _dirty_count; ++i) {
+		frame.rects[i] = _dirty_rects[i];
+
+		if (i == 0)
+			bounds = _dirty_rects[i];
+		else
+			bounds.extend(_dirty_rects[i]);
+	}
+
+	frame.rect_count = _dirty_count;
+	frame.pixels = 0;
+	frame.bytes = 0;
+	frame.bounding_bytes = 0;
+
+	if (frame.rect_count > 0) {
+		preparePixels(frame, copy);
+
+		frame.bounding_bytes = area(bounds) * frame.bytes_per_pixel;
+	}
 
 	clearDirty();
 }
@@ -205,12 +414,10 @@ const Graphics::PixelFormat &GLESBaseTexture::getPixelFormat() const {
 GLESTexture::GLESTexture(GLenum glFormat, GLenum glType,
 							Graphics::PixelFormat pixelFormat) :
 	GLESBaseTexture(glFormat, glType, pixelFormat),
-	_pixels(0),
-	_buf(0) {
+	_pixels(0) {
 }
 
 GLESTexture::~GLESTexture() {
-	delete[] _buf;
 	delete[] _pixels;
 }
 
@@ -227,7 +434,6 @@ void GLESTexture::allocBuffer(GLuint w, GLuint h) {
 		return;
 	}
 
-	delete[] _buf;
 	delete[] _pixels;
 
 	_pixels = new byte[w * h * _surface.format.bytesPerPixel];
@@ -236,9 +442,6 @@ void GLESTexture::allocBuffer(GLuint w, GLuint h) {
 	_surface.setPixels(_pixels);
 
 	fillBuffer(0);
-
-	_buf = new byte[w * h * _surface.format.bytesPerPixel];
-	assert(_buf);
 }
 
 void GLESTexture::updateBuffer(GLuint x, GLuint y, GLuint w, GLuint h,
@@ -272,49 +475,36 @@ void GLESTexture::fillBuffer(uint32 color) {
 	setDirty();
 }
 
-void GLESTexture::drawTexture(GLshort x, GLshort y, GLshort w, GLshort h) {
-	if (_all_dirty) {
-		_dirty_rect.top = 0;
-		_dirty_rect.left = 0;
-		_dirty_rect.bottom = _surface.h;
-		_dirty_rect.right = _surface.w;
+void GLESTexture::preparePixels(GLESTextureFrame &frame, bool copy) {
+	const uint bpp = _surface.format.bytesPerPixel;
 
-		_all_dirty = false;
-	}
-
-	if (!_dirty_rect.isEmpty()) {
-		byte *_tex;
+	frame.bytes_per_pixel = bpp;
+	frame.bytes = 0;
 
-		int16 dwidth = _dirty_rect.width();
-		int16 dheight = _dirty_rect.height();
+	for (uint i = 0; i < frame.rect_count; ++i)
+		frame.bytes += area(frame.rects[i]) * bpp;
 
-		if (dwidth == _surface.w) {
-			_tex = _pixels + _dirty_rect.top * _surface.pitch;
-		} else {
-			_tex = _buf;
+	// whole lines of a single region are contiguous already
+	if (frame.rect_count == 1 && frame.rects[0].width() == _surface.w &&
+			!copy) {
+		frame.pixels = _pixels + frame.rects[0].top * _surface.pitch;
+		return;
+	}
 
-			byte *src = _pixels + _dirty_rect.top * _surface.pitch +
-						_dirty_rect.left * _surface.format.bytesPerPixel;
-			byte *dst = _buf;
+	byte *dst = frame.reserve(frame.bytes);
+	frame.pixels = dst;
 
-			uint16 l = dwidth * _surface.format.bytesPerPixel;
+	for (uint i = 0; i < frame.rect_count; ++i) {
+		const Common::Rect &r = frame.rects[i];
+		const uint16 l = r.width() * bpp;
+		const byte *src = _pixels + r.top * _surface.pitch + r.left * bpp;
 
-			for (uint16 i = 0; i < dheight; ++i) {
-				memcpy(dst, src, l);
-				src += _surface.pitch;
-				dst += l;
-			}
+		for (int16 j = 0; j < r.height(); ++j) {
+			memcpy(dst, src, l);
+			src += _surface.pitch;
+			dst += l;
 		}
-
-		GLCALL(glBindTexture(GL_TEXTURE_2D, _texture_name));
-		GLCALL(glPixelStorei(GL_UNPACK_ALIGNMENT, 1));
-
-		GLCALL(glTexSubImage2D(GL_TEXTURE_2D, 0,
-								_dirty_rect.left, _dirty_rect.top,
-								dwidth, dheight, _glFormat, _glType, _tex));
 	}
-
-	GLESBaseTexture::drawTexture(x, y, w, h);
 }
 
 GLES4444Texture::GLES4444Texture() :
@@ -349,8 +539,7 @@ GLESFakePaletteTexture::GLESFakePaletteTexture(GLenum glFormat, GLenum glType,
 									Graphics::PixelFormat pixelFormat) :
 	GLESBaseTexture(glFormat, glType, pixelFormat),
 	_palette(0),
-	_pixels(0),
-	_buf(0)
+	_pixels(0)
 {
 	_palettePixelFormat = pixelFormat;
 	_fake_format = Graphics::PixelFormat::createFormatCLUT8();
@@ -362,7 +551,6 @@ GLESFakePaletteTexture::GLESFakePaletteTexture(GLenum glFormat, GLenum glType,
 }
 
 GLESFakePaletteTexture::~GLESFakePaletteTexture() {
-	delete[] _buf;
 	delete[] _pixels;
 	delete[] _palette;
 }
@@ -381,7 +569,6 @@ void GLESFakePaletteTexture::allocBuffer(GLuint w, GLuint h) {
 		return;
 	}
 
-	delete[] _buf;
 	delete[] _pixels;
 
 	_pixels = new byte[w * h];
@@ -391,9 +578,6 @@ void GLESFakePaletteTexture::allocBuffer(GLuint w, GLuint h) {
 	_surface.setPixels(_pixels);
 
 	fillBuffer(0);
-
-	_buf = new uint16[w * h];
-	assert(_buf);
 }
 
 void GLESFakePaletteTexture::fillBuffer(uint32 color) {
@@ -417,24 +601,25 @@ void GLESFakePaletteTexture::updateBuffer(GLuint x, GLuint y, GLuint w,
 	} while (--h);
 }
 
-void GLESFakePaletteTexture::drawTexture(GLshort x, GLshort y, GLshort w,
-										GLshort h) {
-	if (_all_dirty) {
-		_dirty_rect.top = 0;
-		_dirty_rect.left = 0;
-		_dirty_rect.bottom = _surface.h;
-		_dirty_rect.right = _surface.w;
+void GLESFakePaletteTexture::preparePixels(GLESTextureFrame &frame,
+											bool copy) {
+	frame.bytes_per_pixel = sizeof(uint16);
+	frame.bytes = 0;
 
-		_all_dirty = false;
-	}
+	for (uint k = 0; k < frame.rect_count; ++k)
+		frame.bytes += area(frame.rects[k]) * sizeof(uint16);
 
-	if (!_dirty_rect.isEmpty()) {
-		int16 dwidth = _dirty_rect.width();
-		int16 dheight = _dirty_rect.height();
+	// always converted, so a copy anyway
+	uint16 *dst = (uint16 *)frame.reserve(frame.bytes);
 
-		byte *src = _pixels + _dirty_rect.top * _surface.pitch +
-					_dirty_rect.left;
-		uint16 *dst = _buf;
+	frame.pixels = (const byte *)dst;
+
+	for (uint k = 0; k < frame.rect_count; ++k) {
+		const Common::Rect &r = frame.rects[k];
+		int16 dwidth = r.width();
+		int16 dheight = r.height();
+
+		byte *src = _pixels + r.top * _surface.pitch + r.left;
 		uint pitch_delta = _surface.pitch - dwidth;
 
 		for (uint16 j = 0; j < dheight; ++j) {
@@ -442,15 +627,7 @@ void GLESFakePaletteTexture::drawTexture(GLshort x, GLshort y, GLshort w,
 				*dst++ = _palette[*src++];
 			src += pitch_delta;
 		}
-
-		GLCALL(glBindTexture(GL_TEXTURE_2D, _texture_name));
-
-		GLCALL(glTexSubImage2D(GL_TEXTURE_2D, 0,
-								_dirty_rect.left, _dirty_rect.top,
-								dwidth, dheight, _glFormat, _glType, _buf));
 	}
-
-	GLESBaseTexture::drawTexture(x, y, w, h);
 }
 
 const Graphics::PixelFormat &GLESFakePaletteTexture::getPixelFormat() const {
@@ -33,10 +33,95 @@
 #include "common/rect.h"
 #include "common/array.h"
 
+// What drawing a texture takes, see GLESBaseTexture::prepareFrame(). It
+// is all copied out of the texture, unless asked otherwise, so it can be
+// drawn on another thread while the texture changes.
+class GLESTextureFrame {
+public:
+	GLESTextureFrame();
+	~GLESTextureFrame();
+
+	GLenum glFormat;
+	GLenum glType;
+	GLint glFilter;
+
+	GLuint width;
+	GLuint height;
+	GLuint texture_width;
+	GLuint texture_height;
+
+	static const uint kMaxRects = 16;
+
+	// The dirty regions, none if it's clean. Their pixels follow each
+	// other, each region as rows of its width in the texture's GL format.
+	Common::Rect rects[kMaxRects];
+	uint rect_count;
+	const byte *pixels;
+	uint bytes_per_pixel;
+	uint32 bytes;
+	// what uploading the bounding box of the regions would have taken
+	uint32 bounding_bytes;
+
+	// a buffer of at least size bytes for pixels, only ever grown
+	byte *reserve(uint32 size);
+
+private:
+	byte *_buf;
+	uint32 _buf_size;
+
+	GLESTextureFrame(const GLESTextureFrame &);
+	GLESTextureFrame &operator=(const GLESTextureFrame &);
+};
+
+// The GL texture a layer of the screen is drawn with. It's fed the
+// frames of whatever GLESBaseTexture is shown in the layer, and may only
+// be used on the thread owning the GL context.
+class GLESTextureLayer {
+public:
+	GLESTextureLayer();
+
+	// bytes uploaded by draw() since the last call, those a bounding box
+	// per texture would have taken, and the ns spent submitting them
+	static void takeUploadStats(uint32 &bytes, uint32 &bounding_bytes,
+								int64 &nanos);
+
+	void release();
+	// the GL texture went with its context, don't delete it
+	void forget();
+
+	// Uploads the dirty regions of the frame, one by one, allocating the
+	// GL texture for them first if needed, and draws it
+	void draw(const GLESTextureFrame &frame, GLshort x, GLshort y,
+				GLshort w, GLshort h);
+
+private:
+	GLuint _texture_name;
+	GLuint _texture_width;
+	GLuint _texture_height;
+	GLenum _glFormat;
+	GLenum _glType;
+	GLint _glFilter;
+
+	void allocTexture(const GLESTextureFrame &frame);
+
+	static void countUpload(const GLESTextureFrame &frame, int64 start);
+
+	static uint32 _upload_bytes;
+	static uint32 _upload_bounding_bytes;
+	static int64 _upload_nanos;
+};
+
 class GLESBaseTexture {
 public:
 	static void initGLExtensions();
 
+	// Updates are kept as up to max_rects dirty regions. A new one is
+	// merged with a region it overlaps, or whose bounding box with it is
+	// at most slack percent bigger than both, or any region if there's no
+	// room left. Regions never overlap. 1 region tracks a
+	// single bounding box, 0 keeps the current setting.
+	static void setDirtyRegions(uint max_rects, uint slack);
+
 protected:
 	GLESBaseTexture(GLenum glFormat, GLenum glType,
 					Graphics::PixelFormat pixelFormat);
@@ -44,10 +129,6 @@ protected:
 public:
 	virtual ~GLESBaseTexture();
 
-	void release();
-	void reinit();
-	void initSize();
-
 	void setLinearFilter(bool value);
 
 	virtual void allocBuffer(GLuint w, GLuint h);
@@ -56,7 +137,10 @@ public:
 								const void *buf, int pitch_buf) = 0;
 	virtual void fillBuffer(uint32 color) = 0;
 
-	virtual void drawTexture(GLshort x, GLshort y, GLshort w, GLshort h);
+	// Takes the dirty regions and what else drawing needs into frame, and
+	// marks the texture clean. Without copy, frame.pixels may point into
+	// the texture, so it has to be drawn before the texture changes.
+	void prepareFrame(GLESTextureFrame &frame, bool copy);
 
 	inline void setDrawRect(const Common::Rect &rect) {
 		_draw_rect = rect;
@@ -74,15 +158,6 @@ public:
 		return _draw_rect;
 	}
 
-	inline void drawTextureRect() {
-		drawTexture(_draw_rect.left, _draw_rect.top,
-					_draw_rect.width(), _draw_rect.height());
-	}
-
-	inline void drawTextureOrigin() {
-			drawTexture(0, 0, _surface.w, _surface.h);
-	}
-
 	inline GLuint width() const {
 		return _surface.w;
 	}
@@ -121,7 +196,11 @@ public:
 	}
 
 	inline bool dirty() const {
-		return _all_dirty || !_dirty_rect.isEmpty();
+		return _all_dirty || _dirty_count > 0;
+	}
+
+	inline void setDirty() {
+		_all_dirty = true;
 	}
 
 	virtual const Graphics::PixelFormat &getPixelFormat() const;
@@ -131,32 +210,21 @@ public:
 	}
 
 protected:
-	inline void setDirty() {
-		_all_dirty = true;
-	}
+	// fills frame.pixels with its dirty regions, and sets the bytes,
+	// see prepareFrame()
+	virtual void preparePixels(GLESTextureFrame &frame, bool copy) = 0;
 
 	inline void clearDirty() {
 		_all_dirty = false;
-		_dirty_rect.top = 0;
-		_dirty_rect.left = 0;
-		_dirty_rect.bottom = 0;
-		_dirty_rect.right = 0;
+		_dirty_count = 0;
 	}
 
-	inline void setDirtyRect(const Common::Rect& r) {
-		if (!_all_dirty) {
-			if (_dirty_rect.isEmpty())
-				_dirty_rect = r;
-			else
-				_dirty_rect.extend(r);
-		}
-	}
+	void setDirtyRect(const Common::Rect &r);
 
 	GLenum _glFormat;
 	GLenum _glType;
 	GLint _glFilter;
 
-	GLuint _texture_name;
 	Graphics::Surface _surface;
 	GLuint _texture_width;
 	GLuint _texture_height;
@@ -164,7 +232,11 @@ protected:
 	Common::Rect _draw_rect;
 
 	bool _all_dirty;
-	Common::Rect _dirty_rect;
+	Common::Rect _dirty_rects[GLESTextureFrame::kMaxRects];
+	uint _dirty_count;
+
+	static uint _dirty_max_rects;
+	static uint _dirty_merge_slack;
 
 	Graphics::PixelFormat _pixelFormat;
 	Graphics::PixelFormat _palettePixelFormat;
@@ -184,11 +256,10 @@ public:
 								const void *buf, int pitch_buf);
 	virtual void fillBuffer(uint32 color);
 
-	virtual void drawTexture(GLshort x, GLshort y, GLshort w, GLshort h);
-
 protected:
+	virtual void preparePixels(GLESTextureFrame &frame, bool copy);
+
 	byte *_pixels;
-	byte *_buf;
 };
 
 // RGBA4444 texture
@@ -249,8 +320,6 @@ public:
 								const void *buf, int pitch_buf);
 	virtual void fillBuffer(uint32 color);
 
-	virtual void drawTexture(GLshort x, GLshort y, GLshort w, GLshort h);
-
 	virtual const byte *palette_const() const {
 		return (byte *)_palette;
 	};
@@ -263,10 +332,11 @@ public:
 	virtual const Graphics::PixelFormat &getPixelFormat() const;
 
 protected:
+	virtual void preparePixels(GLESTextureFrame &frame, bool copy);
+
 	Graphics::PixelFormat _fake_format;
 	uint16 *_palette;
 	byte *_pixels;
-	uint16 *_buf;
 };
 
 class GLESFakePalette565Texture : public GLESFakePaletteTexture {